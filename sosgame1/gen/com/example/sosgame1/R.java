@@ -47,6 +47,8 @@ public final class R {
         public static final int per_pixel_vertex_shader_tex_and_light=0x7f040005;
         public static final int point_fragment_shader=0x7f040006;
         public static final int point_vertex_shader=0x7f040007;
+        public static final int tile_point_fragment_shader=0x7f040008;
+        public static final int tile_point_vertex_shader=0x7f040009;
     }
     public static final class string {
         public static final int action_settings=0x7f060001;
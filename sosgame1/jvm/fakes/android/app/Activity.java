@@ -0,0 +1,33 @@
+package android.app;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuInflater;
+
+/** A fake of android.app.Activity. */
+public class Activity extends Context
+{
+	protected void onCreate(final Bundle savedInstanceState)
+	{
+	}
+
+	public boolean onCreateOptionsMenu(final Menu menu)
+	{
+		return false;
+	}
+
+	public boolean requestWindowFeature(final int featureId)
+	{
+		return true;
+	}
+
+	public void setContentView(final int layoutResID)
+	{
+	}
+
+	public MenuInflater getMenuInflater()
+	{
+		return new MenuInflater();
+	}
+}
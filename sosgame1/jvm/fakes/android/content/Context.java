@@ -0,0 +1,34 @@
+package android.content;
+
+import java.io.File;
+
+import android.content.res.Resources;
+
+/** A fake of android.content.Context, with resources read from a res directory and a files directory of choice. */
+public class Context
+{
+	private final Resources resources;
+	private final File filesDir;
+
+	public Context()
+	{
+		this(new Resources(new File("res")), new File(System.getProperty("java.io.tmpdir")));
+	}
+
+	/** Not part of the Android API. */
+	public Context(final Resources resources, final File filesDir)
+	{
+		this.resources = resources;
+		this.filesDir = filesDir;
+	}
+
+	public Resources getResources()
+	{
+		return resources;
+	}
+
+	public File getFilesDir()
+	{
+		return filesDir;
+	}
+}
@@ -0,0 +1,72 @@
+package android.content.res;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+
+/**
+ * A fake of android.content.res.Resources over a res directory. A raw resource id is turned back into its name through
+ * the app's generated R.raw class and read from res/raw.
+ */
+public class Resources
+{
+	public static class NotFoundException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		public NotFoundException(final String message)
+		{
+			super(message);
+		}
+	}
+
+	/** The generated class holding the raw resource ids. */
+	private static final String RAW_CLASS = "com.example.sosgame1.R$raw";
+
+	private final File resDir;
+
+	/** Not part of the Android API. */
+	public Resources(final File resDir)
+	{
+		this.resDir = resDir;
+	}
+
+	public InputStream openRawResource(final int id)
+	{
+		try
+		{
+			for (final Field field : Class.forName(RAW_CLASS).getFields())
+			{
+				if (field.getInt(null) != id)
+				{
+					continue;
+				}
+
+				final File[] files = new File(resDir, "raw").listFiles();
+				for (int i = 0; files != null && i < files.length; i++)
+				{
+					if (files[i].getName().startsWith(field.getName() + "."))
+					{
+						return new FileInputStream(files[i]);
+					}
+				}
+			}
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new NotFoundException(e.toString());
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new NotFoundException(e.toString());
+		}
+		catch (FileNotFoundException e)
+		{
+			throw new NotFoundException(e.toString());
+		}
+
+		throw new NotFoundException("Raw resource 0x" + Integer.toHexString(id) + " not found under " + resDir);
+	}
+}
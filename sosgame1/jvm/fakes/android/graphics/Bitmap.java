@@ -0,0 +1,9 @@
+package android.graphics;
+
+/** A fake of android.graphics.Bitmap. Holds no pixels. */
+public class Bitmap
+{
+	public void recycle()
+	{
+	}
+}
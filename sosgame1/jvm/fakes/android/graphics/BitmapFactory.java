@@ -0,0 +1,17 @@
+package android.graphics;
+
+import android.content.res.Resources;
+
+/** A fake of android.graphics.BitmapFactory. Decodes every resource to an empty bitmap. */
+public class BitmapFactory
+{
+	public static class Options
+	{
+		public boolean inScaled = true;
+	}
+
+	public static Bitmap decodeResource(final Resources res, final int id, final Options options)
+	{
+		return new Bitmap();
+	}
+}
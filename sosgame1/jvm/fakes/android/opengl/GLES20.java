@@ -0,0 +1,700 @@
+package android.opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A fake of android.opengl.GLES20 for running the renderer on a plain JVM. It keeps just enough state to behave like
+ * a driver towards our code: handles are handed out in order, shaders always compile and programs always link, and a
+ * linked program reports the attributes and uniforms its shader sources declare. Everything else only counts calls,
+ * so the harnesses can check what a frame submitted.
+ * <p>
+ * The draw path only touches counters, so it allocates nothing and does not disturb allocation measurements. With a
+ * DrawListener set, the fake also keeps what is uploaded to buffers, so that a harness can read back the vertices each
+ * draw submits. Single threaded, like a GL context.
+ */
+public class GLES20
+{
+	public static final int GL_ZERO = 0;
+	public static final int GL_ONE = 1;
+	public static final int GL_FALSE = 0;
+	public static final int GL_TRUE = 1;
+	public static final int GL_POINTS = 0x0000;
+	public static final int GL_TRIANGLES = 0x0004;
+	public static final int GL_DEPTH_BUFFER_BIT = 0x00000100;
+	public static final int GL_COLOR_BUFFER_BIT = 0x00004000;
+	public static final int GL_SRC_ALPHA = 0x0302;
+	public static final int GL_ONE_MINUS_SRC_ALPHA = 0x0303;
+	public static final int GL_DST_ALPHA = 0x0304;
+	public static final int GL_CULL_FACE = 0x0B44;
+	public static final int GL_DEPTH_TEST = 0x0B71;
+	public static final int GL_BLEND = 0x0BE2;
+	public static final int GL_TEXTURE_2D = 0x0DE1;
+	public static final int GL_BYTE = 0x1400;
+	public static final int GL_UNSIGNED_BYTE = 0x1401;
+	public static final int GL_SHORT = 0x1402;
+	public static final int GL_UNSIGNED_SHORT = 0x1403;
+	public static final int GL_INT = 0x1404;
+	public static final int GL_FLOAT = 0x1406;
+	public static final int GL_NEAREST = 0x2600;
+	public static final int GL_TEXTURE_MAG_FILTER = 0x2800;
+	public static final int GL_TEXTURE_MIN_FILTER = 0x2801;
+	public static final int GL_TEXTURE0 = 0x84C0;
+	public static final int GL_ARRAY_BUFFER = 0x8892;
+	public static final int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+	public static final int GL_STATIC_DRAW = 0x88E4;
+	public static final int GL_DYNAMIC_DRAW = 0x88E8;
+	public static final int GL_FRAGMENT_SHADER = 0x8B30;
+	public static final int GL_VERTEX_SHADER = 0x8B31;
+	public static final int GL_FLOAT_VEC2 = 0x8B50;
+	public static final int GL_FLOAT_VEC3 = 0x8B51;
+	public static final int GL_FLOAT_VEC4 = 0x8B52;
+	public static final int GL_FLOAT_MAT4 = 0x8B5C;
+	public static final int GL_SAMPLER_2D = 0x8B5E;
+	public static final int GL_COMPILE_STATUS = 0x8B81;
+	public static final int GL_LINK_STATUS = 0x8B82;
+	public static final int GL_ACTIVE_UNIFORMS = 0x8B86;
+	public static final int GL_ACTIVE_UNIFORM_MAX_LENGTH = 0x8B87;
+	public static final int GL_ACTIVE_ATTRIBUTES = 0x8B89;
+	public static final int GL_ACTIVE_ATTRIBUTE_MAX_LENGTH = 0x8B8A;
+
+	/** A declaration in a shader: "attribute vec4 a_Position;" or "uniform mat4 u_MVPMatrix;". */
+	private static final Pattern DECLARATION = Pattern.compile(
+			"\\b(attribute|uniform)\\s+(?:(?:lowp|mediump|highp)\\s+)?(\\w+)\\s+(\\w+)\\s*;");
+
+	/** An active attribute or uniform of a linked program. */
+	private static class Variable
+	{
+		final String name;
+		final int type;
+		final int location;
+
+		Variable(final String name, final int type, final int location)
+		{
+			this.name = name;
+			this.type = type;
+			this.location = location;
+		}
+	}
+
+	private static class Program
+	{
+		final List<Integer> shaders = new ArrayList<Integer>();
+		final HashMap<String, Integer> boundAttributes = new HashMap<String, Integer>();
+		final List<Variable> attributes = new ArrayList<Variable>();
+		final List<Variable> uniforms = new ArrayList<Variable>();
+	}
+
+	/** Receives every draw call while set. Not part of the Android API. */
+	public interface DrawListener
+	{
+		/**
+		 * @param first The first vertex, or for an indexed draw the byte offset into the element array buffer.
+		 * @param count Number of vertices or indices.
+		 */
+		void onDraw(int mode, int first, int count, boolean indexed);
+	}
+
+	private static final int MAX_ATTRIBUTES = 16;
+
+	private static int nextHandle = 1;
+	private static DrawListener drawListener;
+
+	/** Buffer contents by handle, only kept while a DrawListener is set. */
+	private static final HashMap<Integer, ByteBuffer> bufferContents = new HashMap<Integer, ByteBuffer>();
+
+	private static int arrayBuffer = 0;
+	private static int elementArrayBuffer = 0;
+
+	/** The glVertexAttribPointer() state of each attribute location. */
+	private static final int[] attributeBuffers = new int[MAX_ATTRIBUTES];
+	private static final int[] attributeSizes = new int[MAX_ATTRIBUTES];
+	private static final int[] attributeTypes = new int[MAX_ATTRIBUTES];
+	private static final boolean[] attributeNormalized = new boolean[MAX_ATTRIBUTES];
+	private static final int[] attributeStrides = new int[MAX_ATTRIBUTES];
+	private static final int[] attributeOffsets = new int[MAX_ATTRIBUTES];
+	private static final HashMap<Integer, String> shaderSources = new HashMap<Integer, String>();
+	private static final HashMap<Integer, Program> programs = new HashMap<Integer, Program>();
+
+	private static int drawCalls = 0;
+	private static long triangles = 0;
+	private static long points = 0;
+	private static int locationQueries = 0;
+	private static int programSwitches = 0;
+	private static int uniformUploads = 0;
+	private static int bufferUploads = 0;
+
+	/** Forget every object and counter, like a new context. Not part of the Android API. */
+	public static void reset()
+	{
+		nextHandle = 1;
+		shaderSources.clear();
+		programs.clear();
+		bufferContents.clear();
+		arrayBuffer = 0;
+		elementArrayBuffer = 0;
+		resetCounters();
+	}
+
+	/** Zero the counters. Not part of the Android API. */
+	public static void resetCounters()
+	{
+		drawCalls = 0;
+		triangles = 0;
+		points = 0;
+		locationQueries = 0;
+		programSwitches = 0;
+		uniformUploads = 0;
+		bufferUploads = 0;
+	}
+
+	/** @return Draw calls since the counters were reset. Not part of the Android API. */
+	public static int getDrawCalls()
+	{
+		return drawCalls;
+	}
+
+	/** @return Triangles submitted since the counters were reset. Not part of the Android API. */
+	public static long getTriangles()
+	{
+		return triangles;
+	}
+
+	/** @return Points submitted since the counters were reset. Not part of the Android API. */
+	public static long getPoints()
+	{
+		return points;
+	}
+
+	/** @return glGetUniformLocation() and glGetAttribLocation() calls since the reset. Not part of the Android API. */
+	public static int getLocationQueries()
+	{
+		return locationQueries;
+	}
+
+	/** @return glUseProgram() calls since the counters were reset. Not part of the Android API. */
+	public static int getProgramSwitches()
+	{
+		return programSwitches;
+	}
+
+	/** @return Uniform uploads since the counters were reset. Not part of the Android API. */
+	public static int getUniformUploads()
+	{
+		return uniformUploads;
+	}
+
+	/** @return glBufferData() and glBufferSubData() calls since the reset. Not part of the Android API. */
+	public static int getBufferUploads()
+	{
+		return bufferUploads;
+	}
+
+	/**
+	 * Call the listener for every draw from now on, or stop if null. Set it before the buffers are uploaded, since
+	 * only contents uploaded while it is set can be read back. Not part of the Android API.
+	 */
+	public static void setDrawListener(final DrawListener listener)
+	{
+		drawListener = listener;
+	}
+
+	/**
+	 * @param offset Byte offset into the bound element array buffer, as passed to glDrawElements().
+	 * @param i Which index from there.
+	 * @return The GL_UNSIGNED_SHORT index. Not part of the Android API.
+	 */
+	public static int getElement(final int offset, final int i)
+	{
+		return getContents(elementArrayBuffer).getShort(offset + i * 2) & 0xFFFF;
+	}
+
+	/**
+	 * Read a vertex attribute the way the current glVertexAttribPointer() state describes it, normalizing integer
+	 * components if it says so. Not part of the Android API.
+	 *
+	 * @param location The attribute location.
+	 * @param vertex The vertex index.
+	 * @param result Receives the components.
+	 */
+	public static void getAttribute(final int location, final int vertex, final float[] result)
+	{
+		final ByteBuffer contents = getContents(attributeBuffers[location]);
+		final int type = attributeTypes[location];
+		final int bytes = type == GL_FLOAT ? 4 : type == GL_SHORT || type == GL_UNSIGNED_SHORT ? 2 : 1;
+		final int stride = attributeStrides[location] != 0 ? attributeStrides[location]
+				: attributeSizes[location] * bytes;
+		final int base = attributeOffsets[location] + vertex * stride;
+		final boolean normalized = attributeNormalized[location];
+
+		for (int c = 0; c < attributeSizes[location]; c++)
+		{
+			final int at = base + c * bytes;
+
+			switch (type)
+			{
+			case GL_FLOAT:
+				result[c] = contents.getFloat(at);
+				break;
+			case GL_BYTE:
+				result[c] = normalized ? Math.max(contents.get(at) / 127.0f, -1) : contents.get(at);
+				break;
+			case GL_UNSIGNED_BYTE:
+				result[c] = normalized ? (contents.get(at) & 0xFF) / 255.0f : contents.get(at) & 0xFF;
+				break;
+			case GL_SHORT:
+				result[c] = normalized ? Math.max(contents.getShort(at) / 32767.0f, -1) : contents.getShort(at);
+				break;
+			default:
+				result[c] = normalized ? (contents.getShort(at) & 0xFFFF) / 65535.0f : contents.getShort(at) & 0xFFFF;
+				break;
+			}
+		}
+	}
+
+	private static ByteBuffer getContents(final int handle)
+	{
+		final ByteBuffer contents = bufferContents.get(handle);
+
+		if (contents == null)
+		{
+			throw new IllegalStateException("Buffer " + handle + " was not uploaded while a DrawListener was set.");
+		}
+
+		return contents;
+	}
+
+	/** Copy size bytes of data, from its position on, into the bound buffer of the target at offset. */
+	private static void keep(final int target, final int offset, final int size, final Buffer data)
+	{
+		final int handle = target == GL_ELEMENT_ARRAY_BUFFER ? elementArrayBuffer : arrayBuffer;
+		final ByteBuffer contents = getContents(handle);
+
+		if (data instanceof ByteBuffer)
+		{
+			final ByteBuffer source = (ByteBuffer) data;
+			for (int i = 0; i < size; i++)
+			{
+				contents.put(offset + i, source.get(source.position() + i));
+			}
+		}
+		else if (data instanceof ShortBuffer)
+		{
+			final ShortBuffer source = (ShortBuffer) data;
+			for (int i = 0; i < size / 2; i++)
+			{
+				contents.putShort(offset + i * 2, source.get(source.position() + i));
+			}
+		}
+		else if (data instanceof FloatBuffer)
+		{
+			final FloatBuffer source = (FloatBuffer) data;
+			for (int i = 0; i < size / 4; i++)
+			{
+				contents.putFloat(offset + i * 4, source.get(source.position() + i));
+			}
+		}
+	}
+
+	private static void handles(final int n, final int[] result, final int offset)
+	{
+		for (int i = 0; i < n; i++)
+		{
+			result[offset + i] = nextHandle++;
+		}
+	}
+
+	public static void glGenBuffers(final int n, final int[] buffers, final int offset)
+	{
+		handles(n, buffers, offset);
+	}
+
+	public static void glGenTextures(final int n, final int[] textures, final int offset)
+	{
+		handles(n, textures, offset);
+	}
+
+	public static int glCreateShader(final int type)
+	{
+		return nextHandle++;
+	}
+
+	public static void glShaderSource(final int shader, final String source)
+	{
+		shaderSources.put(shader, source);
+	}
+
+	public static void glCompileShader(final int shader)
+	{
+	}
+
+	public static void glGetShaderiv(final int shader, final int pname, final int[] params, final int offset)
+	{
+		params[offset] = pname == GL_COMPILE_STATUS ? GL_TRUE : 0;
+	}
+
+	public static String glGetShaderInfoLog(final int shader)
+	{
+		return "";
+	}
+
+	public static void glDeleteShader(final int shader)
+	{
+		shaderSources.remove(shader);
+	}
+
+	public static int glCreateProgram()
+	{
+		final int handle = nextHandle++;
+		programs.put(handle, new Program());
+		return handle;
+	}
+
+	public static void glAttachShader(final int program, final int shader)
+	{
+		programs.get(program).shaders.add(shader);
+	}
+
+	public static void glBindAttribLocation(final int program, final int index, final String name)
+	{
+		programs.get(program).boundAttributes.put(name, index);
+	}
+
+	/** Declare every attribute and uniform of the attached shaders active, uniforms numbered in order. */
+	public static void glLinkProgram(final int program)
+	{
+		final Program p = programs.get(program);
+		final HashMap<String, Variable> seen = new HashMap<String, Variable>();
+		int nextAttribute = 0;
+
+		for (final int shader : p.shaders)
+		{
+			final String source = shaderSources.get(shader);
+			final Matcher matcher = DECLARATION.matcher(source == null ? "" : source);
+
+			while (matcher.find())
+			{
+				final String name = matcher.group(3);
+				if (seen.containsKey(name))
+				{
+					continue;
+				}
+
+				final int type = typeOf(matcher.group(2));
+				final Variable variable;
+
+				if (matcher.group(1).equals("uniform"))
+				{
+					variable = new Variable(name, type, p.uniforms.size());
+					p.uniforms.add(variable);
+				}
+				else
+				{
+					while (p.boundAttributes.containsValue(nextAttribute))
+					{
+						nextAttribute++;
+					}
+					final Integer bound = p.boundAttributes.get(name);
+					variable = new Variable(name, type, bound != null ? bound : nextAttribute++);
+					p.attributes.add(variable);
+				}
+
+				seen.put(name, variable);
+			}
+		}
+	}
+
+	private static int typeOf(final String glslType)
+	{
+		if (glslType.equals("vec2"))
+		{
+			return GL_FLOAT_VEC2;
+		}
+		if (glslType.equals("vec3"))
+		{
+			return GL_FLOAT_VEC3;
+		}
+		if (glslType.equals("vec4"))
+		{
+			return GL_FLOAT_VEC4;
+		}
+		if (glslType.equals("mat4"))
+		{
+			return GL_FLOAT_MAT4;
+		}
+		if (glslType.equals("sampler2D"))
+		{
+			return GL_SAMPLER_2D;
+		}
+		if (glslType.equals("int"))
+		{
+			return GL_INT;
+		}
+		return GL_FLOAT;
+	}
+
+	public static void glGetProgramiv(final int program, final int pname, final int[] params, final int offset)
+	{
+		final Program p = programs.get(program);
+
+		switch (pname)
+		{
+		case GL_LINK_STATUS:
+			params[offset] = p != null ? GL_TRUE : GL_FALSE;
+			break;
+		case GL_ACTIVE_UNIFORMS:
+			params[offset] = p.uniforms.size();
+			break;
+		case GL_ACTIVE_ATTRIBUTES:
+			params[offset] = p.attributes.size();
+			break;
+		case GL_ACTIVE_UNIFORM_MAX_LENGTH:
+			params[offset] = maxLength(p.uniforms);
+			break;
+		case GL_ACTIVE_ATTRIBUTE_MAX_LENGTH:
+			params[offset] = maxLength(p.attributes);
+			break;
+		default:
+			params[offset] = 0;
+		}
+	}
+
+	/** @return The longest name plus its terminating null, as GL reports it. */
+	private static int maxLength(final List<Variable> variables)
+	{
+		int max = 0;
+		for (final Variable variable : variables)
+		{
+			max = Math.max(max, variable.name.length() + 1);
+		}
+		return max;
+	}
+
+	public static String glGetProgramInfoLog(final int program)
+	{
+		return "";
+	}
+
+	public static void glDeleteProgram(final int program)
+	{
+		programs.remove(program);
+	}
+
+	public static void glGetActiveUniform(final int program, final int index, final int bufsize, final int[] length,
+			final int lengthOffset, final int[] size, final int sizeOffset, final int[] type, final int typeOffset,
+			final byte[] name, final int nameOffset)
+	{
+		describe(programs.get(program).uniforms.get(index), bufsize, length, lengthOffset, size, sizeOffset, type,
+				typeOffset, name, nameOffset);
+	}
+
+	public static void glGetActiveAttrib(final int program, final int index, final int bufsize, final int[] length,
+			final int lengthOffset, final int[] size, final int sizeOffset, final int[] type, final int typeOffset,
+			final byte[] name, final int nameOffset)
+	{
+		describe(programs.get(program).attributes.get(index), bufsize, length, lengthOffset, size, sizeOffset, type,
+				typeOffset, name, nameOffset);
+	}
+
+	private static void describe(final Variable variable, final int bufsize, final int[] length,
+			final int lengthOffset, final int[] size, final int sizeOffset, final int[] type, final int typeOffset,
+			final byte[] name, final int nameOffset)
+	{
+		final int count = Math.min(variable.name.length(), bufsize - 1);
+		for (int i = 0; i < count; i++)
+		{
+			name[nameOffset + i] = (byte) variable.name.charAt(i);
+		}
+		length[lengthOffset] = count;
+		size[sizeOffset] = 1;
+		type[typeOffset] = variable.type;
+	}
+
+	public static int glGetUniformLocation(final int program, final String name)
+	{
+		locationQueries++;
+		return find(programs.get(program).uniforms, name);
+	}
+
+	public static int glGetAttribLocation(final int program, final String name)
+	{
+		locationQueries++;
+		return find(programs.get(program).attributes, name);
+	}
+
+	private static int find(final List<Variable> variables, final String name)
+	{
+		for (final Variable variable : variables)
+		{
+			if (variable.name.equals(name))
+			{
+				return variable.location;
+			}
+		}
+		return -1;
+	}
+
+	public static void glUseProgram(final int program)
+	{
+		programSwitches++;
+	}
+
+	public static void glUniform1i(final int location, final int x)
+	{
+		uniformUploads++;
+	}
+
+	public static void glUniform1f(final int location, final float x)
+	{
+		uniformUploads++;
+	}
+
+	public static void glUniform3f(final int location, final float x, final float y, final float z)
+	{
+		uniformUploads++;
+	}
+
+	public static void glUniformMatrix4fv(final int location, final int count, final boolean transpose,
+			final float[] value, final int offset)
+	{
+		uniformUploads++;
+	}
+
+	public static void glBufferData(final int target, final int size, final Buffer data, final int usage)
+	{
+		bufferUploads++;
+
+		if (drawListener != null)
+		{
+			bufferContents.put(target == GL_ELEMENT_ARRAY_BUFFER ? elementArrayBuffer : arrayBuffer,
+					ByteBuffer.allocate(size).order(ByteOrder.nativeOrder()));
+			if (data != null)
+			{
+				keep(target, 0, size, data);
+			}
+		}
+	}
+
+	public static void glBufferSubData(final int target, final int offset, final int size, final Buffer data)
+	{
+		bufferUploads++;
+
+		if (drawListener != null)
+		{
+			keep(target, offset, size, data);
+		}
+	}
+
+	public static void glDrawArrays(final int mode, final int first, final int count)
+	{
+		submitted(mode, count);
+
+		if (drawListener != null)
+		{
+			drawListener.onDraw(mode, first, count, false);
+		}
+	}
+
+	/** Only GL_UNSIGNED_SHORT indices can be read back. */
+	public static void glDrawElements(final int mode, final int count, final int type, final int offset)
+	{
+		submitted(mode, count);
+
+		if (drawListener != null)
+		{
+			drawListener.onDraw(mode, offset, count, true);
+		}
+	}
+
+	private static void submitted(final int mode, final int count)
+	{
+		drawCalls++;
+		if (mode == GL_TRIANGLES)
+		{
+			triangles += count / 3;
+		}
+		else if (mode == GL_POINTS)
+		{
+			points += count;
+		}
+	}
+
+	public static void glActiveTexture(final int texture)
+	{
+	}
+
+	public static void glBindBuffer(final int target, final int buffer)
+	{
+		if (target == GL_ELEMENT_ARRAY_BUFFER)
+		{
+			elementArrayBuffer = buffer;
+		}
+		else
+		{
+			arrayBuffer = buffer;
+		}
+	}
+
+	public static void glBindTexture(final int target, final int texture)
+	{
+	}
+
+	public static void glBlendFunc(final int sfactor, final int dfactor)
+	{
+	}
+
+	public static void glClear(final int mask)
+	{
+	}
+
+	public static void glClearColor(final float red, final float green, final float blue, final float alpha)
+	{
+	}
+
+	public static void glEnable(final int cap)
+	{
+	}
+
+	public static void glDisable(final int cap)
+	{
+	}
+
+	public static void glEnableVertexAttribArray(final int index)
+	{
+	}
+
+	public static void glDisableVertexAttribArray(final int index)
+	{
+	}
+
+	public static void glVertexAttribPointer(final int index, final int size, final int type,
+			final boolean normalized, final int stride, final int offset)
+	{
+		attributeBuffers[index] = arrayBuffer;
+		attributeSizes[index] = size;
+		attributeTypes[index] = type;
+		attributeNormalized[index] = normalized;
+		attributeStrides[index] = stride;
+		attributeOffsets[index] = offset;
+	}
+
+	public static void glVertexAttrib3f(final int index, final float x, final float y, final float z)
+	{
+	}
+
+	public static void glTexParameteri(final int target, final int pname, final int param)
+	{
+	}
+
+	public static void glViewport(final int x, final int y, final int width, final int height)
+	{
+	}
+}
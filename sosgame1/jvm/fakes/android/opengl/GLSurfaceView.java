@@ -0,0 +1,79 @@
+package android.opengl;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/** A fake of android.opengl.GLSurfaceView. There is no GL thread: queued events run on the View's fake looper. */
+public class GLSurfaceView extends View
+{
+	public static final int RENDERMODE_WHEN_DIRTY = 0;
+	public static final int RENDERMODE_CONTINUOUSLY = 1;
+
+	public interface Renderer
+	{
+		void onSurfaceCreated(GL10 gl, EGLConfig config);
+
+		void onSurfaceChanged(GL10 gl, int width, int height);
+
+		void onDrawFrame(GL10 gl);
+	}
+
+	private int renderMode = RENDERMODE_CONTINUOUSLY;
+	private int renderRequests = 0;
+
+	public GLSurfaceView(final Context context)
+	{
+		super(context);
+	}
+
+	public GLSurfaceView(final Context context, final AttributeSet attrs)
+	{
+		super(context);
+	}
+
+	public void setEGLContextClientVersion(final int version)
+	{
+	}
+
+	public void setRenderer(final Renderer renderer)
+	{
+	}
+
+	public void setRenderMode(final int renderMode)
+	{
+		this.renderMode = renderMode;
+	}
+
+	public int getRenderMode()
+	{
+		return renderMode;
+	}
+
+	public void requestRender()
+	{
+		renderRequests++;
+	}
+
+	public void queueEvent(final Runnable r)
+	{
+		post(r);
+	}
+
+	public void onPause()
+	{
+	}
+
+	public void onResume()
+	{
+	}
+
+	/** @return requestRender() calls so far. Not part of the Android API. */
+	public int getRenderRequests()
+	{
+		return renderRequests;
+	}
+}
@@ -0,0 +1,11 @@
+package android.opengl;
+
+import android.graphics.Bitmap;
+
+/** A fake of android.opengl.GLUtils. */
+public class GLUtils
+{
+	public static void texImage2D(final int target, final int level, final Bitmap bitmap, final int border)
+	{
+	}
+}
@@ -0,0 +1,351 @@
+package android.opengl;
+
+/**
+ * A port of the parts of android.opengl.Matrix the app used to call, following the platform's algorithms, so the
+ * plain-JVM harnesses can compare MatrixMath with the call chains it replaced. multiplyMM() is native on a device;
+ * here it is the straightforward general 4x4 product.
+ */
+public class Matrix
+{
+	/** Temporary memory for rotateM(), shared like the platform's. */
+	private static final float[] sTemp = new float[32];
+
+	public static void multiplyMM(final float[] result, final int resultOffset, final float[] lhs, final int lhsOffset,
+			final float[] rhs, final int rhsOffset)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			final float rhs0 = rhs[rhsOffset + i * 4];
+			final float rhs1 = rhs[rhsOffset + i * 4 + 1];
+			final float rhs2 = rhs[rhsOffset + i * 4 + 2];
+			final float rhs3 = rhs[rhsOffset + i * 4 + 3];
+
+			for (int j = 0; j < 4; j++)
+			{
+				result[resultOffset + i * 4 + j] = lhs[lhsOffset + j] * rhs0 + lhs[lhsOffset + 4 + j] * rhs1
+						+ lhs[lhsOffset + 8 + j] * rhs2 + lhs[lhsOffset + 12 + j] * rhs3;
+			}
+		}
+	}
+
+	public static void multiplyMV(final float[] resultVec, final int resultVecOffset, final float[] lhsMat,
+			final int lhsMatOffset, final float[] rhsVec, final int rhsVecOffset)
+	{
+		final float x = rhsVec[rhsVecOffset];
+		final float y = rhsVec[rhsVecOffset + 1];
+		final float z = rhsVec[rhsVecOffset + 2];
+		final float w = rhsVec[rhsVecOffset + 3];
+
+		for (int i = 0; i < 4; i++)
+		{
+			resultVec[resultVecOffset + i] = lhsMat[lhsMatOffset + i] * x + lhsMat[lhsMatOffset + 4 + i] * y
+					+ lhsMat[lhsMatOffset + 8 + i] * z + lhsMat[lhsMatOffset + 12 + i] * w;
+		}
+	}
+
+	public static void setIdentityM(final float[] sm, final int smOffset)
+	{
+		for (int i = 0; i < 16; i++)
+		{
+			sm[smOffset + i] = 0;
+		}
+
+		for (int i = 0; i < 16; i += 5)
+		{
+			sm[smOffset + i] = 1.0f;
+		}
+	}
+
+	public static void translateM(final float[] m, final int mOffset, final float x, final float y, final float z)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			final int mi = mOffset + i;
+			m[12 + mi] += m[mi] * x + m[4 + mi] * y + m[8 + mi] * z;
+		}
+	}
+
+	public static void scaleM(final float[] m, final int mOffset, final float x, final float y, final float z)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			final int mi = mOffset + i;
+			m[mi] *= x;
+			m[4 + mi] *= y;
+			m[8 + mi] *= z;
+		}
+	}
+
+	public static void rotateM(final float[] m, final int mOffset, final float a, final float x, final float y,
+			final float z)
+	{
+		synchronized (sTemp)
+		{
+			setRotateM(sTemp, 0, a, x, y, z);
+			multiplyMM(sTemp, 16, m, mOffset, sTemp, 0);
+			System.arraycopy(sTemp, 16, m, mOffset, 16);
+		}
+	}
+
+	public static void setRotateM(final float[] rm, final int rmOffset, float a, float x, float y, float z)
+	{
+		rm[rmOffset + 3] = 0;
+		rm[rmOffset + 7] = 0;
+		rm[rmOffset + 11] = 0;
+		rm[rmOffset + 12] = 0;
+		rm[rmOffset + 13] = 0;
+		rm[rmOffset + 14] = 0;
+		rm[rmOffset + 15] = 1;
+		a *= (float) (Math.PI / 180.0f);
+		final float s = (float) Math.sin(a);
+		final float c = (float) Math.cos(a);
+
+		if (1.0f == x && 0.0f == y && 0.0f == z)
+		{
+			rm[rmOffset + 5] = c;
+			rm[rmOffset + 10] = c;
+			rm[rmOffset + 6] = s;
+			rm[rmOffset + 9] = -s;
+			rm[rmOffset + 1] = 0;
+			rm[rmOffset + 2] = 0;
+			rm[rmOffset + 4] = 0;
+			rm[rmOffset + 8] = 0;
+			rm[rmOffset] = 1;
+		}
+		else if (0.0f == x && 1.0f == y && 0.0f == z)
+		{
+			rm[rmOffset] = c;
+			rm[rmOffset + 10] = c;
+			rm[rmOffset + 8] = s;
+			rm[rmOffset + 2] = -s;
+			rm[rmOffset + 1] = 0;
+			rm[rmOffset + 4] = 0;
+			rm[rmOffset + 6] = 0;
+			rm[rmOffset + 9] = 0;
+			rm[rmOffset + 5] = 1;
+		}
+		else if (0.0f == x && 0.0f == y && 1.0f == z)
+		{
+			rm[rmOffset] = c;
+			rm[rmOffset + 5] = c;
+			rm[rmOffset + 1] = s;
+			rm[rmOffset + 4] = -s;
+			rm[rmOffset + 2] = 0;
+			rm[rmOffset + 6] = 0;
+			rm[rmOffset + 8] = 0;
+			rm[rmOffset + 9] = 0;
+			rm[rmOffset + 10] = 1;
+		}
+		else
+		{
+			final float len = (float) Math.sqrt(x * x + y * y + z * z);
+			if (1.0f != len)
+			{
+				final float recipLen = 1.0f / len;
+				x *= recipLen;
+				y *= recipLen;
+				z *= recipLen;
+			}
+			final float nc = 1.0f - c;
+			final float xy = x * y;
+			final float yz = y * z;
+			final float zx = z * x;
+			final float xs = x * s;
+			final float ys = y * s;
+			final float zs = z * s;
+			rm[rmOffset] = x * x * nc + c;
+			rm[rmOffset + 4] = xy * nc - zs;
+			rm[rmOffset + 8] = zx * nc + ys;
+			rm[rmOffset + 1] = xy * nc + zs;
+			rm[rmOffset + 5] = y * y * nc + c;
+			rm[rmOffset + 9] = yz * nc - xs;
+			rm[rmOffset + 2] = zx * nc - ys;
+			rm[rmOffset + 6] = yz * nc + xs;
+			rm[rmOffset + 10] = z * z * nc + c;
+		}
+	}
+
+	/** General inverse by cofactors of the transposed matrix, as the platform computes it. */
+	public static boolean invertM(final float[] mInv, final int mInvOffset, final float[] m, final int mOffset)
+	{
+		final float src0 = m[mOffset];
+		final float src4 = m[mOffset + 1];
+		final float src8 = m[mOffset + 2];
+		final float src12 = m[mOffset + 3];
+		final float src1 = m[mOffset + 4];
+		final float src5 = m[mOffset + 5];
+		final float src9 = m[mOffset + 6];
+		final float src13 = m[mOffset + 7];
+		final float src2 = m[mOffset + 8];
+		final float src6 = m[mOffset + 9];
+		final float src10 = m[mOffset + 10];
+		final float src14 = m[mOffset + 11];
+		final float src3 = m[mOffset + 12];
+		final float src7 = m[mOffset + 13];
+		final float src11 = m[mOffset + 14];
+		final float src15 = m[mOffset + 15];
+
+		// Pairs for the first 8 cofactors.
+		final float atmp0 = src10 * src15;
+		final float atmp1 = src11 * src14;
+		final float atmp2 = src9 * src15;
+		final float atmp3 = src11 * src13;
+		final float atmp4 = src9 * src14;
+		final float atmp5 = src10 * src13;
+		final float atmp6 = src8 * src15;
+		final float atmp7 = src11 * src12;
+		final float atmp8 = src8 * src14;
+		final float atmp9 = src10 * src12;
+		final float atmp10 = src8 * src13;
+		final float atmp11 = src9 * src12;
+
+		final float dst0 = (atmp0 * src5 + atmp3 * src6 + atmp4 * src7) - (atmp1 * src5 + atmp2 * src6 + atmp5 * src7);
+		final float dst1 = (atmp1 * src4 + atmp6 * src6 + atmp9 * src7) - (atmp0 * src4 + atmp7 * src6 + atmp8 * src7);
+		final float dst2 = (atmp2 * src4 + atmp7 * src5 + atmp10 * src7)
+				- (atmp3 * src4 + atmp6 * src5 + atmp11 * src7);
+		final float dst3 = (atmp5 * src4 + atmp8 * src5 + atmp11 * src6)
+				- (atmp4 * src4 + atmp9 * src5 + atmp10 * src6);
+		final float dst4 = (atmp1 * src1 + atmp2 * src2 + atmp5 * src3) - (atmp0 * src1 + atmp3 * src2 + atmp4 * src3);
+		final float dst5 = (atmp0 * src0 + atmp7 * src2 + atmp8 * src3) - (atmp1 * src0 + atmp6 * src2 + atmp9 * src3);
+		final float dst6 = (atmp3 * src0 + atmp6 * src1 + atmp11 * src3)
+				- (atmp2 * src0 + atmp7 * src1 + atmp10 * src3);
+		final float dst7 = (atmp4 * src0 + atmp9 * src1 + atmp10 * src2)
+				- (atmp5 * src0 + atmp8 * src1 + atmp11 * src2);
+
+		// Pairs for the second 8 cofactors.
+		final float btmp0 = src2 * src7;
+		final float btmp1 = src3 * src6;
+		final float btmp2 = src1 * src7;
+		final float btmp3 = src3 * src5;
+		final float btmp4 = src1 * src6;
+		final float btmp5 = src2 * src5;
+		final float btmp6 = src0 * src7;
+		final float btmp7 = src3 * src4;
+		final float btmp8 = src0 * src6;
+		final float btmp9 = src2 * src4;
+		final float btmp10 = src0 * src5;
+		final float btmp11 = src1 * src4;
+
+		final float dst8 = (btmp0 * src13 + btmp3 * src14 + btmp4 * src15)
+				- (btmp1 * src13 + btmp2 * src14 + btmp5 * src15);
+		final float dst9 = (btmp1 * src12 + btmp6 * src14 + btmp9 * src15)
+				- (btmp0 * src12 + btmp7 * src14 + btmp8 * src15);
+		final float dst10 = (btmp2 * src12 + btmp7 * src13 + btmp10 * src15)
+				- (btmp3 * src12 + btmp6 * src13 + btmp11 * src15);
+		final float dst11 = (btmp5 * src12 + btmp8 * src13 + btmp11 * src14)
+				- (btmp4 * src12 + btmp9 * src13 + btmp10 * src14);
+		final float dst12 = (btmp2 * src10 + btmp5 * src11 + btmp1 * src9)
+				- (btmp4 * src11 + btmp0 * src9 + btmp3 * src10);
+		final float dst13 = (btmp8 * src11 + btmp0 * src8 + btmp7 * src10)
+				- (btmp6 * src10 + btmp9 * src11 + btmp1 * src8);
+		final float dst14 = (btmp6 * src9 + btmp11 * src11 + btmp3 * src8)
+				- (btmp10 * src11 + btmp2 * src8 + btmp7 * src9);
+		final float dst15 = (btmp10 * src10 + btmp4 * src8 + btmp9 * src9)
+				- (btmp8 * src9 + btmp11 * src10 + btmp5 * src8);
+
+		final float det = src0 * dst0 + src1 * dst1 + src2 * dst2 + src3 * dst3;
+
+		if (det == 0.0f)
+		{
+			return false;
+		}
+
+		final float invdet = 1.0f / det;
+		mInv[mInvOffset] = dst0 * invdet;
+		mInv[1 + mInvOffset] = dst1 * invdet;
+		mInv[2 + mInvOffset] = dst2 * invdet;
+		mInv[3 + mInvOffset] = dst3 * invdet;
+		mInv[4 + mInvOffset] = dst4 * invdet;
+		mInv[5 + mInvOffset] = dst5 * invdet;
+		mInv[6 + mInvOffset] = dst6 * invdet;
+		mInv[7 + mInvOffset] = dst7 * invdet;
+		mInv[8 + mInvOffset] = dst8 * invdet;
+		mInv[9 + mInvOffset] = dst9 * invdet;
+		mInv[10 + mInvOffset] = dst10 * invdet;
+		mInv[11 + mInvOffset] = dst11 * invdet;
+		mInv[12 + mInvOffset] = dst12 * invdet;
+		mInv[13 + mInvOffset] = dst13 * invdet;
+		mInv[14 + mInvOffset] = dst14 * invdet;
+		mInv[15 + mInvOffset] = dst15 * invdet;
+		return true;
+	}
+
+	public static void frustumM(final float[] m, final int offset, final float left, final float right,
+			final float bottom, final float top, final float near, final float far)
+	{
+		if (left == right || top == bottom || near == far || near <= 0.0f || far <= 0.0f)
+		{
+			throw new IllegalArgumentException("Degenerate frustum");
+		}
+
+		final float rWidth = 1.0f / (right - left);
+		final float rHeight = 1.0f / (top - bottom);
+		final float rDepth = 1.0f / (near - far);
+		m[offset] = 2.0f * (near * rWidth);
+		m[offset + 5] = 2.0f * (near * rHeight);
+		m[offset + 8] = (right + left) * rWidth;
+		m[offset + 9] = (top + bottom) * rHeight;
+		m[offset + 10] = (far + near) * rDepth;
+		m[offset + 14] = 2.0f * (far * near * rDepth);
+		m[offset + 11] = -1.0f;
+		m[offset + 1] = 0.0f;
+		m[offset + 2] = 0.0f;
+		m[offset + 3] = 0.0f;
+		m[offset + 4] = 0.0f;
+		m[offset + 6] = 0.0f;
+		m[offset + 7] = 0.0f;
+		m[offset + 12] = 0.0f;
+		m[offset + 13] = 0.0f;
+		m[offset + 15] = 0.0f;
+	}
+
+	public static void setLookAtM(final float[] rm, final int rmOffset, final float eyeX, final float eyeY,
+			final float eyeZ, final float centerX, final float centerY, final float centerZ, final float upX,
+			final float upY, final float upZ)
+	{
+		float fx = centerX - eyeX;
+		float fy = centerY - eyeY;
+		float fz = centerZ - eyeZ;
+
+		// Normalize f.
+		final float rlf = 1.0f / (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+		fx *= rlf;
+		fy *= rlf;
+		fz *= rlf;
+
+		// s = f x up.
+		float sx = fy * upZ - fz * upY;
+		float sy = fz * upX - fx * upZ;
+		float sz = fx * upY - fy * upX;
+
+		// Normalize s.
+		final float rls = 1.0f / (float) Math.sqrt(sx * sx + sy * sy + sz * sz);
+		sx *= rls;
+		sy *= rls;
+		sz *= rls;
+
+		// u = s x f.
+		final float ux = sy * fz - sz * fy;
+		final float uy = sz * fx - sx * fz;
+		final float uz = sx * fy - sy * fx;
+
+		rm[rmOffset] = sx;
+		rm[rmOffset + 1] = ux;
+		rm[rmOffset + 2] = -fx;
+		rm[rmOffset + 3] = 0.0f;
+		rm[rmOffset + 4] = sy;
+		rm[rmOffset + 5] = uy;
+		rm[rmOffset + 6] = -fy;
+		rm[rmOffset + 7] = 0.0f;
+		rm[rmOffset + 8] = sz;
+		rm[rmOffset + 9] = uz;
+		rm[rmOffset + 10] = -fz;
+		rm[rmOffset + 11] = 0.0f;
+		rm[rmOffset + 12] = 0.0f;
+		rm[rmOffset + 13] = 0.0f;
+		rm[rmOffset + 14] = 0.0f;
+		rm[rmOffset + 15] = 1.0f;
+
+		translateM(rm, rmOffset, -eyeX, -eyeY, -eyeZ);
+	}
+}
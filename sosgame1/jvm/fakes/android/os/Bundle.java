@@ -0,0 +1,6 @@
+package android.os;
+
+/** A fake of android.os.Bundle. */
+public class Bundle
+{
+}
@@ -0,0 +1,12 @@
+package android.os;
+
+/** A fake of android.os.SystemClock, running on System.nanoTime(). */
+public class SystemClock
+{
+	private static final long START = System.nanoTime();
+
+	public static long uptimeMillis()
+	{
+		return (System.nanoTime() - START) / 1000000L;
+	}
+}
@@ -0,0 +1,6 @@
+package android.util;
+
+/** A fake of android.util.AttributeSet. */
+public interface AttributeSet
+{
+}
@@ -0,0 +1,37 @@
+package android.util;
+
+/** A fake of android.util.Log that writes warnings and errors to standard error and drops the rest. */
+public class Log
+{
+	public static int v(final String tag, final String msg)
+	{
+		return 0;
+	}
+
+	public static int d(final String tag, final String msg)
+	{
+		return 0;
+	}
+
+	public static int i(final String tag, final String msg)
+	{
+		return 0;
+	}
+
+	public static int w(final String tag, final String msg)
+	{
+		return w(tag, msg, null);
+	}
+
+	public static int w(final String tag, final String msg, final Throwable tr)
+	{
+		System.err.println("W/" + tag + ": " + msg + (tr != null ? " " + tr : ""));
+		return 0;
+	}
+
+	public static int e(final String tag, final String msg)
+	{
+		System.err.println("E/" + tag + ": " + msg);
+		return 0;
+	}
+}
@@ -0,0 +1,6 @@
+package android.view;
+
+/** A fake of android.view.Menu. */
+public interface Menu
+{
+}
@@ -0,0 +1,9 @@
+package android.view;
+
+/** A fake of android.view.MenuInflater. */
+public class MenuInflater
+{
+	public void inflate(final int menuRes, final Menu menu)
+	{
+	}
+}
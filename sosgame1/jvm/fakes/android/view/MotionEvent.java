@@ -0,0 +1,45 @@
+package android.view;
+
+/** A fake of android.view.MotionEvent. */
+public class MotionEvent
+{
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MOVE = 2;
+
+	private final int action;
+	private final float x;
+	private final float y;
+
+	private MotionEvent(final int action, final float x, final float y)
+	{
+		this.action = action;
+		this.x = x;
+		this.y = y;
+	}
+
+	public static MotionEvent obtain(final long downTime, final long eventTime, final int action, final float x,
+			final float y, final int metaState)
+	{
+		return new MotionEvent(action, x, y);
+	}
+
+	public int getAction()
+	{
+		return action;
+	}
+
+	public float getX()
+	{
+		return x;
+	}
+
+	public float getY()
+	{
+		return y;
+	}
+
+	public void recycle()
+	{
+	}
+}
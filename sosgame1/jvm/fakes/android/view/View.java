@@ -0,0 +1,130 @@
+package android.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+
+/**
+ * A fake of android.view.View. Runnables posted to it wait on a fake looper until the harness runs them with
+ * runPosted(), in order of their due time.
+ */
+public class View
+{
+	public interface OnClickListener
+	{
+		void onClick(View v);
+	}
+
+	private final List<Runnable> posted = new ArrayList<Runnable>();
+	private final List<Long> due = new ArrayList<Long>();
+
+	private int width = 0;
+	private int height = 0;
+
+	public View(final Context context)
+	{
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/** Set the size layout would give the view. Not part of the Android API. */
+	public void setSize(final int width, final int height)
+	{
+		this.width = width;
+		this.height = height;
+	}
+
+	public boolean onTouchEvent(final MotionEvent event)
+	{
+		return false;
+	}
+
+	public void setOnClickListener(final OnClickListener listener)
+	{
+	}
+
+	protected void onDetachedFromWindow()
+	{
+	}
+
+	public boolean post(final Runnable action)
+	{
+		return postDelayed(action, 0);
+	}
+
+	public synchronized boolean postDelayed(final Runnable action, final long delayMillis)
+	{
+		posted.add(action);
+		due.add(android.os.SystemClock.uptimeMillis() + Math.max(delayMillis, 0));
+		notifyAll();
+		return true;
+	}
+
+	public synchronized boolean removeCallbacks(final Runnable action)
+	{
+		for (int i = posted.size() - 1; i >= 0; i--)
+		{
+			if (posted.get(i) == action)
+			{
+				posted.remove(i);
+				due.remove(i);
+			}
+		}
+		return true;
+	}
+
+	/** @return Number of runnables waiting. Not part of the Android API. */
+	public synchronized int getPostedCount()
+	{
+		return posted.size();
+	}
+
+	/**
+	 * Run every posted runnable that is due by a time, earliest first, including ones they post that are due by then.
+	 * Not part of the Android API.
+	 *
+	 * @param uptimeMillis The time, as SystemClock.uptimeMillis().
+	 * @return Number of runnables run.
+	 */
+	public int runPosted(final long uptimeMillis)
+	{
+		int run = 0;
+
+		while (true)
+		{
+			final Runnable next;
+
+			synchronized (this)
+			{
+				int earliest = -1;
+				for (int i = 0; i < due.size(); i++)
+				{
+					if (due.get(i) <= uptimeMillis && (earliest < 0 || due.get(i) < due.get(earliest)))
+					{
+						earliest = i;
+					}
+				}
+
+				if (earliest < 0)
+				{
+					return run;
+				}
+
+				next = posted.remove(earliest);
+				due.remove(earliest);
+			}
+
+			next.run();
+			run++;
+		}
+	}
+}
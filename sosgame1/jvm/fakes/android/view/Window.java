@@ -0,0 +1,7 @@
+package android.view;
+
+/** A fake of android.view.Window. */
+public class Window
+{
+	public static final int FEATURE_NO_TITLE = 1;
+}
@@ -0,0 +1,12 @@
+package android.widget;
+
+import android.content.Context;
+
+/** A fake of android.widget.Button. */
+public class Button extends TextView
+{
+	public Button(final Context context)
+	{
+		super(context);
+	}
+}
@@ -0,0 +1,17 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+/** A fake of android.widget.RelativeLayout. */
+public class RelativeLayout extends View
+{
+	public RelativeLayout(final Context context)
+	{
+		super(context);
+	}
+
+	public void addView(final View child)
+	{
+	}
+}
@@ -0,0 +1,17 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+/** A fake of android.widget.TextView. */
+public class TextView extends View
+{
+	public TextView(final Context context)
+	{
+		super(context);
+	}
+
+	public void setText(final CharSequence text)
+	{
+	}
+}
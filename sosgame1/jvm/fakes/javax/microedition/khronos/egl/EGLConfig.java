@@ -0,0 +1,6 @@
+package javax.microedition.khronos.egl;
+
+/** A fake of javax.microedition.khronos.egl.EGLConfig. */
+public abstract class EGLConfig
+{
+}
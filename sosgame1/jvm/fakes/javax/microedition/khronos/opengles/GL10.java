@@ -0,0 +1,6 @@
+package javax.microedition.khronos.opengles;
+
+/** A fake of javax.microedition.khronos.opengles.GL10. */
+public interface GL10
+{
+}
@@ -0,0 +1,21 @@
+package com.example.sosgame1;
+
+/** Assertions for the plain-JVM checks. They throw whether or not the JVM runs with -ea. */
+final class Check
+{
+	private Check()
+	{
+	}
+
+	/**
+	 * @param condition Must hold.
+	 * @param message Says what went wrong if it does not.
+	 */
+	static void that(final boolean condition, final String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.sosgame1;
+
+import java.lang.management.ManagementFactory;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+/**
+ * Checks that drawing a frame and picking a tile allocate nothing, so a game never makes the garbage collector pause
+ * the GL or UI thread. Runs the renderer against the fake GLES20 with tiles flipping, publishes a scene and picks a
+ * few tiles each frame, and fails if the thread's allocated byte count grows over the measured frames.
+ * <p>
+ * Needs a HotSpot-style JVM, whose ThreadMXBean counts the bytes each thread allocates.
+ * <p>
+ * Usage: FrameAllocationCheck [frames]
+ */
+public class FrameAllocationCheck
+{
+	/** Long enough for the JIT to finish compiling the frame path, which costs a few allocations on this thread. */
+	private static final int WARM_UP_FRAMES = 20000;
+
+	/** Touches per frame, more than a finger ever makes. */
+	private static final int TOUCHES = 8;
+
+	/** Long enough that the flips never end during the run. */
+	private static final long FLIP_MILLIS = 1000000;
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		final com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+
+		Check.that(threads.isThreadAllocatedMemorySupported(), "this JVM cannot count allocated bytes");
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		// Reading the counter may itself allocate; measure that so it is not blamed on the frames.
+		final long overheadStart = threads.getThreadAllocatedBytes(thread);
+		final long overhead = threads.getThreadAllocatedBytes(thread) - overheadStart;
+
+		run("5x5", new MyGLRenderer(new Context()), frames, threads, thread, overhead);
+		run("64x64", new MyGLRenderer(new Context(), 64, 64), frames, threads, thread, overhead);
+	}
+
+	private static void run(final String name, final MyGLRenderer renderer, final int frames,
+			final com.sun.management.ThreadMXBean threads, final long thread, final long overhead)
+	{
+		final int width = 480;
+		final int height = 800;
+		renderer.onSurfaceCreated(null, null);
+		renderer.onSurfaceChanged(null, width, height);
+
+		// Flip every other tile of the first row, the way a move does.
+		final long now = SystemClock.uptimeMillis();
+		for (int tile = 0; tile < Math.min(renderer.mTiles.count, 10); tile += 2)
+		{
+			renderer.mAnimator.animate(tile, TileAnimator.TRACK_Z, now, FLIP_MILLIS, TileAnimator.EASE_IN_OUT, null,
+					0, 1, 1, 0);
+			renderer.mAnimator.animate(tile, TileAnimator.TRACK_Y_ROTATION, now, FLIP_MILLIS,
+					TileAnimator.EASE_IN_OUT, null, 0, 0, 180, 180);
+		}
+		renderer.mScene.publish();
+
+		frame(renderer, WARM_UP_FRAMES, width, height);
+
+		final long start = threads.getThreadAllocatedBytes(thread);
+		final int hits = frame(renderer, frames, width, height);
+		final long allocated = threads.getThreadAllocatedBytes(thread) - start - overhead;
+
+		System.out.println(name + ": " + frames + " frames, " + frames * TOUCHES + " picks (" + hits + " hits), "
+				+ allocated + " bytes allocated");
+		Check.that(hits > 0, name + ": no touch hit a tile");
+		Check.that(allocated <= 0, name + ": " + allocated + " bytes allocated over " + frames + " frames");
+	}
+
+	/**
+	 * Publish, draw and pick for a number of frames.
+	 *
+	 * @return Number of picks that hit a tile.
+	 */
+	private static int frame(final MyGLRenderer renderer, final int frames, final int width, final int height)
+	{
+		int hits = 0;
+
+		for (int i = 0; i < frames; i++)
+		{
+			renderer.mScene.publish();
+			renderer.onDrawFrame(null);
+
+			for (int touch = 0; touch < TOUCHES; touch++)
+			{
+				final float x = (i * 7 + touch * 61) % width;
+				final float y = (i * 13 + touch * 97) % height;
+				hits += renderer.mPicker.pick(x, y) != TilePicker.NONE ? 1 : 0;
+			}
+		}
+
+		return hits;
+	}
+}
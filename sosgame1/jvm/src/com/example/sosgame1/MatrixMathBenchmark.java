@@ -0,0 +1,158 @@
+package com.example.sosgame1;
+
+import android.opengl.Matrix;
+
+/**
+ * Times MatrixMath against the android.opengl.Matrix calls it replaced, on the work the renderer does: building a
+ * tile's model matrix and its MV and MVP, multiplying, and inverting. Each case runs a few rounds after a warm-up and
+ * reports the best, in nanoseconds per operation.
+ * <p>
+ * On a device multiplyMM() is native and pays a JNI call each time; the port used here is plain Java, so this
+ * understates what the affine paths save there.
+ * <p>
+ * Usage: MatrixMathBenchmark [operations per round]
+ */
+public class MatrixMathBenchmark
+{
+	private static final int ROUNDS = 7;
+
+	private final float[] view = new float[16];
+	private final float[] projection = new float[16];
+	private final float[] model = new float[16];
+	private final float[] mv = new float[16];
+	private final float[] mvp = new float[16];
+
+	/** Keeps the JIT from dropping the work. */
+	private float sink = 0;
+
+	public static void main(final String[] args)
+	{
+		final int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		new MatrixMathBenchmark().run(operations);
+	}
+
+	private void run(final int operations)
+	{
+		MatrixMath.setLookAt(view, 0, 0, -0.5f, 0, 0, -5, 0, 1, 0);
+		MatrixMath.frustum(projection, -1.2f, 1.2f, -2.2f, 2.2f, 1, 10);
+
+		for (int i = 0; i < 3; i++)
+		{
+			android(operations / 10);
+			matrixMath(operations / 10);
+		}
+
+		report("tile MVP, Matrix (translateM, rotateM x2, scaleM, multiplyMM x2)", operations, new Runnable()
+		{
+			public void run()
+			{
+				android(operations);
+			}
+		});
+		report("tile MVP, MatrixMath (rotateY/Z, multiplyAffine, multiplyProjectiveAffine)", operations,
+				new Runnable()
+				{
+					public void run()
+					{
+						matrixMath(operations);
+					}
+				});
+		report("Matrix.multiplyMM", operations, new Runnable()
+		{
+			public void run()
+			{
+				for (int i = 0; i < operations; i++)
+				{
+					view[12] = i;
+					Matrix.multiplyMM(mv, 0, view, 0, model, 0);
+					sink += mv[12];
+				}
+			}
+		});
+		report("MatrixMath.multiplyAffine", operations, new Runnable()
+		{
+			public void run()
+			{
+				for (int i = 0; i < operations; i++)
+				{
+					view[12] = i;
+					MatrixMath.multiplyAffine(mv, view, model);
+					sink += mv[12];
+				}
+			}
+		});
+		report("Matrix.invertM", operations, new Runnable()
+		{
+			public void run()
+			{
+				for (int i = 0; i < operations; i++)
+				{
+					view[12] = i;
+					Matrix.invertM(mv, 0, view, 0);
+					sink += mv[12];
+				}
+			}
+		});
+		report("MatrixMath.invertAffine", operations, new Runnable()
+		{
+			public void run()
+			{
+				for (int i = 0; i < operations; i++)
+				{
+					view[12] = i;
+					MatrixMath.invertAffine(mv, view);
+					sink += mv[12];
+				}
+			}
+		});
+
+		if (sink == 42)
+		{
+			System.out.println();
+		}
+	}
+
+	private void android(final int tiles)
+	{
+		for (int i = 0; i < tiles; i++)
+		{
+			Matrix.setIdentityM(model, 0);
+			Matrix.translateM(model, 0, i & 63, i >> 6 & 63, -5);
+			Matrix.rotateM(model, 0, i & 255, 0, 1, 0);
+			Matrix.rotateM(model, 0, i & 127, 0, 0, 1);
+			Matrix.scaleM(model, 0, 0.9f, 0.9f, 0.25f);
+			Matrix.multiplyMM(mv, 0, view, 0, model, 0);
+			Matrix.multiplyMM(mvp, 0, projection, 0, mv, 0);
+			sink += mvp[12];
+		}
+	}
+
+	private void matrixMath(final int tiles)
+	{
+		for (int i = 0; i < tiles; i++)
+		{
+			MatrixMath.setIdentity(model);
+			MatrixMath.translate(model, i & 63, i >> 6 & 63, -5);
+			MatrixMath.rotateY(model, i & 255);
+			MatrixMath.rotateZ(model, i & 127);
+			MatrixMath.scale(model, 0.9f, 0.9f, 0.25f);
+			MatrixMath.multiplyAffine(mv, view, model);
+			MatrixMath.multiplyProjectiveAffine(mvp, projection, mv);
+			sink += mvp[12];
+		}
+	}
+
+	private static void report(final String name, final int operations, final Runnable work)
+	{
+		long best = Long.MAX_VALUE;
+
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			final long start = System.nanoTime();
+			work.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		System.out.println(String.format("%-76s %7.1f ns", name, (double) best / operations));
+	}
+}
@@ -0,0 +1,227 @@
+package com.example.sosgame1;
+
+import java.util.Random;
+
+import android.opengl.Matrix;
+
+/**
+ * Checks MatrixMath against general 4x4 routines on random matrices: the affine shortcuts multiplyAffine(),
+ * multiplyProjectiveAffine() and invertAffine() against a plain 4x4 product and android.opengl.Matrix.invertM(), and
+ * every other method against the android.opengl.Matrix call it replaced, including the whole per-tile chain.
+ */
+public class MatrixMathCheck
+{
+	private static final int ROUNDS = 100000;
+
+	/** Allowed difference, relative to the larger of 1 and the expected value. */
+	private static final float TOLERANCE = 1e-4f;
+
+	private static final float[] IDENTITY = new float[16];
+
+	public static void main(final String[] args)
+	{
+		MatrixMath.setIdentity(IDENTITY);
+		final Random random = new Random(1);
+		final float[] a = new float[16];
+		final float[] b = new float[16];
+		final float[] p = new float[16];
+		final float[] expected = new float[16];
+		final float[] actual = new float[16];
+
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			randomAffine(random, a);
+			randomAffine(random, b);
+			randomProjection(random, p);
+			MatrixMath.multiplyProjectiveAffine(p, p, b);
+
+			multiply(expected, a, b);
+			MatrixMath.multiplyAffine(actual, a, b);
+			check("multiplyAffine", expected, actual);
+			System.arraycopy(a, 0, actual, 0, 16);
+			MatrixMath.multiplyAffine(actual, actual, b);
+			check("multiplyAffine into a", expected, actual);
+			System.arraycopy(b, 0, actual, 0, 16);
+			MatrixMath.multiplyAffine(actual, a, actual);
+			check("multiplyAffine into b", expected, actual);
+
+			multiply(expected, p, a);
+			MatrixMath.multiplyProjectiveAffine(actual, p, a);
+			check("multiplyProjectiveAffine", expected, actual);
+			System.arraycopy(a, 0, actual, 0, 16);
+			MatrixMath.multiplyProjectiveAffine(actual, p, actual);
+			check("multiplyProjectiveAffine into a", expected, actual);
+			Matrix.multiplyMM(actual, 0, p, 0, a, 0);
+			check("multiplyMM", expected, actual);
+
+			Check.that(Matrix.invertM(expected, 0, a, 0), "invertM failed on an affine matrix");
+			Check.that(MatrixMath.invertAffine(actual, a), "invertAffine failed");
+			check("invertAffine", expected, actual);
+			multiply(expected, a, actual);
+			check("a * invertAffine(a)", IDENTITY, expected);
+
+			Check.that(Matrix.invertM(expected, 0, p, 0), "invertM failed on a projection");
+			Check.that(MatrixMath.invert(actual, p), "invert failed");
+			check("invert", expected, actual);
+			multiply(expected, p, actual);
+			check("p * invert(p)", IDENTITY, expected);
+
+			final float angle = random.nextFloat() * 720 - 360;
+			checkRotation("rotateX", a, angle, 1, 0, 0, expected, actual);
+			checkRotation("rotateY", a, angle, 0, 1, 0, expected, actual);
+			checkRotation("rotateZ", a, angle, 0, 0, 1, expected, actual);
+			checkRotation("rotate", a, angle, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() + 0.1f, expected, actual);
+
+			final float x = random.nextFloat() * 10 - 5;
+			final float y = random.nextFloat() * 10 - 5;
+			final float z = random.nextFloat() * 10 - 5;
+			System.arraycopy(a, 0, expected, 0, 16);
+			Matrix.translateM(expected, 0, x, y, z);
+			System.arraycopy(a, 0, actual, 0, 16);
+			MatrixMath.translate(actual, x, y, z);
+			check("translate", expected, actual);
+
+			System.arraycopy(a, 0, expected, 0, 16);
+			Matrix.scaleM(expected, 0, x, y, z);
+			System.arraycopy(a, 0, actual, 0, 16);
+			MatrixMath.scale(actual, x, y, z);
+			check("scale", expected, actual);
+
+			final float[] vector = {x, y, z, 1};
+			final float[] expectedVector = new float[4];
+			final float[] actualVector = new float[4];
+			Matrix.multiplyMV(expectedVector, 0, p, 0, vector, 0);
+			MatrixMath.transform(actualVector, p, x, y, z, 1);
+			check("transform", expectedVector, actualVector);
+
+			checkTileChain(random, p, expected, actual);
+		}
+
+		checkCamera(expected, actual);
+		System.out.println(ROUNDS + " rounds: MatrixMath matches the general routines within " + TOLERANCE);
+	}
+
+	/** The renderer's per-tile matrices, built the old way and the new way. */
+	private static void checkTileChain(final Random random, final float[] projection, final float[] expected,
+			final float[] actual)
+	{
+		final float[] view = new float[16];
+		final float[] model = new float[16];
+		final float[] mv = new float[16];
+		randomAffine(random, view);
+		final float x = random.nextFloat() * 100 - 50;
+		final float y = random.nextFloat() * 100 - 50;
+		final float z = random.nextFloat() - 5;
+		final float yRotation = random.nextFloat() * 360;
+		final float zRotation = random.nextFloat() * 360;
+
+		Matrix.setIdentityM(model, 0);
+		Matrix.translateM(model, 0, x, y, z);
+		Matrix.rotateM(model, 0, yRotation, 0, 1, 0);
+		Matrix.rotateM(model, 0, zRotation, 0, 0, 1);
+		Matrix.scaleM(model, 0, 0.9f, 0.9f, 0.25f);
+		Matrix.multiplyMM(mv, 0, view, 0, model, 0);
+		Matrix.multiplyMM(expected, 0, projection, 0, mv, 0);
+
+		MatrixMath.setIdentity(model);
+		MatrixMath.translate(model, x, y, z);
+		MatrixMath.rotateY(model, yRotation);
+		MatrixMath.rotateZ(model, zRotation);
+		MatrixMath.scale(model, 0.9f, 0.9f, 0.25f);
+		MatrixMath.multiplyAffine(mv, view, model);
+		MatrixMath.multiplyProjectiveAffine(actual, projection, mv);
+		check("tile MVP", expected, actual);
+	}
+
+	/** The renderer's camera setup. */
+	private static void checkCamera(final float[] expected, final float[] actual)
+	{
+		Matrix.frustumM(expected, 0, -1.2f, 1.2f, -2.2f, 2.2f, 1, 10);
+		MatrixMath.frustum(actual, -1.2f, 1.2f, -2.2f, 2.2f, 1, 10);
+		check("frustum", expected, actual);
+
+		Matrix.setLookAtM(expected, 0, 0, 0, -0.5f, 0, 0, -5, 0, 1, 0);
+		MatrixMath.setLookAt(actual, 0, 0, -0.5f, 0, 0, -5, 0, 1, 0);
+		check("setLookAt", expected, actual);
+
+		Matrix.setLookAtM(expected, 0, 3, -2, 4, 0.5f, 1, -5, 0.2f, 1, 0.1f);
+		MatrixMath.setLookAt(actual, 3, -2, 4, 0.5f, 1, -5, 0.2f, 1, 0.1f);
+		check("setLookAt off axis", expected, actual);
+	}
+
+	private static void checkRotation(final String name, final float[] m, final float angle, final float x,
+			final float y, final float z, final float[] expected, final float[] actual)
+	{
+		System.arraycopy(m, 0, expected, 0, 16);
+		Matrix.rotateM(expected, 0, angle, x, y, z);
+		System.arraycopy(m, 0, actual, 0, 16);
+
+		if (name.equals("rotateX"))
+		{
+			MatrixMath.rotateX(actual, angle);
+		}
+		else if (name.equals("rotateY"))
+		{
+			MatrixMath.rotateY(actual, angle);
+		}
+		else if (name.equals("rotateZ"))
+		{
+			MatrixMath.rotateZ(actual, angle);
+		}
+		else
+		{
+			MatrixMath.rotate(actual, angle, x, y, z);
+		}
+
+		check(name, expected, actual);
+	}
+
+	/** result = a * b, the textbook way. result may not be a or b. */
+	private static void multiply(final float[] result, final float[] a, final float[] b)
+	{
+		for (int column = 0; column < 4; column++)
+		{
+			for (int row = 0; row < 4; row++)
+			{
+				float sum = 0;
+				for (int k = 0; k < 4; k++)
+				{
+					sum += a[k * 4 + row] * b[column * 4 + k];
+				}
+				result[column * 4 + row] = sum;
+			}
+		}
+	}
+
+	/** A random, well conditioned affine matrix: rotation, scale between 0.5 and 2, and translation. */
+	private static void randomAffine(final Random random, final float[] m)
+	{
+		MatrixMath.setIdentity(m);
+		MatrixMath.translate(m, random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10,
+				random.nextFloat() * 20 - 10);
+		MatrixMath.rotate(m, random.nextFloat() * 360, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+				random.nextFloat() + 0.1f);
+		MatrixMath.scale(m, 0.5f + random.nextFloat() * 1.5f, 0.5f + random.nextFloat() * 1.5f,
+				0.5f + random.nextFloat() * 1.5f);
+	}
+
+	/** A random perspective projection like the renderer's. */
+	private static void randomProjection(final Random random, final float[] m)
+	{
+		final float width = 0.5f + random.nextFloat() * 3;
+		final float height = 0.5f + random.nextFloat() * 3;
+		final float near = 0.5f + random.nextFloat();
+		MatrixMath.frustum(m, -width, width, -height, height, near, near + 1 + random.nextFloat() * 20);
+	}
+
+	private static void check(final String name, final float[] expected, final float[] actual)
+	{
+		for (int i = 0; i < expected.length; i++)
+		{
+			final float allowed = TOLERANCE * Math.max(1, Math.abs(expected[i]));
+			Check.that(Math.abs(expected[i] - actual[i]) <= allowed, name + ": element " + i + " is " + actual[i]
+					+ ", expected " + expected[i]);
+		}
+	}
+}
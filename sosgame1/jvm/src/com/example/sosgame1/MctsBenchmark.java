@@ -0,0 +1,58 @@
+package com.example.sosgame1;
+
+/**
+ * Measures how MctsSearch playouts per second scale with the thread count, in both modes, from the empty board of a
+ * few sizes. Each case searches for a fixed time after a warm-up and reports the best of a few rounds, in total and
+ * per thread, and the speed-up over one thread. Scaling can only be judged up to the number of cores, which is
+ * printed first.
+ * <p>
+ * Usage: MctsBenchmark [milliseconds per round]
+ */
+public class MctsBenchmark
+{
+	private static final int[] THREADS = {1, 2, 4, 8};
+	private static final int[][] SIZES = {{8, 8}, {16, 16}, {64, 64}};
+	private static final int ROUNDS = 3;
+	private static final int NODES = 1 << 20;
+
+	public static void main(final String[] args)
+	{
+		final long roundMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+		System.out.println(Runtime.getRuntime().availableProcessors() + " cores");
+
+		for (final int[] size : SIZES)
+		{
+			final SosBoard board = new SosBoard(size[0], size[1]);
+
+			for (final int mode : new int[] {MctsSearch.TREE_PARALLEL, MctsSearch.ROOT_PARALLEL})
+			{
+				long single = 0;
+
+				for (final int threads : THREADS)
+				{
+					// ROOT_PARALLEL gives every worker its own pool.
+					final int nodes = mode == MctsSearch.TREE_PARALLEL ? NODES : NODES / threads;
+					final MctsSearch search = new MctsSearch(threads, mode, nodes);
+					search.search(board, roundMillis, 0);
+
+					long best = 0;
+					for (int round = 0; round < ROUNDS; round++)
+					{
+						search.search(board, roundMillis, 0);
+						best = Math.max(best, search.getPlayoutsPerSecond());
+					}
+					search.shutdown();
+
+					if (threads == 1)
+					{
+						single = best;
+					}
+
+					System.out.println(String.format("%dx%d %s, %d threads: %9d playouts/s, %9d per thread, %.2fx",
+							size[0], size[1], mode == MctsSearch.TREE_PARALLEL ? "tree" : "root", threads, best,
+							best / threads, (double) best / single));
+				}
+			}
+		}
+	}
+}
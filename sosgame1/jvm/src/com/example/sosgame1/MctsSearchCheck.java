@@ -0,0 +1,119 @@
+package com.example.sosgame1;
+
+/**
+ * Checks that interrupting the thread running MctsSearch.search() stops the search cleanly: it returns promptly with
+ * the interrupt flag set, and no worker is left running, which the next search would otherwise share its boards,
+ * trees and playout counts with. Covers both modes, several thread counts, and a thread interrupted before it calls
+ * search(), when the workers may not have started.
+ */
+public class MctsSearchCheck
+{
+	private static final int[] THREADS = {1, 2, 4};
+	private static final int[] MODES = {MctsSearch.TREE_PARALLEL, MctsSearch.ROOT_PARALLEL};
+	private static final int ROUNDS = 20;
+
+	/** A budgeted search after the interrupted one; its playout count must come out exact. */
+	private static final int PLAYOUTS = 2000;
+
+	/** An interrupted search has to return within this. */
+	private static final long RETURN_MILLIS = 1000;
+
+	public static void main(final String[] args) throws InterruptedException
+	{
+		final SosBoard board = new SosBoard(8, 8);
+		board.play(0, SosBoard.S);
+		board.play(2, SosBoard.S);
+		int searches = 0;
+
+		for (final int mode : MODES)
+		{
+			for (final int threads : THREADS)
+			{
+				final MctsSearch search = new MctsSearch(threads, mode, 1 << 18);
+
+				for (int round = 0; round < ROUNDS; round++)
+				{
+					// Every other round the thread is interrupted before it even calls search().
+					final boolean early = round % 2 == 1;
+					final String where = "mode " + mode + ", " + threads + " threads, round " + round;
+					final long[] result = run(search, board, early);
+
+					Check.that(result[0] == 1, where + ": search() returned without the interrupt flag");
+					Check.that(result[1] <= RETURN_MILLIS, where + ": search() took " + result[1]
+							+ " ms to return after the interrupt");
+
+					final int move = search.search(board, 0, PLAYOUTS);
+					final long expected = (PLAYOUTS + threads - 1) / threads * threads;
+					Check.that(search.getPlayouts() == expected, where + ": the next search ran "
+							+ search.getPlayouts() + " playouts instead of " + expected
+							+ ", so a worker of the interrupted one was still running");
+					Check.that(move != AlphaBetaSearch.NO_MOVE && board.isEmpty(AlphaBetaSearch.getMoveCell(move)),
+							where + ": the next search returned an illegal move");
+					searches += 2;
+				}
+
+				search.shutdown();
+			}
+		}
+
+		System.out.println(searches + " searches: interrupted ones returned promptly with the flag set, and left no "
+				+ "worker running");
+	}
+
+	/**
+	 * Run an unbounded search on another thread and interrupt it.
+	 *
+	 * @return Whether the interrupt flag was set when search() returned (1 or 0), and how many milliseconds it took
+	 * to return after the interrupt.
+	 */
+	private static long[] run(final MctsSearch search, final SosBoard board, final boolean early)
+			throws InterruptedException
+	{
+		final long[] result = new long[2];
+		final Object started = new Object();
+		final long[] interruptedAt = new long[1];
+
+		final Thread thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				if (early)
+				{
+					Thread.currentThread().interrupt();
+					interruptedAt[0] = System.nanoTime();
+				}
+				else
+				{
+					synchronized (started)
+					{
+						started.notify();
+					}
+				}
+
+				search.search(board, 60000, 0);
+				result[0] = Thread.currentThread().isInterrupted() ? 1 : 0;
+				result[1] = (System.nanoTime() - interruptedAt[0]) / 1000000;
+			}
+		}, "searcher");
+
+		if (early)
+		{
+			thread.start();
+		}
+		else
+		{
+			synchronized (started)
+			{
+				thread.start();
+				started.wait();
+			}
+			Thread.sleep(20);
+			interruptedAt[0] = System.nanoTime();
+			thread.interrupt();
+		}
+
+		thread.join(RETURN_MILLIS * 10);
+		Check.that(!thread.isAlive(), "search() did not return after the interrupt");
+		return result;
+	}
+}
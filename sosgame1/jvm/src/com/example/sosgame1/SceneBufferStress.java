@@ -0,0 +1,280 @@
+package com.example.sosgame1;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers a SceneBuffer the way the app uses it, only harder: several threads produce changes, the single writer
+ * applies them to its working scene and publishes after each batch, and a reader acquires and samples scenes as fast
+ * as it can, checking that every scene it sees is whole.
+ * <p>
+ * Every change sets all fields of a tile to the number of the publish it goes out with, and tile 0 always carries
+ * that number. Some tiles are animated instead, with animations that hold the same number on every track. A torn
+ * scene would then show a tile whose fields disagree, a tile from a later publish than tile 0, a checksum or strike
+ * line count that does not match the publish, or a chunk version going backwards.
+ * <p>
+ * Usage: SceneBufferStress [millis]
+ */
+public class SceneBufferStress
+{
+	private static final int COLUMNS = 200;
+	private static final int ROWS = 200;
+	private static final int TILES = COLUMNS * ROWS;
+
+	private static final int PRODUCERS = 4;
+	private static final int MAX_QUEUED = 10000;
+	private static final int MAX_BATCH = 64;
+	private static final int MAX_PUBLISHES = 2000000;
+
+	/** Most tiles animating at once, already far more than a game ever has. */
+	private static final int MAX_ANIMATING = 64;
+
+	/** Long enough that no animation ends during the run; its value never changes anyway. */
+	private static final long ANIMATION_MILLIS = 1000000000L;
+
+	private final SceneBuffer buffer = new SceneBuffer(COLUMNS, ROWS);
+	private final ConcurrentLinkedQueue<int[]> queue = new ConcurrentLinkedQueue<int[]>();
+	private final AtomicBoolean stop = new AtomicBoolean();
+
+	/** Sum of all tiles' z, and number of strike lines, as of each publish. Written before the publish. */
+	private final long[] checksums = new long[MAX_PUBLISHES + 1];
+	private final int[] lineCounts = new int[MAX_PUBLISHES + 1];
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private volatile int publishes = 0;
+
+	public static void main(final String[] args) throws InterruptedException
+	{
+		final long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+		new SceneBufferStress().run(millis);
+	}
+
+	private void run(final long millis) throws InterruptedException
+	{
+		final Thread[] threads = new Thread[PRODUCERS + 2];
+
+		for (int i = 0; i < PRODUCERS; i++)
+		{
+			final int seed = i;
+			threads[i] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					produce(new Random(seed));
+				}
+			};
+		}
+
+		threads[PRODUCERS] = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				write();
+			}
+		};
+
+		threads[PRODUCERS + 1] = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				read();
+			}
+		};
+
+		for (final Thread thread : threads)
+		{
+			thread.start();
+		}
+
+		Thread.sleep(millis);
+		stop.set(true);
+
+		for (final Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		System.out.println(PRODUCERS + " producers, " + batches.get() + " batches, " + publishes + " publishes, "
+				+ buffer.getAcquiredCount() + " acquired, " + frames.get() + " frames checked, " + errors.get()
+				+ " errors");
+
+		Check.that(errors.get() == 0, errors.get() + " inconsistent scenes");
+		Check.that(publishes > 0 && frames.get() > 0, "nothing was published or read");
+	}
+
+	/** Hand batches of tiles to change to the writer. Tile 0 is left to the writer. */
+	private void produce(final Random random)
+	{
+		while (!stop.get())
+		{
+			if (queue.size() > MAX_QUEUED)
+			{
+				Thread.yield();
+				continue;
+			}
+
+			final int[] tiles = new int[1 + random.nextInt(MAX_BATCH)];
+			for (int i = 0; i < tiles.length; i++)
+			{
+				tiles[i] = 1 + random.nextInt(TILES - 1);
+			}
+
+			queue.add(tiles);
+			batches.incrementAndGet();
+		}
+	}
+
+	/** Apply the batches to the working scene, publishing after each. The only thread that writes the scene. */
+	private void write()
+	{
+		final SceneState scene = buffer.edit();
+		final TileStore tiles = scene.tiles;
+		final TileAnimator animations = scene.animations;
+		final Random random = new Random(99);
+		long checksum = 0;
+		int publish = 0;
+
+		while (!stop.get() && publish < MAX_PUBLISHES)
+		{
+			final int[] batch = queue.poll();
+
+			if (batch == null)
+			{
+				Thread.yield();
+				continue;
+			}
+
+			publish++;
+
+			for (final int tile : batch)
+			{
+				checksum += set(tiles, animations, tile, publish, random.nextInt(8) == 0
+						&& tiles.getAnimatingCount() < MAX_ANIMATING);
+			}
+			checksum += set(tiles, animations, 0, publish, false);
+
+			scene.clearStrikeLines();
+			for (int i = 0; i < publish % 7; i++)
+			{
+				scene.addStrikeLine(publish, publish, publish, publish, publish);
+			}
+
+			checksums[publish] = checksum;
+			lineCounts[publish] = publish % 7;
+
+			buffer.publish();
+			publishes = publish;
+		}
+	}
+
+	/**
+	 * Set every field of a tile to a publish number, stopping any animation of the tile, and maybe animate it.
+	 *
+	 * @return The change in the sum of all tiles' z.
+	 */
+	private static long set(final TileStore tiles, final TileAnimator animations, final int tile, final int publish,
+			final boolean animate)
+	{
+		final long change = publish - (long) tiles.getZ(tile);
+
+		animations.cancel(tile);
+		tiles.setZ(tile, publish);
+		tiles.setYRotation(tile, publish);
+		tiles.setZRotation(tile, -publish);
+		tiles.setLetter(tile, publish & 0x7f);
+
+		if (animate)
+		{
+			animations.animate(tile, TileAnimator.TRACK_Z, publish, ANIMATION_MILLIS, TileAnimator.LINEAR, null,
+					publish, publish);
+			animations.animate(tile, TileAnimator.TRACK_Y_ROTATION, publish, ANIMATION_MILLIS, TileAnimator.LINEAR,
+					null, publish, publish);
+			animations.animate(tile, TileAnimator.TRACK_Z_ROTATION, publish, ANIMATION_MILLIS, TileAnimator.LINEAR,
+					null, -publish, -publish);
+		}
+
+		return change;
+	}
+
+	/** Acquire and sample scenes like the GL thread does, and check each one. */
+	private void read()
+	{
+		final float[] matrix = new float[16];
+		final int[] versions = new int[buffer.edit().tiles.getChunkCount()];
+		int lastPublish = 0;
+
+		while (!stop.get())
+		{
+			final SceneState scene = buffer.acquire();
+			scene.animations.sample(System.nanoTime() / 1000000);
+			final TileStore tiles = scene.tiles;
+			final int publish = (int) tiles.getZ(0);
+
+			if (publish < lastPublish)
+			{
+				errors.incrementAndGet();
+			}
+			lastPublish = publish;
+
+			long checksum = 0;
+
+			for (int tile = 0; tile < TILES; tile++)
+			{
+				final float z = tiles.getZ(tile);
+
+				if (z != tiles.getYRotation(tile) || -z != tiles.getZRotation(tile)
+						|| ((int) z & 0x7f) != tiles.getLetter(tile) || z > publish)
+				{
+					errors.incrementAndGet();
+				}
+				checksum += (long) z;
+			}
+
+			if (publish > 0 && (checksum != checksums[publish]
+					|| scene.getStrikeLineCount() != lineCounts[publish]))
+			{
+				errors.incrementAndGet();
+			}
+
+			for (int i = 0; i < scene.getStrikeLineCount(); i++)
+			{
+				scene.getStrikeLineMatrix(i, matrix);
+				if (matrix[12] != publish)
+				{
+					errors.incrementAndGet();
+				}
+			}
+
+			for (int chunk = 0; chunk < versions.length; chunk++)
+			{
+				if (tiles.getChunkVersion(chunk) < versions[chunk])
+				{
+					errors.incrementAndGet();
+				}
+				versions[chunk] = tiles.getChunkVersion(chunk);
+			}
+
+			if (scene.animations.getCount() != 3 * tiles.getAnimatingCount())
+			{
+				errors.incrementAndGet();
+			}
+
+			for (int i = 0; i < tiles.getAnimatingCount(); i++)
+			{
+				if (!tiles.isAnimating(tiles.getAnimatingTile(i)))
+				{
+					errors.incrementAndGet();
+				}
+			}
+
+			frames.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.sosgame1;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that SearchScheduler delivers the AI's move within its 100 ms budget while the machine is busy. Busy threads
+ * at normal priority compete with the low-priority search thread throughout; before each request the scheduler
+ * ponders, so think() also has to stop a running search. The moves are delivered through a fake UI thread, an
+ * executor standing in for View.post(), and timed from think() to the listener call.
+ * <p>
+ * Usage: SearchSchedulerCheck [requests per board]
+ */
+public class SearchSchedulerCheck
+{
+	private static final long BUDGET_MILLIS = 100;
+
+	private static final int[][] BOARDS = {{5, 5}, {8, 8}, {16, 16}};
+
+	/** Untimed requests on each board first, so that the JIT is not compiling on the one core meanwhile. */
+	private static final int WARM_UP = 5;
+
+	/** Keeps the busy threads from being optimized away. */
+	private static final AtomicLong sink = new AtomicLong();
+
+	private static volatile boolean loaded = true;
+
+	public static void main(final String[] args) throws InterruptedException
+	{
+		final int requests = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		final int busyThreads = Runtime.getRuntime().availableProcessors() + 1;
+		final Thread[] load = startLoad(busyThreads);
+
+		// A daemon, so that a failed check ends the JVM.
+		final ExecutorService uiThread = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(final Runnable runnable)
+			{
+				final Thread thread = new Thread(runnable, "ui");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final SearchScheduler scheduler = new SearchScheduler(uiThread, new AlphaBetaSearch(16));
+		long worst = 0;
+
+		for (final int[] size : BOARDS)
+		{
+			SosBoard board = new SosBoard(size[0], size[1]);
+
+			for (int i = -WARM_UP; i < requests; i++)
+			{
+				scheduler.ponder(board);
+				Thread.sleep(20);
+
+				final Delivery delivery = new Delivery();
+				delivery.start = System.nanoTime();
+				scheduler.think(board, BUDGET_MILLIS, delivery);
+				final long millis = delivery.await(BUDGET_MILLIS * 20);
+				final String where = size[0] + "x" + size[1] + " board, request " + i;
+
+				Check.that(millis >= 0, where + ": no move was delivered");
+				Check.that(board.isEmpty(AlphaBetaSearch.getMoveCell(delivery.move)), where + ": illegal move");
+				Check.that(i < 0 || millis <= BUDGET_MILLIS, where + ": the move took " + millis + " ms, over the "
+						+ BUDGET_MILLIS + " ms budget");
+				worst = i < 0 ? worst : Math.max(worst, millis);
+
+				// The board changes between requests, as in a game.
+				board.play(AlphaBetaSearch.getMoveCell(delivery.move), AlphaBetaSearch.getMoveLetter(delivery.move));
+				if (board.getCellCount() - board.getMoveCount() < 2)
+				{
+					board = new SosBoard(size[0], size[1]);
+				}
+			}
+		}
+
+		loaded = false;
+		for (final Thread thread : load)
+		{
+			thread.join();
+		}
+		scheduler.shutdown();
+		uiThread.shutdown();
+		uiThread.awaitTermination(1, TimeUnit.SECONDS);
+
+		System.out.println(BOARDS.length * requests + " requests with " + busyThreads + " busy threads: every move "
+				+ "was delivered within " + BUDGET_MILLIS + " ms, the slowest in " + worst + " ms");
+	}
+
+	/** Threads that keep every core busy until loaded is cleared. */
+	private static Thread[] startLoad(final int count)
+	{
+		final Thread[] threads = new Thread[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			threads[i] = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					long x = System.nanoTime();
+					while (loaded)
+					{
+						for (int j = 0; j < 100000; j++)
+						{
+							x = x * 6364136223846793005L + 1442695040888963407L;
+						}
+					}
+					sink.addAndGet(x);
+				}
+			}, "load-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		return threads;
+	}
+
+	/** Records when the move arrived on the fake UI thread. */
+	private static class Delivery implements SearchScheduler.Listener
+	{
+		long start;
+		int move = AlphaBetaSearch.NO_MOVE;
+		private long millis = -1;
+
+		public synchronized void onMove(final int move)
+		{
+			millis = (System.nanoTime() - start) / 1000000;
+			this.move = move;
+			notifyAll();
+		}
+
+		/** @return Milliseconds from think() to onMove(), or -1 if nothing arrived within the timeout. */
+		synchronized long await(final long timeoutMillis) throws InterruptedException
+		{
+			final long end = System.currentTimeMillis() + timeoutMillis;
+			while (millis < 0 && System.currentTimeMillis() < end)
+			{
+				wait(Math.max(1, end - System.currentTimeMillis()));
+			}
+			return millis;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.sosgame1;
+
+import android.content.Context;
+import android.opengl.GLES20;
+
+/**
+ * Checks that ShaderProgram resolves every attribute and uniform location when it is built, agrees with what GL
+ * reports, and that drawing frames never asks GL for a location again. Runs the real shaders from res/raw against
+ * the fake GLES20.
+ */
+public class ShaderProgramCheck
+{
+	/** Every variable name the renderer resolves up front. */
+	private static final String[] UNIFORMS = {"u_MVPMatrix", "u_MVMatrix", "u_LightPos", "u_Texture", "u_PointSize"};
+	private static final String[] ATTRIBUTES = {"a_Position", "a_Color", "a_Normal", "a_TexCoordinate"};
+
+	private static final int FRAMES = 100;
+
+	public static void main(final String[] args)
+	{
+		GLES20.reset();
+
+		final Context context = new Context();
+		final MyGLRenderer renderer = new MyGLRenderer(context);
+		renderer.onSurfaceCreated(null, null);
+		renderer.onSurfaceChanged(null, 480, 800);
+
+		checkProgram("per_pixel", renderer.mProgram, ATTRIBUTES);
+		checkProgram("point", renderer.mPointProgram, new String[] {"a_Position"});
+		checkProgram("per_pixel_no_tex", renderer.noTexProgram, new String[] {"a_Position"});
+		checkProgram("tile_point", renderer.mTilePointProgram, new String[] {"a_Position", "a_Color",
+				"a_TexCoordinate"});
+
+		GLES20.resetCounters();
+
+		for (int i = 0; i < FRAMES; i++)
+		{
+			renderer.onDrawFrame(null);
+		}
+
+		Check.that(GLES20.getDrawCalls() > 0, "no draw calls in " + FRAMES + " frames");
+		Check.that(GLES20.getLocationQueries() == 0, GLES20.getLocationQueries() + " location queries in " + FRAMES
+				+ " frames");
+
+		System.out.println(FRAMES + " frames: " + GLES20.getDrawCalls() + " draw calls, "
+				+ GLES20.getProgramSwitches() + " program switches, " + GLES20.getUniformUploads()
+				+ " uniform uploads, 0 location queries");
+	}
+
+	/**
+	 * Check one program's cached locations against GL's.
+	 *
+	 * @param name The program, for messages.
+	 * @param program The program.
+	 * @param bound The attributes it was linked with, in binding order.
+	 */
+	private static void checkProgram(final String name, final ShaderProgram program, final String[] bound)
+	{
+		final int[] fields = {program.mvpMatrixUniform, program.mvMatrixUniform, program.lightPosUniform,
+				program.textureUniform, program.pointSizeUniform};
+
+		int active = 0;
+
+		for (int i = 0; i < UNIFORMS.length; i++)
+		{
+			final int expected = GLES20.glGetUniformLocation(program.programHandle, UNIFORMS[i]);
+			Check.that(program.getUniform(UNIFORMS[i]) == expected, name + ": " + UNIFORMS[i] + " cached as "
+					+ program.getUniform(UNIFORMS[i]) + ", GL says " + expected);
+			Check.that(fields[i] == expected, name + ": field for " + UNIFORMS[i] + " is " + fields[i]);
+			Check.that((expected == ShaderProgram.NOT_FOUND) == (program.getUniformVariable(UNIFORMS[i]) == null),
+					name + ": " + UNIFORMS[i] + " reflected inconsistently");
+			active += expected != ShaderProgram.NOT_FOUND ? 1 : 0;
+		}
+
+		final int[] attributeFields = {program.positionAttribute, program.colorAttribute, program.normalAttribute,
+				program.textureCoordinateAttribute};
+
+		for (int i = 0; i < ATTRIBUTES.length; i++)
+		{
+			final int expected = GLES20.glGetAttribLocation(program.programHandle, ATTRIBUTES[i]);
+			Check.that(program.getAttribute(ATTRIBUTES[i]) == expected, name + ": " + ATTRIBUTES[i] + " cached as "
+					+ program.getAttribute(ATTRIBUTES[i]) + ", GL says " + expected);
+			Check.that(attributeFields[i] == expected, name + ": field for " + ATTRIBUTES[i] + " is "
+					+ attributeFields[i]);
+		}
+
+		for (int i = 0; i < bound.length; i++)
+		{
+			Check.that(program.getAttribute(bound[i]) == i, name + ": " + bound[i] + " bound to " + i + " but at "
+					+ program.getAttribute(bound[i]));
+		}
+
+		Check.that(program.getUniform("u_NoSuchUniform") == ShaderProgram.NOT_FOUND, name
+				+ ": unknown uniform found");
+		Check.that(active > 0, name + ": no uniforms reflected");
+	}
+}
@@ -0,0 +1,196 @@
+package com.example.sosgame1;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks ShapeBuilder.generateIndexedData(): a flat-shaded cube goes from 36 vertices to 24, and on random triangle
+ * lists the unique vertices are exactly the distinct ones, in order of first use, and the indices rebuild the input.
+ */
+public class ShapeBuilderCheck
+{
+	private static final int RANDOM_SHAPES = 1000;
+
+	/** Size of the pool random vertices are drawn from, so that many repeat. */
+	private static final int POOL = 40;
+
+	public static void main(final String[] args)
+	{
+		checkCube();
+		checkRandom(new Random(7));
+		checkLimit();
+		System.out.println("Cube: 36 vertices -> 24 with normals, 8 without; " + RANDOM_SHAPES
+				+ " random shapes rebuilt exactly");
+	}
+
+	private static void checkCube()
+	{
+		final float[][] corners = {{-1, 1, 1}, {1, 1, 1}, {-1, -1, 1}, {1, -1, 1}, {-1, 1, -1}, {1, 1, -1},
+				{-1, -1, -1}, {1, -1, -1}};
+		final float[] positions = ShapeBuilder.generateCubeData(corners[0], corners[1], corners[2], corners[3],
+				corners[4], corners[5], corners[6], corners[7], 3);
+
+		// generateCubeData() emits front, right, back, left, top, bottom, 6 vertices each.
+		final float[][] faceNormals = {{0, 0, 1}, {1, 0, 0}, {0, 0, -1}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}};
+		final float[] normals = new float[positions.length];
+		for (int vertex = 0; vertex < 36; vertex++)
+		{
+			System.arraycopy(faceNormals[vertex / 6], 0, normals, vertex * 3, 3);
+		}
+
+		final ShapeBuilder.IndexedShape flat = ShapeBuilder.generateIndexedData(positions, null, normals, null);
+		Check.that(flat.vertexCount == 24, "flat-shaded cube has " + flat.vertexCount + " unique vertices, not 24");
+		Check.that(flat.indices.length == 36, "flat-shaded cube has " + flat.indices.length + " indices");
+		Check.that(flat.colors == null && flat.textureCoordinates == null, "missing attributes were filled in");
+		checkRebuilds(flat, positions, null, normals, null);
+
+		final ShapeBuilder.IndexedShape smooth = ShapeBuilder.generateIndexedData(positions, null, null, null);
+		Check.that(smooth.vertexCount == 8, "positions-only cube has " + smooth.vertexCount + " unique vertices");
+		checkRebuilds(smooth, positions, null, null, null);
+	}
+
+	private static void checkRandom(final Random random)
+	{
+		for (int shape = 0; shape < RANDOM_SHAPES; shape++)
+		{
+			final boolean hasColors = random.nextBoolean();
+			final boolean hasNormals = random.nextBoolean();
+			final boolean hasTextureCoordinates = random.nextBoolean();
+			final float[] poolPositions = randomFloats(random, POOL * 3);
+			final float[] poolColors = randomFloats(random, POOL * 4);
+			final float[] poolNormals = randomFloats(random, POOL * 3);
+			final float[] poolTextureCoordinates = randomFloats(random, POOL * 2);
+
+			// Attributes are drawn from the pool independently, so vertices may share a position but not a normal.
+			final int vertexCount = 3 * (1 + random.nextInt(50));
+			final float[] positions = new float[vertexCount * 3];
+			final float[] colors = hasColors ? new float[vertexCount * 4] : null;
+			final float[] normals = hasNormals ? new float[vertexCount * 3] : null;
+			final float[] textureCoordinates = hasTextureCoordinates ? new float[vertexCount * 2] : null;
+
+			for (int vertex = 0; vertex < vertexCount; vertex++)
+			{
+				final int from = random.nextInt(POOL);
+				final int other = random.nextInt(4) == 0 ? random.nextInt(POOL) : from;
+				System.arraycopy(poolPositions, from * 3, positions, vertex * 3, 3);
+				copy(poolColors, other, colors, vertex, 4);
+				copy(poolNormals, from, normals, vertex, 3);
+				copy(poolTextureCoordinates, from, textureCoordinates, vertex, 2);
+			}
+
+			final ShapeBuilder.IndexedShape indexed = ShapeBuilder.generateIndexedData(positions, colors, normals,
+					textureCoordinates);
+			checkRebuilds(indexed, positions, colors, normals, textureCoordinates);
+
+			// Naively count the distinct vertices and check their order of first use.
+			int distinct = 0;
+			for (int vertex = 0; vertex < vertexCount; vertex++)
+			{
+				boolean seen = false;
+				for (int earlier = 0; earlier < vertex && !seen; earlier++)
+				{
+					seen = sameVertex(vertex, earlier, positions, colors, normals, textureCoordinates);
+				}
+
+				if (!seen)
+				{
+					Check.that(indexed.indices[vertex] == distinct, "shape " + shape + ": vertex " + vertex
+							+ " is new but got index " + indexed.indices[vertex] + ", not " + distinct);
+					distinct++;
+				}
+			}
+
+			Check.that(indexed.vertexCount == distinct, "shape " + shape + ": " + indexed.vertexCount
+					+ " unique vertices, but " + distinct + " distinct ones");
+		}
+	}
+
+	/** More unique vertices than short indices can address must be refused. */
+	private static void checkLimit()
+	{
+		final float[] positions = new float[(ShapeBuilder.MAX_INDEXED_VERTICES + 1) * 3];
+		for (int vertex = 0; vertex <= ShapeBuilder.MAX_INDEXED_VERTICES; vertex++)
+		{
+			positions[vertex * 3] = vertex;
+		}
+
+		boolean refused = false;
+		try
+		{
+			ShapeBuilder.generateIndexedData(positions, null, null, null);
+		}
+		catch (IllegalArgumentException e)
+		{
+			refused = true;
+		}
+		Check.that(refused, (ShapeBuilder.MAX_INDEXED_VERTICES + 1) + " unique vertices were accepted");
+	}
+
+	/** Expanding the indices must give back every attribute of every input vertex. */
+	private static void checkRebuilds(final ShapeBuilder.IndexedShape indexed, final float[] positions,
+			final float[] colors, final float[] normals, final float[] textureCoordinates)
+	{
+		Check.that(indexed.indices.length == positions.length / 3, "one index per input vertex expected");
+
+		for (int vertex = 0; vertex < indexed.indices.length; vertex++)
+		{
+			final int index = indexed.indices[vertex] & 0xFFFF;
+			Check.that(index < indexed.vertexCount, "index " + index + " out of range");
+			checkAttribute("position", indexed.positions, positions, index, vertex, 3);
+			checkAttribute("color", indexed.colors, colors, index, vertex, 4);
+			checkAttribute("normal", indexed.normals, normals, index, vertex, 3);
+			checkAttribute("texture coordinate", indexed.textureCoordinates, textureCoordinates, index, vertex, 2);
+		}
+	}
+
+	private static void checkAttribute(final String name, final float[] unique, final float[] source,
+			final int index, final int vertex, final int size)
+	{
+		if (source == null)
+		{
+			Check.that(unique == null, name + " was not given but is present");
+			return;
+		}
+
+		for (int i = 0; i < size; i++)
+		{
+			Check.that(unique[index * size + i] == source[vertex * size + i], name + " of vertex " + vertex
+					+ " differs after indexing");
+		}
+	}
+
+	private static boolean sameVertex(final int a, final int b, final float[]... sources)
+	{
+		final int[] sizes = {3, 4, 3, 2};
+
+		for (int i = 0; i < sources.length; i++)
+		{
+			if (sources[i] != null && !Arrays.equals(Arrays.copyOfRange(sources[i], a * sizes[i], (a + 1) * sizes[i]),
+					Arrays.copyOfRange(sources[i], b * sizes[i], (b + 1) * sizes[i])))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static float[] randomFloats(final Random random, final int count)
+	{
+		final float[] values = new float[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = random.nextInt(5) - 2;
+		}
+		return values;
+	}
+
+	private static void copy(final float[] pool, final int from, final float[] target, final int vertex,
+			final int size)
+	{
+		if (target != null)
+		{
+			System.arraycopy(pool, from * size, target, vertex * size, size);
+		}
+	}
+}
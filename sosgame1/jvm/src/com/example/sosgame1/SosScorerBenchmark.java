@@ -0,0 +1,140 @@
+package com.example.sosgame1;
+
+import java.util.Random;
+
+/**
+ * Times SosScorer against a naive scan that tries every cell and direction, on full random boards. Each case runs a
+ * few rounds after a warm-up and reports the best, in microseconds per board.
+ * <p>
+ * Usage: SosScorerBenchmark [milliseconds per round]
+ */
+public class SosScorerBenchmark
+{
+	private static final int[][] SIZES = {{5, 5}, {16, 16}, {64, 64}, {200, 200}};
+	private static final int ROUNDS = 5;
+
+	/** Directions a line can run in from its first S. */
+	private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+	/** Keeps the JIT from dropping the work. */
+	private static long sink = 0;
+
+	public static void main(final String[] args)
+	{
+		final long roundMillis = args.length > 0 ? Long.parseLong(args[0]) : 300;
+		final Random random = new Random(11);
+
+		for (final int[] size : SIZES)
+		{
+			final SosBoard board = new SosBoard(size[0], size[1]);
+			for (int cell = 0; cell < board.getCellCount(); cell++)
+			{
+				board.play(cell, random.nextInt(3) == 0 ? SosBoard.O : SosBoard.S);
+			}
+
+			final SosScorer scorer = new SosScorer(size[0], size[1]);
+			final long[] sRows = new long[size[1] * scorer.getWordsPerRow()];
+			final long[] oRows = new long[sRows.length];
+			board.copyRows(sRows, oRows, scorer.getWordsPerRow());
+
+			final double naive = time(roundMillis, new Runnable()
+			{
+				public void run()
+				{
+					sink += countNaively(board);
+				}
+			});
+			final double fromBoard = time(roundMillis, new Runnable()
+			{
+				public void run()
+				{
+					sink += scorer.score(board);
+				}
+			});
+			final double fromRows = time(roundMillis, new Runnable()
+			{
+				public void run()
+				{
+					sink += scorer.score(sRows, oRows);
+				}
+			});
+
+			System.out.println(String.format("%dx%d: naive %.2f us, score(board) %.2f us, score(rows) %.2f us, %.0fx",
+					size[0], size[1], naive, fromBoard, fromRows, naive / fromBoard));
+		}
+
+		if (sink == 42)
+		{
+			System.out.println();
+		}
+	}
+
+	/** @return Best time of one run in microseconds, over ROUNDS rounds of roughly roundMillis each. */
+	private static double time(final long roundMillis, final Runnable work)
+	{
+		// Warm up, and find how many runs fill a round.
+		int runs = 1;
+		while (true)
+		{
+			final long start = System.nanoTime();
+			for (int i = 0; i < runs; i++)
+			{
+				work.run();
+			}
+			if (System.nanoTime() - start > roundMillis * 1000000L / 4)
+			{
+				runs *= 4;
+				break;
+			}
+			runs *= 2;
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			final long start = System.nanoTime();
+			for (int i = 0; i < runs; i++)
+			{
+				work.run();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best / 1000.0 / runs;
+	}
+
+	private static int countNaively(final SosBoard board)
+	{
+		final int width = board.getWidth();
+		final int height = board.getHeight();
+		int count = 0;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				for (final int[] direction : DIRECTIONS)
+				{
+					if (letterAt(board, x, y) == SosBoard.S
+							&& letterAt(board, x + direction[0], y + direction[1]) == SosBoard.O
+							&& letterAt(board, x + 2 * direction[0], y + 2 * direction[1]) == SosBoard.S)
+					{
+						count++;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private static int letterAt(final SosBoard board, final int x, final int y)
+	{
+		if (x < 0 || y < 0 || x >= board.getWidth() || y >= board.getHeight())
+		{
+			return SosBoard.EMPTY;
+		}
+
+		return board.get(y * board.getWidth() + x);
+	}
+}
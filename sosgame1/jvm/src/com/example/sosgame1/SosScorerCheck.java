@@ -0,0 +1,156 @@
+package com.example.sosgame1;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Property check of SosScorer: on random boards of many sizes, including widths on both sides of each 64-column
+ * word boundary, both score methods must equal a naive count that tries every cell and direction, and the incremental
+ * scores SosBoard kept while the board was filled. A failing board is printed.
+ * <p>
+ * Usage: SosScorerCheck [seed]
+ */
+public class SosScorerCheck
+{
+	private static final int[][] SIZES = {{1, 1}, {1, 3}, {3, 1}, {2, 2}, {3, 3}, {5, 5}, {7, 4}, {4, 7}, {63, 5},
+			{64, 3}, {65, 3}, {64, 64}, {127, 4}, {128, 3}, {129, 5}, {130, 7}, {3, 130}, {200, 200}};
+
+	/** Boards per size; large boards get fewer, down to MIN_BOARDS. */
+	private static final int CELLS_PER_SIZE = 2000000;
+	private static final int MAX_BOARDS = 2000;
+	private static final int MIN_BOARDS = 50;
+
+	/** Directions a line can run in from its first S: right, up, up-right and up-left. */
+	private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+	public static void main(final String[] args)
+	{
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 11;
+		final Random random = new Random(seed);
+		int boards = 0;
+		long lines = 0;
+
+		for (final int[] size : SIZES)
+		{
+			final int width = size[0];
+			final int height = size[1];
+			final SosScorer scorer = new SosScorer(width, height);
+			final int n = scorer.getWordsPerRow();
+			final long[] sRows = new long[height * n];
+			final long[] oRows = new long[height * n];
+			final int count = Math.max(MIN_BOARDS, Math.min(MAX_BOARDS, CELLS_PER_SIZE / (width * height)));
+
+			for (int b = 0; b < count; b++)
+			{
+				final SosBoard board = randomBoard(random, width, height);
+				final int expected = countNaively(board);
+				final String where = width + "x" + height + " board, seed " + seed + ":\n" + toString(board);
+
+				Check.that(scorer.score(board) == expected, "score(board) is " + scorer.score(board) + ", naive count "
+						+ expected + ", " + where);
+				Check.that(board.getScore(0) + board.getScore(1) == expected, "incremental scores add up to "
+						+ (board.getScore(0) + board.getScore(1)) + ", naive count " + expected + ", " + where);
+
+				// Build the rows from the cells directly, so the rows variant is checked without copyRows().
+				Arrays.fill(sRows, 0);
+				Arrays.fill(oRows, 0);
+				for (int cell = 0; cell < width * height; cell++)
+				{
+					final int word = cell / width * n + cell % width / 64;
+					final long bit = 1L << (cell % width % 64);
+					if (board.get(cell) == SosBoard.S)
+					{
+						sRows[word] |= bit;
+					}
+					else if (board.get(cell) == SosBoard.O)
+					{
+						oRows[word] |= bit;
+					}
+				}
+				Check.that(scorer.score(sRows, oRows) == expected, "score(rows) is " + scorer.score(sRows, oRows)
+						+ ", naive count " + expected + ", " + where);
+
+				boards++;
+				lines += expected;
+			}
+		}
+
+		System.out.println(boards + " random boards in " + SIZES.length + " sizes, " + lines
+				+ " lines: both score methods match the naive count and the incremental scores");
+	}
+
+	/** A board filled to a random density, with a random share of O, so that sparse and dense boards both occur. */
+	private static SosBoard randomBoard(final Random random, final int width, final int height)
+	{
+		final SosBoard board = new SosBoard(width, height);
+		final float density = random.nextFloat();
+		final float oShare = random.nextFloat();
+
+		for (int cell = 0; cell < width * height; cell++)
+		{
+			if (random.nextFloat() < density)
+			{
+				board.play(cell, random.nextFloat() < oShare ? SosBoard.O : SosBoard.S);
+			}
+		}
+
+		return board;
+	}
+
+	/** Try every cell as the first S of a line in every direction. */
+	private static int countNaively(final SosBoard board)
+	{
+		final int width = board.getWidth();
+		final int height = board.getHeight();
+		int count = 0;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				for (final int[] direction : DIRECTIONS)
+				{
+					if (letterAt(board, x, y) == SosBoard.S
+							&& letterAt(board, x + direction[0], y + direction[1]) == SosBoard.O
+							&& letterAt(board, x + 2 * direction[0], y + 2 * direction[1]) == SosBoard.S)
+					{
+						count++;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private static int letterAt(final SosBoard board, final int x, final int y)
+	{
+		if (x < 0 || y < 0 || x >= board.getWidth() || y >= board.getHeight())
+		{
+			return SosBoard.EMPTY;
+		}
+
+		return board.get(y * board.getWidth() + x);
+	}
+
+	/** @return The board as text, top row first, or just its size if it is too big to read. */
+	private static String toString(final SosBoard board)
+	{
+		if (board.getWidth() > 64 || board.getHeight() > 64)
+		{
+			return "(too big to print)";
+		}
+
+		final StringBuilder text = new StringBuilder();
+		for (int y = board.getHeight() - 1; y >= 0; y--)
+		{
+			for (int x = 0; x < board.getWidth(); x++)
+			{
+				final int letter = board.get(y * board.getWidth() + x);
+				text.append(letter == SosBoard.S ? 'S' : letter == SosBoard.O ? 'O' : '.');
+			}
+			text.append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,211 @@
+package com.example.sosgame1;
+
+import android.content.Context;
+import android.opengl.GLES20;
+
+/**
+ * Checks what TileChunks submits from cameras near and far, off to the side and behind the board: the fake GLES20
+ * must count the triangles and points the chunks report, every visible tile must cost what its level of detail says,
+ * and with letter faces only, every triangle and point drawn must face the camera. The fake reads back each indexed
+ * draw's vertices to decide that. The camera goes from the front to behind the board and back, so batches that are
+ * not rebuilt when it moves show their back faces.
+ */
+public class TileLodCheck
+{
+	private static final int COLUMNS = 32;
+	private static final int ROWS = 24;
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 800;
+
+	/** Triangles of a tile at LOD_CUBE, triangles at LOD_FACES and points at LOD_POINT. */
+	private static final int CUBE_TRIANGLES = 12;
+	private static final int FACE_TRIANGLES = 2;
+	private static final int POINTS = 1;
+
+	/** Normals are stored in bytes, so a primitive within this cosine of edge-on is not judged either way. */
+	private static final float EDGE_ON = 0.05f;
+
+	private static final String CUBE = "cube";
+	private static final String FACES = "faces";
+	private static final String POINT = "points";
+
+	private final MyGLRenderer renderer = new MyGLRenderer(new Context(), COLUMNS, ROWS);
+	private final float[] view = new float[16];
+	private final float[] projection = new float[16];
+	private final float[] light = {0, 0, 0};
+
+	/** Centre of the board. */
+	private final float centreX;
+	private final float centreY;
+	private final float centreZ;
+
+	/** Primitives drawn since the last camera, by whether they faced it. */
+	private int facing;
+	private int away;
+
+	private final float[] eye = new float[3];
+	private final float[] position = new float[4];
+	private final float[] normal = new float[4];
+
+	public static void main(final String[] args)
+	{
+		new TileLodCheck().run();
+	}
+
+	private TileLodCheck()
+	{
+		GLES20.reset();
+		GLES20.setDrawListener(new GLES20.DrawListener()
+		{
+			public void onDraw(final int mode, final int first, final int count, final boolean indexed)
+			{
+				if (indexed)
+				{
+					judge(mode, first, count);
+				}
+			}
+		});
+		renderer.onSurfaceCreated(null, null);
+		renderer.onSurfaceChanged(null, WIDTH, HEIGHT);
+		// TileChunks.draw() expects the triangle program to be current, as onDrawFrame() leaves it.
+		renderer.mGLState.useProgram(renderer.mProgram);
+
+		// Turn some tiles to their O side and some about z, so not every letter face points the same way.
+		final TileStore tiles = renderer.mTiles;
+		for (int tile = 0; tile < tiles.count; tile++)
+		{
+			if (tile % 3 == 0)
+			{
+				tiles.setYRotation(tile, MyGLRenderer.getTileRotation(SosBoard.O));
+			}
+			if (tile % 5 == 0)
+			{
+				tiles.setZRotation(tile, 90);
+			}
+		}
+
+		centreX = (renderer.getTileX(0) + renderer.getTileX(COLUMNS - 1)) / 2;
+		centreY = (renderer.getTileY(0) + renderer.getTileY(ROWS - 1)) / 2;
+		final float[] model = new float[16];
+		tiles.getModelMatrix(0, model);
+		centreZ = model[14];
+	}
+
+	private void run()
+	{
+		// Straight on, from close up to far away, then from the side, from behind, and back to the front.
+		look("in front, close", 0, 0, 6, CUBE);
+		look("in front", 0, 0, 30, FACES);
+		look("in front, far", 0, 0, 150, POINT);
+		look("behind, far", 0, 0, -150, POINT);
+		look("behind", 0, 0, -30, FACES);
+		look("behind, to the side", 20, -10, -45, FACES);
+		look("in front, to the side", -20, 15, 45, FACES);
+		look("in front again", 0, 0, 30, FACES);
+		look("behind again, far", 5, 5, -150, POINT);
+		look("in front again, far", 5, 5, 150, POINT);
+	}
+
+	/**
+	 * Draw the chunks from a camera at the given offset from the board's centre, looking at the centre, and check
+	 * the result.
+	 *
+	 * @param level What every visible chunk is expected to be drawn as.
+	 */
+	private void look(final String name, final float x, final float y, final float z, final String level)
+	{
+		eye[0] = centreX + x;
+		eye[1] = centreY + y;
+		eye[2] = centreZ + z;
+		MatrixMath.setLookAt(view, eye[0], eye[1], eye[2], centreX, centreY, centreZ, 0, 1, 0);
+		MatrixMath.frustum(projection, -2.2f * WIDTH / HEIGHT, 2.2f * WIDTH / HEIGHT, -2.2f, 2.2f, 1, 1000);
+
+		final TileChunks chunks = renderer.mTileChunks;
+		chunks.setCamera(view, projection, HEIGHT);
+		GLES20.resetCounters();
+		facing = 0;
+		away = 0;
+		chunks.draw(renderer.mGLState, renderer.mTiles, renderer.mProgram, renderer.mTilePointProgram, projection,
+				light);
+
+		final int tiles = chunks.getVisibleTiles();
+		final String where = name + ": ";
+		System.out.println(String.format("%-24s %4d tiles, %5d triangles, %4d points, %5d facing, %d away", name,
+				tiles, chunks.getTriangleCount(), chunks.getPointCount(), facing, away));
+
+		Check.that(tiles > 0, where + "nothing visible");
+		Check.that(GLES20.getTriangles() == chunks.getTriangleCount(), where + "GL got " + GLES20.getTriangles()
+				+ " triangles, the chunks report " + chunks.getTriangleCount());
+		Check.that(GLES20.getPoints() == chunks.getPointCount(), where + "GL got " + GLES20.getPoints()
+				+ " points, the chunks report " + chunks.getPointCount());
+
+		if (level == CUBE)
+		{
+			Check.that(chunks.getTriangleCount() == tiles * CUBE_TRIANGLES && chunks.getPointCount() == 0,
+					where + "not every visible tile was drawn as a cube");
+			return;
+		}
+
+		if (level == FACES)
+		{
+			Check.that(chunks.getTriangleCount() == tiles * FACE_TRIANGLES && chunks.getPointCount() == 0,
+					where + "not every visible tile was drawn as its letter face");
+		}
+		else
+		{
+			Check.that(chunks.getPointCount() == tiles * POINTS && chunks.getTriangleCount() == 0,
+					where + "not every visible tile was drawn as a point");
+		}
+
+		Check.that(away == 0, where + away + " primitives face away from the camera");
+		Check.that(facing == chunks.getTriangleCount() + chunks.getPointCount(), where + "only " + facing
+				+ " primitives clearly face the camera");
+	}
+
+	/**
+	 * Count the primitives of an indexed draw by whether their normal points towards the eye. The point program has
+	 * no normals, but a tile's point mesh holds the centres of its two letter faces one after the other, so a point's
+	 * normal runs from the other one to it.
+	 */
+	private void judge(final int mode, final int offset, final int count)
+	{
+		final boolean points = mode == GLES20.GL_POINTS;
+		final ShaderProgram program = points ? renderer.mTilePointProgram : renderer.mProgram;
+		final int step = points ? 1 : 3;
+
+		for (int i = 0; i < count; i += step)
+		{
+			final int vertex = GLES20.getElement(offset, i);
+			GLES20.getAttribute(program.positionAttribute, vertex, position);
+
+			if (points)
+			{
+				GLES20.getAttribute(program.positionAttribute, vertex ^ 1, normal);
+				for (int c = 0; c < 3; c++)
+				{
+					normal[c] = position[c] - normal[c];
+				}
+			}
+			else
+			{
+				GLES20.getAttribute(program.normalAttribute, vertex, normal);
+			}
+
+			final float toEyeX = eye[0] - position[0];
+			final float toEyeY = eye[1] - position[1];
+			final float toEyeZ = eye[2] - position[2];
+			final float cosine = (normal[0] * toEyeX + normal[1] * toEyeY + normal[2] * toEyeZ)
+					/ (float) Math.sqrt(toEyeX * toEyeX + toEyeY * toEyeY + toEyeZ * toEyeZ)
+					/ (float) Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+
+			if (cosine > EDGE_ON)
+			{
+				facing++;
+			}
+			else if (cosine < -EDGE_ON)
+			{
+				away++;
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.sosgame1;
+
+import java.util.Random;
+
+import android.content.Context;
+
+/**
+ * Checks that TilePicker.pick() finds the same tile as the picking it replaced: unproject the touch at the near and
+ * far planes with the inverse model-view-projection, intersect with the board, then scan every tile for the one
+ * whose square contains the hit, the last match winning. Uses the renderer's own camera, on several viewport sizes
+ * and board sizes.
+ * <p>
+ * Touches that land within a hair of the line between two tiles may go either way, as both methods round
+ * differently there; those are counted and reported but not compared.
+ */
+public class TilePickerCheck
+{
+	private static final int TOUCHES = 200000;
+
+	/** Hits closer than this to a tile edge, in world units, are ambiguous. */
+	private static final float EDGE = 1e-4f;
+
+	/** Half the size of the square each tile owned in the old scan. */
+	private static final float HALF = 1;
+
+	private static final int[][] VIEWPORTS = {{480, 800}, {800, 480}, {720, 1280}, {1000, 1000}, {240, 320}};
+	private static final int[][] BOARDS = {{5, 5}, {8, 6}, {3, 9}};
+
+	public static void main(final String[] args)
+	{
+		final Random random = new Random(3);
+		int hits = 0;
+		int edges = 0;
+
+		for (final int[] board : BOARDS)
+		{
+			final MyGLRenderer renderer = new MyGLRenderer(new Context(), board[0], board[1]);
+			renderer.onSurfaceCreated(null, null);
+
+			for (final int[] viewport : VIEWPORTS)
+			{
+				renderer.onSurfaceChanged(null, viewport[0], viewport[1]);
+				final OldPicker old = new OldPicker(renderer, board[0], board[1], viewport[0], viewport[1]);
+
+				for (int i = 0; i < TOUCHES; i++)
+				{
+					// Aim a little past the screen edges too.
+					final float x = random.nextFloat() * viewport[0] * 1.1f - viewport[0] * 0.05f;
+					final float y = random.nextFloat() * viewport[1] * 1.1f - viewport[1] * 0.05f;
+					final int expected = old.pick(x, y);
+
+					if (old.nearEdge)
+					{
+						edges++;
+						continue;
+					}
+
+					final int actual = renderer.mPicker.pick(x, y);
+					Check.that(actual == expected, board[0] + "x" + board[1] + " board, " + viewport[0] + "x"
+							+ viewport[1] + " viewport: touch (" + x + ", " + y + ") picked " + actual
+							+ ", the old picking " + expected);
+					hits += expected != TilePicker.NONE ? 1 : 0;
+				}
+			}
+		}
+
+		final int total = BOARDS.length * VIEWPORTS.length * TOUCHES;
+		System.out.println(total + " touches: " + hits + " on a tile, " + (total - hits - edges)
+				+ " off the board, all matching; " + edges + " on a tile edge, not compared");
+		Check.that(hits > total / 10, "too few touches hit a tile to be a meaningful check");
+		Check.that(edges < total / 1000, edges + " touches on edges is too many to be rounding");
+	}
+
+	/** The picking TilePicker replaced, from MyGLRenderer.getWorldXY() and the scan in onTouchEvent(). */
+	private static class OldPicker
+	{
+		/** The renderer's near and far plane distances, which the old intersection relied on. */
+		private static final float NEAR = 1;
+		private static final float FAR = 10;
+
+		private final MyGLRenderer renderer;
+		private final int columns;
+		private final int rows;
+		private final int height;
+		private final float[] inverseMVP = new float[16];
+		private final int[] viewport;
+		private final float[] nearPos = new float[4];
+		private final float[] farPos = new float[4];
+
+		/** Set by pick() if the hit was too close to a tile edge to compare. */
+		boolean nearEdge;
+
+		OldPicker(final MyGLRenderer renderer, final int columns, final int rows, final int width, final int height)
+		{
+			this.renderer = renderer;
+			this.columns = columns;
+			this.rows = rows;
+			this.height = height;
+			viewport = new int[] {0, 0, width, height};
+
+			// The model matrix of the board plane, then inverse(projection * view * model).
+			final float[] model = new float[16];
+			final float[] modelView = new float[16];
+			MatrixMath.setIdentity(model);
+			MatrixMath.translate(model, 0, 0, -5.0f);
+			MatrixMath.multiplyAffine(modelView, renderer.mViewMatrix, model);
+			MatrixMath.multiplyProjectiveAffine(inverseMVP, renderer.mProjectionMatrix, modelView);
+			Check.that(MatrixMath.invert(inverseMVP, inverseMVP), "singular camera");
+		}
+
+		int pick(final float x, final float y)
+		{
+			MatrixMath.unProject(nearPos, x, height - y, 0, inverseMVP, viewport);
+			MatrixMath.unProject(farPos, x, height - y, 1, inverseMVP, viewport);
+			divideByW(nearPos);
+			divideByW(farPos);
+
+			final float worldX = (farPos[0] - nearPos[0]) / (FAR - NEAR) * nearPos[2] + nearPos[0];
+			final float worldY = (farPos[1] - nearPos[1]) / (FAR - NEAR) * nearPos[2] + nearPos[1];
+
+			nearEdge = false;
+			int found = TilePicker.NONE;
+
+			// The old renderer created its cubes column by column; the last one containing the point won.
+			for (int column = 0; column < columns; column++)
+			{
+				for (int row = 0; row < rows; row++)
+				{
+					final float cubeX = renderer.getTileX(column);
+					final float cubeY = renderer.getTileY(row);
+
+					if (Math.abs(Math.abs(worldX - cubeX) - HALF) < EDGE
+							|| Math.abs(Math.abs(worldY - cubeY) - HALF) < EDGE)
+					{
+						nearEdge = true;
+					}
+
+					if (worldX >= cubeX - HALF && worldX <= cubeX + HALF && worldY >= cubeY - HALF
+							&& worldY <= cubeY + HALF)
+					{
+						found = row * columns + column;
+					}
+				}
+			}
+
+			return found;
+		}
+
+		private static void divideByW(final float[] vector)
+		{
+			final float w = vector[3];
+			for (int i = 0; i < vector.length; i++)
+			{
+				vector[i] /= w;
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.sosgame1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times a walk over every tile, reading the position and rotation of each one that is not animating, through
+ * TileStore's parallel arrays against a list of objects laid out like the Cube class TileStore replaced. Small
+ * allocations are interleaved with the objects, as they are in a running app, so the objects do not sit back to back
+ * on the heap. Each size runs a few rounds after a warm-up and reports the best, in nanoseconds per tile.
+ * <p>
+ * Usage: TileStoreBenchmark [tiles read per round]
+ */
+public class TileStoreBenchmark
+{
+	/** Board sizes: 25, 2,500 and 40,000 tiles. */
+	private static final int[][] SIZES = {{5, 5}, {50, 50}, {200, 200}};
+	private static final int ROUNDS = 5;
+
+	/** The fields of the old Cube: references to the context and renderer, the transform and cached matrices. */
+	private static class OldCube
+	{
+		final Object context;
+		final Object renderer;
+		float x;
+		float y;
+		float z;
+		int topFace = 1;
+		float xRotation;
+		float yRotation;
+		float zRotation;
+		volatile boolean animating;
+		final float[] modelMatrix = new float[16];
+		final float[] mvMatrix = new float[16];
+		final float[] mvpMatrix = new float[16];
+		volatile boolean modelDirty = true;
+		int viewProjectionVersion = -1;
+
+		OldCube(final Object context, final Object renderer)
+		{
+			this.context = context;
+			this.renderer = renderer;
+		}
+	}
+
+	/** Keeps the JIT from dropping the work, and the interleaved allocations alive. */
+	private static float sink = 0;
+	private static Object keep;
+
+	public static void main(final String[] args)
+	{
+		final long tilesPerRound = args.length > 0 ? Long.parseLong(args[0]) : 40000000L;
+
+		for (final int[] size : SIZES)
+		{
+			final int count = size[0] * size[1];
+			final Random random = new Random(1);
+			final List<OldCube> cubes = new ArrayList<OldCube>();
+			final List<byte[]> other = new ArrayList<byte[]>();
+			final TileStore store = new TileStore(size[0], size[1]);
+
+			for (int tile = 0; tile < count; tile++)
+			{
+				final OldCube cube = new OldCube(null, null);
+				cube.x = tile % size[0] * 2;
+				cube.y = tile / size[0] * 2;
+				cube.z = (tile & 1) * -0.5f;
+				cube.yRotation = tile % 3 * 180;
+				cubes.add(cube);
+				other.add(new byte[16 + random.nextInt(64)]);
+
+				store.setX(tile, cube.x);
+				store.setY(tile, cube.y);
+				store.setZ(tile, cube.z);
+				store.setYRotation(tile, cube.yRotation);
+			}
+			keep = other;
+
+			final int passes = (int) Math.max(1, tilesPerRound / count);
+			final double objects = time(passes, count, new Runnable()
+			{
+				public void run()
+				{
+					float sum = 0;
+					for (int pass = 0; pass < passes; pass++)
+					{
+						final int n = cubes.size();
+						for (int i = 0; i < n; i++)
+						{
+							final OldCube cube = cubes.get(i);
+							if (!cube.animating)
+							{
+								sum += cube.x + cube.y + cube.z + cube.yRotation;
+							}
+						}
+					}
+					sink += sum;
+				}
+			});
+			final double arrays = time(passes, count, new Runnable()
+			{
+				public void run()
+				{
+					float sum = 0;
+					for (int pass = 0; pass < passes; pass++)
+					{
+						for (int tile = 0; tile < count; tile++)
+						{
+							if (!store.isAnimating(tile))
+							{
+								sum += store.getX(tile) + store.getY(tile) + store.getZ(tile)
+										+ store.getYRotation(tile);
+							}
+						}
+					}
+					sink += sum;
+				}
+			});
+
+			System.out.println(String.format("%6d tiles: objects %.2f ns per tile, TileStore %.2f ns per tile, %.1fx",
+					count, objects, arrays, objects / arrays));
+		}
+
+		if (sink == 42 && keep != null)
+		{
+			System.out.println();
+		}
+	}
+
+	/** @return Best time per tile in nanoseconds over ROUNDS rounds, after as many untimed ones. */
+	private static double time(final int passes, final int count, final Runnable work)
+	{
+		long best = Long.MAX_VALUE;
+
+		for (int round = 0; round < ROUNDS * 2; round++)
+		{
+			final long start = System.nanoTime();
+			work.run();
+			if (round >= ROUNDS)
+			{
+				best = Math.min(best, System.nanoTime() - start);
+			}
+		}
+
+		return (double) best / passes / count;
+	}
+}
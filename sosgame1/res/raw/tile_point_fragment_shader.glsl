@@ -0,0 +1,16 @@
+precision mediump float;       	// Set the default precision to medium. We don't need as high of a
+								// precision in the fragment shader.
+uniform sampler2D u_Texture;    // The input texture.
+
+// The size of one letter in the texture; see the texture coordinates of the cube in MyGLRenderer.
+const vec2 c_LetterSize = vec2(0.5, 140.0 / 256.0);
+
+varying vec4 v_Color;          	// The tile's color.
+varying vec2 v_TexCoordinate;   // The centre of the tile's letter in the texture.
+
+// The entry point for our fragment shader.
+void main()
+{
+	// gl_PointCoord runs from (0, 0) at the top left of the sprite, the same way the letters run in the texture.
+	gl_FragColor = v_Color * texture2D(u_Texture, v_TexCoordinate + (gl_PointCoord - 0.5) * c_LetterSize);
+}
@@ -0,0 +1,21 @@
+uniform mat4 u_MVPMatrix;		// A constant representing the combined model/view/projection matrix.
+uniform float u_PointSize;		// The size of a tile on screen in pixels.
+
+attribute vec4 a_Position;		// Per-vertex position information we will pass in.
+attribute vec4 a_Color;			// Per-vertex color information we will pass in.
+attribute vec2 a_TexCoordinate; // The centre of the tile's letter in the texture.
+
+varying vec4 v_Color;			// This will be passed into the fragment shader.
+varying vec2 v_TexCoordinate;   // This will be passed into the fragment shader.
+
+// The entry point for our vertex shader.
+void main()
+{
+	// Pass through the color and texture coordinate.
+	v_Color = a_Color;
+	v_TexCoordinate = a_TexCoordinate;
+
+	// Draw the tile as a square sprite of its own size.
+	gl_Position = u_MVPMatrix * a_Position;
+	gl_PointSize = u_PointSize;
+}
@@ -0,0 +1,506 @@
+package com.example.sosgame1;
+
+/**
+ * Computer opponent: negamax alpha-beta with iterative deepening and a transposition table.
+ * <p>
+ * Values are the points the player to move will still win minus the points the opponent will still win. A move
+ * that completes lines is worth its points plus the value of the position after it, taken from the same player's
+ * point of view when the extra turn keeps the move with them and negated otherwise. Since these values do not depend
+ * on the scores so far or on whose turn it is, positions are hashed on their cells alone. By default the hash is the
+ * canonical one, so rotations and reflections of a position share a table entry; the stored best move is then
+ * transformed along with the position.
+ * <p>
+ * With an EndgameDatabase for the board size, positions with few enough empty cells are looked up instead of
+ * searched, and a root whose moves all lead to such positions is solved by the first iteration. Databases only exist
+ * for boards of up to EndgameSolver.MAX_CELLS cells.
+ * <p>
+ * Moves are packed ints, see encodeMove(). Searching allocates only when a deeper ply is reached for the first time.
+ * One search at a time; stop() may be called from another thread, and stays in effect until clearStop().
+ */
+public class AlphaBetaSearch
+{
+	/** Returned by search() when the board is full. */
+	public static final int NO_MOVE = -1;
+
+	/** Larger than any possible value. */
+	private static final int INFINITY = 1 << 24;
+
+	/** Nodes between checks of the clock and the stop flag. */
+	private static final int CHECK_INTERVAL = 1024;
+
+	/** Combo searches are only worth their cost this far from the leaves. */
+	private static final int COMBO_MIN_DEPTH = 3;
+
+	/** Node limit of each combo search used for move ordering. */
+	private static final int COMBO_NODE_LIMIT = 256;
+
+	private final TranspositionTable table;
+	private final ComboSearch combo;
+	private boolean comboOrdering = true;
+	private boolean symmetryReduction = true;
+
+	private EndgameDatabase endgame;
+	/** Positions with at least this many moves played are in the endgame database; above the cell count if none. */
+	private int endgameMoveCount = Integer.MAX_VALUE;
+
+	private SosBoard board;
+
+	/** Move lists, one per ply, grown on demand. */
+	private int[][] moveLists = new int[0][];
+
+	private long deadline;
+	private long nextCheck;
+	private volatile boolean stopRequested;
+	private boolean aborted;
+
+	/** Results and statistics of the last search. */
+	private int bestMove = NO_MOVE;
+	private int bestValue = 0;
+	private int rootValue = 0;
+	private int depthReached = 0;
+	private long nodes = 0;
+	private long elapsedNanos = 0;
+
+	/**
+	 * @param tableLog2Size Base 2 logarithm of the number of transposition table slots, 16 bytes each.
+	 */
+	public AlphaBetaSearch(final int tableLog2Size)
+	{
+		table = new TranspositionTable(tableLog2Size);
+		combo = new ComboSearch(Math.max(tableLog2Size - 2, 10));
+	}
+
+	/** @return A move placing letter in cell. */
+	public static int encodeMove(final int cell, final int letter)
+	{
+		return cell << 1 | (letter == SosBoard.O ? 1 : 0);
+	}
+
+	public static int getMoveCell(final int move)
+	{
+		return move >>> 1;
+	}
+
+	/** @return SosBoard.S or SosBoard.O. */
+	public static int getMoveLetter(final int move)
+	{
+		return (move & 1) == 0 ? SosBoard.S : SosBoard.O;
+	}
+
+	/**
+	 * Find the best move for the player to move, deepening one ply at a time until maxDepth is reached, the time is
+	 * up or stop() is called. Only fully searched iterations count; the first one, which only looks at the points
+	 * each move wins straight away, always completes.
+	 *
+	 * @param board The position. Left as it was when the search returns.
+	 * @param maxDepth Depth limit in plies.
+	 * @param timeLimitMillis Time budget, or 0 for none.
+	 * @return The best move found, or NO_MOVE if the board is full.
+	 */
+	public int search(final SosBoard board, final int maxDepth, final long timeLimitMillis)
+	{
+		this.board = board;
+		final long start = System.nanoTime();
+		deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1000000L : Long.MAX_VALUE;
+		aborted = false;
+		bestMove = NO_MOVE;
+		bestValue = 0;
+		depthReached = 0;
+		nodes = 0;
+		nextCheck = CHECK_INTERVAL;
+		table.newSearch();
+		table.resetStatistics();
+
+		final int emptyCells = board.getCellCount() - board.getMoveCount();
+		int depthLimit = Math.min(maxDepth, emptyCells);
+		endgameMoveCount = endgame != null && endgame.covers(board)
+				? board.getCellCount() - endgame.getMaxEmptyCells() : Integer.MAX_VALUE;
+
+		if (board.getMoveCount() + 1 >= endgameMoveCount)
+		{
+			depthLimit = Math.min(depthLimit, 1);
+		}
+
+		for (int depth = 1; depth <= depthLimit; depth++)
+		{
+			final int move = searchRoot(depth);
+
+			if (aborted)
+			{
+				break;
+			}
+
+			bestMove = move;
+			bestValue = rootValue;
+			depthReached = depth;
+		}
+
+		elapsedNanos = System.nanoTime() - start;
+		this.board = null;
+		return bestMove;
+	}
+
+	/**
+	 * Ask a running search to return as soon as possible. If no search is running, the next one returns after its
+	 * first iteration. Safe to call from any thread.
+	 */
+	public void stop()
+	{
+		stopRequested = true;
+	}
+
+	/**
+	 * Turn combo move ordering on or off; it is on by default. Where the table has no move for a position, the first
+	 * move of its best chain of scoring moves is tried first.
+	 */
+	public void setComboOrdering(final boolean enabled)
+	{
+		comboOrdering = enabled;
+	}
+
+	/** Use a database of exact endgame values, or none if null. Only used for boards of its size. */
+	public void setEndgameDatabase(final EndgameDatabase endgame)
+	{
+		this.endgame = endgame;
+	}
+
+	/** Turn sharing table entries between symmetric positions on or off; it is on by default. */
+	public void setSymmetryReduction(final boolean enabled)
+	{
+		symmetryReduction = enabled;
+	}
+
+	/** Undo stop(), so that the next search runs to its limits. */
+	public void clearStop()
+	{
+		stopRequested = false;
+	}
+
+	/**
+	 * Search every root move to the given depth, trying the best move of the previous iteration first.
+	 *
+	 * @return The best move. Sets rootValue.
+	 */
+	private int searchRoot(final int depth)
+	{
+		final int[] moves = getMoveList(0);
+		final int count = generateMoves(moves, bestMove != NO_MOVE ? bestMove : getComboMove());
+		int alpha = -INFINITY;
+		int best = NO_MOVE;
+
+		for (int i = 0; i < count; i++)
+		{
+			final int value = searchMove(moves[i], depth, 1, alpha, INFINITY);
+
+			if (aborted)
+			{
+				break;
+			}
+
+			if (value > alpha)
+			{
+				alpha = value;
+				best = moves[i];
+			}
+		}
+
+		if (best != NO_MOVE && !aborted)
+		{
+			final int symmetry = getTableSymmetry();
+			table.store(board.getSymmetricHash(symmetry), alpha, depth, TranspositionTable.EXACT,
+					transformMove(best, symmetry));
+		}
+
+		rootValue = alpha;
+		return best;
+	}
+
+	/**
+	 * Play a move, search the position after it and take it back.
+	 *
+	 * @param depth Remaining depth including this move.
+	 * @param ply Ply of the position after the move.
+	 * @return The value of the move for the player making it.
+	 */
+	private int searchMove(final int move, final int depth, final int ply, final int alpha, final int beta)
+	{
+		final int player = board.getCurrentPlayer();
+		final int points = board.play(getMoveCell(move), getMoveLetter(move));
+		final int value;
+
+		if (board.getCurrentPlayer() == player)
+		{
+			// Extra turn: same point of view, window shifted by the points just won.
+			value = points + negamax(depth - 1, ply, alpha - points, beta - points);
+		}
+		else
+		{
+			value = points - negamax(depth - 1, ply, points - beta, points - alpha);
+		}
+
+		board.undo();
+		return value;
+	}
+
+	private int negamax(final int depth, final int ply, int alpha, int beta)
+	{
+		nodes++;
+
+		if (board.getMoveCount() >= endgameMoveCount)
+		{
+			return endgame.getValue(board);
+		}
+
+		if (depth == 0 || board.isFull())
+		{
+			return 0;
+		}
+
+		// Leaves return above, so the first iteration, whose nodes are all leaves, can never be cut short.
+		if (nodes >= nextCheck)
+		{
+			nextCheck = nodes + CHECK_INTERVAL;
+			aborted |= stopRequested || System.nanoTime() > deadline;
+		}
+
+		if (aborted)
+		{
+			return 0;
+		}
+
+		final int symmetry = getTableSymmetry();
+		final long key = board.getSymmetricHash(symmetry);
+		final long entry = table.probe(key);
+		int hashMove = NO_MOVE;
+
+		if (entry != 0)
+		{
+			hashMove = inverseTransformMove(TranspositionTable.getMove(entry), symmetry);
+
+			if (TranspositionTable.getDepth(entry) >= depth)
+			{
+				final int value = TranspositionTable.getValue(entry);
+
+				switch (TranspositionTable.getBound(entry))
+				{
+				case TranspositionTable.EXACT:
+					return value;
+				case TranspositionTable.LOWER:
+					alpha = Math.max(alpha, value);
+					break;
+				case TranspositionTable.UPPER:
+					beta = Math.min(beta, value);
+					break;
+				}
+
+				if (alpha >= beta)
+				{
+					return value;
+				}
+			}
+		}
+
+		if (hashMove == NO_MOVE && depth >= COMBO_MIN_DEPTH)
+		{
+			hashMove = getComboMove();
+		}
+
+		final int originalAlpha = alpha;
+		final int[] moves = getMoveList(ply);
+		final int count = generateMoves(moves, hashMove);
+		int best = -INFINITY;
+		int bestMoveHere = NO_MOVE;
+
+		for (int i = 0; i < count; i++)
+		{
+			final int value = searchMove(moves[i], depth, ply + 1, alpha, beta);
+
+			if (aborted)
+			{
+				return 0;
+			}
+
+			if (value > best)
+			{
+				best = value;
+				bestMoveHere = moves[i];
+
+				if (value > alpha)
+				{
+					alpha = value;
+
+					if (alpha >= beta)
+					{
+						break;
+					}
+				}
+			}
+		}
+
+		final int bound = best <= originalAlpha ? TranspositionTable.UPPER
+				: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(key, best, depth, bound, transformMove(bestMoveHere, symmetry));
+		return best;
+	}
+
+	/**
+	 * List the legal moves: the hash move first if there is one, then moves that complete lines, then the rest.
+	 *
+	 * @return Number of moves.
+	 */
+	private int generateMoves(final int[] moves, final int hashMove)
+	{
+		final int cellCount = board.getCellCount();
+		int front = 0;
+		int back = moves.length;
+
+		for (int cell = 0; cell < cellCount; cell++)
+		{
+			if (!board.isEmpty(cell))
+			{
+				continue;
+			}
+
+			for (int letter = SosBoard.S; letter <= SosBoard.O; letter++)
+			{
+				final int move = encodeMove(cell, letter);
+
+				if (board.gain(cell, letter) > 0)
+				{
+					moves[front++] = move;
+				}
+				else
+				{
+					moves[--back] = move;
+				}
+			}
+		}
+
+		// Close the gap between the scoring moves at the front and the rest at the back.
+		final int quiet = moves.length - back;
+		System.arraycopy(moves, back, moves, front, quiet);
+		final int count = front + quiet;
+
+		if (hashMove != NO_MOVE)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (moves[i] == hashMove)
+				{
+					moves[i] = moves[0];
+					moves[0] = hashMove;
+					break;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/** @return The symmetry taking the current position to the one its table entry is stored under. */
+	private int getTableSymmetry()
+	{
+		return symmetryReduction ? board.getCanonicalSymmetry() : 0;
+	}
+
+	/** @return The move a symmetry takes a move to. */
+	private int transformMove(final int move, final int symmetry)
+	{
+		if (move == NO_MOVE || symmetry == 0)
+		{
+			return move;
+		}
+
+		return board.getGeometry().transformCell(symmetry, getMoveCell(move)) << 1 | (move & 1);
+	}
+
+	/** @return The move a symmetry takes to the given move. */
+	private int inverseTransformMove(final int move, final int symmetry)
+	{
+		if (move == NO_MOVE || symmetry == 0)
+		{
+			return move;
+		}
+
+		return board.getGeometry().inverseTransformCell(symmetry, getMoveCell(move)) << 1 | (move & 1);
+	}
+
+	/** @return First move of the best combo from the current position, or NO_MOVE. */
+	private int getComboMove()
+	{
+		if (!comboOrdering)
+		{
+			return NO_MOVE;
+		}
+
+		combo.search(board, COMBO_NODE_LIMIT);
+		// Combo nodes take as long as our own, so bring the next clock check forward by them.
+		nextCheck -= combo.getNodes();
+		return combo.getBestMove();
+	}
+
+	private int[] getMoveList(final int ply)
+	{
+		if (ply >= moveLists.length)
+		{
+			final int[][] grown = new int[ply + 1][];
+			System.arraycopy(moveLists, 0, grown, 0, moveLists.length);
+			moveLists = grown;
+		}
+
+		if (moveLists[ply] == null || moveLists[ply].length < board.getCellCount() * 2)
+		{
+			moveLists[ply] = new int[board.getCellCount() * 2];
+		}
+
+		return moveLists[ply];
+	}
+
+	/** @return The transposition table, e.g. to clear it between games. */
+	public TranspositionTable getTable()
+	{
+		return table;
+	}
+
+	/** @return The best move of the last search, or NO_MOVE. */
+	public int getBestMove()
+	{
+		return bestMove;
+	}
+
+	/** @return The value of the best move of the last completed iteration. */
+	public int getBestValue()
+	{
+		return bestValue;
+	}
+
+	/** @return Depth of the last completed iteration. */
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+
+	/** @return Nodes visited by the last search. */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	/** @return How long the last search ran. */
+	public long getElapsedMillis()
+	{
+		return elapsedNanos / 1000000L;
+	}
+
+	/** @return Nodes per second of the last search. */
+	public long getNodesPerSecond()
+	{
+		return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+	}
+
+	/** @return Transposition table hit rate of the last search, 0 to 1. */
+	public float getHitRate()
+	{
+		return table.getHitRate();
+	}
+}
@@ -0,0 +1,245 @@
+package com.example.sosgame1;
+
+import java.util.HashMap;
+
+/**
+ * The three-cell line segments ("triples") of a width x height board, and for every cell the triples passing through
+ * it, in all four orientations. The cell-to-triple map is stored CSR style: the triples of cell c are
+ * cellTriples[cellOffsets[c]] up to cellTriples[cellOffsets[c + 1]], so a lookup is a plain array scan.
+ * <p>
+ * Memory is linear in the board area: at most 4 triples per cell and 3 entries per triple. Instances are immutable
+ * and shared by every game of the same size; get them from get(). Cells are numbered as in SosBoard. The Zobrist
+ * keys for hashing positions of this size live here too.
+ * <p>
+ * The lines of a square board look the same after any of its 8 rotations and reflections, those of other boards
+ * after any of 4. Symmetry s maps the cell at (column, row) as follows, with w and h the board size:
+ * <pre>
+ * 0  (column, row)           identity
+ * 1  (w-1-column, row)       mirrored left to right
+ * 2  (column, h-1-row)       mirrored top to bottom
+ * 3  (w-1-column, h-1-row)   turned half way
+ * 4  (row, column)           mirrored in the diagonal; squares only from here on
+ * 5  (w-1-row, column)       turned a quarter anticlockwise
+ * 6  (row, h-1-column)       turned a quarter clockwise
+ * 7  (w-1-row, h-1-column)   mirrored in the anti-diagonal
+ * </pre>
+ */
+public final class BoardGeometry
+{
+	/** Triple orientations. */
+	public static final int HORIZONTAL = 0;
+	public static final int VERTICAL = 1;
+	/** Bottom left to top right. */
+	public static final int DIAGONAL = 2;
+	/** Top left to bottom right. */
+	public static final int ANTI_DIAGONAL = 3;
+
+	/** Column and row steps from the first cell of a triple to the next, per orientation. */
+	private static final int[] DX = { 1, 0, 1, 1 };
+	private static final int[] DY = { 0, 1, 1, -1 };
+
+	private static final HashMap<Long, BoardGeometry> cache = new HashMap<Long, BoardGeometry>();
+
+	public final int width;
+	public final int height;
+	public final int cellCount;
+	public final int tripleCount;
+
+	/** Number of symmetries: 8 for a square board, 4 otherwise. Symmetry 0 is the identity. */
+	public final int symmetryCount;
+
+	/** First, middle and last cell of each triple. The middle cell is the one that must hold the O. */
+	final int[] tripleCells;
+
+	/** Orientation of each triple. */
+	private final byte[] orientations;
+
+	/** CSR index from cell to the triples through it. cellOffsets has cellCount + 1 entries. */
+	final int[] cellOffsets;
+	final int[] cellTriples;
+
+	/**
+	 * Zobrist keys, two per cell: zobristKeys[cell * 2] for an S, zobristKeys[cell * 2 + 1] for an O. Generated
+	 * from a fixed seed, so hashes are the same in every run.
+	 */
+	final long[] zobristKeys;
+
+	/** symmetryCells[s * cellCount + cell] is the cell symmetry s takes a cell to; inverseSymmetryCells undoes it. */
+	private final int[] symmetryCells;
+	private final int[] inverseSymmetryCells;
+
+	/**
+	 * The Zobrist keys of every cell under every symmetry, so that the hashes of all transformed boards can be kept up
+	 * to date together: symmetryKeys[(cell * 2 + letter - S) * symmetryCount + s] is the key of the letter in the
+	 * cell that symmetry s takes the cell to.
+	 */
+	final long[] symmetryKeys;
+
+	/**
+	 * @return The shared geometry for a board size, built on first use.
+	 */
+	public static BoardGeometry get(final int width, final int height)
+	{
+		final Long key = Long.valueOf((long) width << 32 | height);
+
+		synchronized (cache)
+		{
+			BoardGeometry geometry = cache.get(key);
+
+			if (geometry == null)
+			{
+				geometry = new BoardGeometry(width, height);
+				cache.put(key, geometry);
+			}
+
+			return geometry;
+		}
+	}
+
+	private BoardGeometry(final int width, final int height)
+	{
+		if (width < 1 || height < 1)
+		{
+			throw new IllegalArgumentException("Bad board size: " + width + "x" + height);
+		}
+
+		this.width = width;
+		this.height = height;
+		cellCount = width * height;
+
+		// Every triple is identified by its middle cell and orientation.
+		int triples = 0;
+		for (int o = 0; o < 4; o++)
+		{
+			triples += Math.max(width - 2 * DX[o], 0) * Math.max(height - 2 * Math.abs(DY[o]), 0);
+		}
+		tripleCount = triples;
+		tripleCells = new int[tripleCount * 3];
+		orientations = new byte[tripleCount];
+
+		final int[] counts = new int[cellCount];
+		int t = 0;
+
+		for (int o = 0; o < 4; o++)
+		{
+			final int dx = DX[o];
+			final int dy = DY[o];
+			final int step = dy * width + dx;
+
+			for (int row = Math.abs(dy); row < height - Math.abs(dy); row++)
+			{
+				for (int column = dx; column < width - dx; column++)
+				{
+					final int middle = row * width + column;
+					tripleCells[t * 3] = middle - step;
+					tripleCells[t * 3 + 1] = middle;
+					tripleCells[t * 3 + 2] = middle + step;
+					orientations[t] = (byte) o;
+					counts[middle - step]++;
+					counts[middle]++;
+					counts[middle + step]++;
+					t++;
+				}
+			}
+		}
+
+		cellOffsets = new int[cellCount + 1];
+		for (int cell = 0; cell < cellCount; cell++)
+		{
+			cellOffsets[cell + 1] = cellOffsets[cell] + counts[cell];
+		}
+
+		// Second pass: scatter the triples into their cells' ranges, reusing counts as fill positions.
+		cellTriples = new int[tripleCount * 3];
+		System.arraycopy(cellOffsets, 0, counts, 0, cellCount);
+
+		for (int i = 0; i < tripleCount * 3; i++)
+		{
+			cellTriples[counts[tripleCells[i]]++] = i / 3;
+		}
+
+		// SplitMix64.
+		zobristKeys = new long[cellCount * 2];
+		long seed = (long) width << 32 | height;
+		for (int i = 0; i < zobristKeys.length; i++)
+		{
+			long z = seed += 0x9E3779B97F4A7C15L;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			zobristKeys[i] = z ^ (z >>> 31);
+		}
+
+		symmetryCount = width == height ? 8 : 4;
+		symmetryCells = new int[symmetryCount * cellCount];
+		inverseSymmetryCells = new int[symmetryCount * cellCount];
+		symmetryKeys = new long[cellCount * 2 * symmetryCount];
+
+		for (int s = 0; s < symmetryCount; s++)
+		{
+			for (int cell = 0; cell < cellCount; cell++)
+			{
+				final int column = cell % width;
+				final int row = cell / width;
+				final int x = (s & 4) == 0 ? column : row;
+				final int y = (s & 4) == 0 ? row : column;
+				final int image = ((s & 2) == 0 ? y : height - 1 - y) * width + ((s & 1) == 0 ? x : width - 1 - x);
+				symmetryCells[s * cellCount + cell] = image;
+				inverseSymmetryCells[s * cellCount + image] = cell;
+				symmetryKeys[(cell * 2) * symmetryCount + s] = zobristKeys[image * 2];
+				symmetryKeys[(cell * 2 + 1) * symmetryCount + s] = zobristKeys[image * 2 + 1];
+			}
+		}
+	}
+
+	/** @return Index into the cell's triples of its first triple. Its triples run up to getTriplesEnd(cell). */
+	public int getTriplesStart(final int cell)
+	{
+		return cellOffsets[cell];
+	}
+
+	/** @return One past the index of the cell's last triple. */
+	public int getTriplesEnd(final int cell)
+	{
+		return cellOffsets[cell + 1];
+	}
+
+	/** @return The triple at an index between getTriplesStart() and getTriplesEnd() of some cell. */
+	public int getTriple(final int index)
+	{
+		return cellTriples[index];
+	}
+
+	/**
+	 * @param triple The triple.
+	 * @param position 0 for the first cell, 1 for the middle, 2 for the last.
+	 * @return The cell at that position.
+	 */
+	public int getCell(final int triple, final int position)
+	{
+		return tripleCells[triple * 3 + position];
+	}
+
+	/** @return The Zobrist key of a letter in a cell. */
+	public long getZobristKey(final int cell, final int letter)
+	{
+		return zobristKeys[cell * 2 + (letter == SosBoard.O ? 1 : 0)];
+	}
+
+	/** @return The cell that a symmetry takes a cell to. */
+	public int transformCell(final int symmetry, final int cell)
+	{
+		return symmetryCells[symmetry * cellCount + cell];
+	}
+
+	/** @return The cell that a symmetry takes to the given cell. */
+	public int inverseTransformCell(final int symmetry, final int cell)
+	{
+		return inverseSymmetryCells[symmetry * cellCount + cell];
+	}
+
+	/** @return HORIZONTAL, VERTICAL, DIAGONAL or ANTI_DIAGONAL. */
+	public int getOrientation(final int triple)
+	{
+		return orientations[triple];
+	}
+}
@@ -0,0 +1,368 @@
+package com.example.sosgame1;
+
+/**
+ * Finds the longest run of extra turns ("combo") the player to move can string together: the sequence of scoring
+ * moves that wins the most points before a quiet move has to be made. Quiet moves are never searched, which is what
+ * makes this cheap enough for move ordering and for hints.
+ * <p>
+ * Scoring moves are found from the triples: one with two cells already right and the third empty is completed by a
+ * single move. Filled cells stay filled, so a scoring move stays a scoring move until its cell is taken; after each
+ * move only the triples through its cell need to be looked at for new ones. The points a chain can still win depend
+ * on the cells alone, so results are memoised by Zobrist hash and shared between transpositions, later searches and
+ * later positions of the same game.
+ * <p>
+ * Moves are encoded as in AlphaBetaSearch. Not thread safe.
+ */
+public class ComboSearch
+{
+	private final TranspositionTable memo;
+
+	private SosBoard board;
+
+	/** Scoring move lists, one per ply, grown on demand. */
+	private int[][] moveLists = new int[0][];
+
+	/** seen[move] == stamp marks a move already in the list being built. */
+	private int[] seen = new int[0];
+	private int stamp = 0;
+
+	private long nodeLimit;
+	private boolean complete;
+
+	/** Results and statistics of the last search. */
+	private int bestMove = AlphaBetaSearch.NO_MOVE;
+	private int rootMove = AlphaBetaSearch.NO_MOVE;
+	private int bestPoints = 0;
+	private long nodes = 0;
+
+	/**
+	 * @param memoLog2Size Base 2 logarithm of the number of memo slots, 16 bytes each.
+	 */
+	public ComboSearch(final int memoLog2Size)
+	{
+		memo = new TranspositionTable(memoLog2Size);
+	}
+
+	/**
+	 * Find the best chain of scoring moves for the player to move.
+	 *
+	 * @param board The position. Left as it was when the search returns.
+	 * @param nodeLimit Positions to visit at most, or 0 for no limit. A search that hits the limit returns the best
+	 *        chain seen so far; see isComplete().
+	 * @return The points the best chain wins, 0 if there is no scoring move.
+	 */
+	public int search(final SosBoard board, final long nodeLimit)
+	{
+		this.board = board;
+		this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+		complete = true;
+		nodes = 0;
+
+		if (seen.length < board.getCellCount() * 2)
+		{
+			seen = new int[board.getCellCount() * 2];
+		}
+
+		final long entry = memo.probe(board.getHash());
+
+		if (entry != 0)
+		{
+			bestPoints = TranspositionTable.getValue(entry);
+			bestMove = TranspositionTable.getMove(entry);
+		}
+		else
+		{
+			bestPoints = chain(0, findScoringMoves(getMoveList(0)));
+			bestMove = rootMove;
+		}
+
+		this.board = null;
+		return bestPoints;
+	}
+
+	/**
+	 * Try every scoring move in the list, continuing each with the scoring moves of the position after it.
+	 *
+	 * @param count Number of moves in the ply's list.
+	 * @return The most points a chain from here wins.
+	 */
+	private int chain(final int ply, final int count)
+	{
+		nodes++;
+		final long key = board.getHash();
+
+		if (ply > 0)
+		{
+			final long entry = memo.probe(key);
+
+			if (entry != 0)
+			{
+				return TranspositionTable.getValue(entry);
+			}
+		}
+
+		final int[] moves = moveLists[ply];
+		int best = 0;
+		int bestMoveHere = AlphaBetaSearch.NO_MOVE;
+		int first = 0;
+		int end = count;
+
+		// Filling cells never breaks a line, so a move whose cell can never score with the other letter belongs in
+		// some best chain, and may as well come first. Then it is the only move worth trying here.
+		for (int i = 0; i < count; i++)
+		{
+			final int move = moves[i];
+			final int otherLetter = SosBoard.S + SosBoard.O - AlphaBetaSearch.getMoveLetter(move);
+
+			if (!canScore(AlphaBetaSearch.getMoveCell(move), otherLetter))
+			{
+				first = i;
+				end = i + 1;
+				break;
+			}
+		}
+
+		for (int i = first; i < end; i++)
+		{
+			if (nodes >= nodeLimit)
+			{
+				complete = false;
+				break;
+			}
+
+			final int move = moves[i];
+			final int cell = AlphaBetaSearch.getMoveCell(move);
+			final int points = board.play(cell, AlphaBetaSearch.getMoveLetter(move));
+			final int value = points + chain(ply + 1, followScoringMoves(moves, count, cell, getMoveList(ply + 1)));
+			board.undo();
+
+			if (value > best)
+			{
+				best = value;
+				bestMoveHere = move;
+			}
+		}
+
+		// A cut short search only found a lower bound, which must not be remembered as the answer.
+		if (complete)
+		{
+			memo.store(key, best, 0, TranspositionTable.EXACT, bestMoveHere);
+		}
+
+		if (ply == 0)
+		{
+			rootMove = bestMoveHere;
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return False if placing the letter in the cell can never complete a line, whatever is played elsewhere.
+	 */
+	private boolean canScore(final int cell, final int letter)
+	{
+		final BoardGeometry geometry = board.getGeometry();
+		final int[] cells = geometry.tripleCells;
+		final int end = geometry.cellOffsets[cell + 1];
+
+		for (int i = geometry.cellOffsets[cell]; i < end; i++)
+		{
+			final int t = geometry.cellTriples[i] * 3;
+			final int first = cells[t];
+			final int middle = cells[t + 1];
+			final int last = cells[t + 2];
+
+			if ((letter == SosBoard.O) == (cell == middle)
+					&& (cell == first || fits(first, SosBoard.S))
+					&& (cell == middle || fits(middle, SosBoard.O))
+					&& (cell == last || fits(last, SosBoard.S)))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/** @return True if the cell holds the letter or may still get it. */
+	private boolean fits(final int cell, final int letter)
+	{
+		final int current = board.get(cell);
+		return current == SosBoard.EMPTY || current == letter;
+	}
+
+	/**
+	 * List every scoring move of the position by looking at all triples.
+	 *
+	 * @return Number of moves.
+	 */
+	private int findScoringMoves(final int[] moves)
+	{
+		stamp++;
+		int count = 0;
+
+		for (int t = board.getGeometry().tripleCount - 1; t >= 0; t--)
+		{
+			count = addCompletion(t, moves, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * List the scoring moves after a move: those of the position before it, minus the two for the cell just filled,
+	 * plus those completing a triple through that cell.
+	 *
+	 * @return Number of moves.
+	 */
+	private int followScoringMoves(final int[] previous, final int previousCount, final int cell, final int[] moves)
+	{
+		stamp++;
+		int count = 0;
+
+		for (int i = 0; i < previousCount; i++)
+		{
+			final int move = previous[i];
+
+			if (AlphaBetaSearch.getMoveCell(move) != cell)
+			{
+				seen[move] = stamp;
+				moves[count++] = move;
+			}
+		}
+
+		final BoardGeometry geometry = board.getGeometry();
+		final int end = geometry.cellOffsets[cell + 1];
+
+		for (int i = geometry.cellOffsets[cell]; i < end; i++)
+		{
+			count = addCompletion(geometry.cellTriples[i], moves, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Add the move completing a triple, if the triple has exactly one empty cell and the other two are right.
+	 *
+	 * @return The new number of moves.
+	 */
+	private int addCompletion(final int triple, final int[] moves, int count)
+	{
+		final int[] cells = board.getGeometry().tripleCells;
+		final int first = cells[triple * 3];
+		final int middle = cells[triple * 3 + 1];
+		final int last = cells[triple * 3 + 2];
+		final int firstLetter = board.get(first);
+		final int middleLetter = board.get(middle);
+		final int lastLetter = board.get(last);
+		final int move;
+
+		if (firstLetter == SosBoard.EMPTY && middleLetter == SosBoard.O && lastLetter == SosBoard.S)
+		{
+			move = AlphaBetaSearch.encodeMove(first, SosBoard.S);
+		}
+		else if (lastLetter == SosBoard.EMPTY && firstLetter == SosBoard.S && middleLetter == SosBoard.O)
+		{
+			move = AlphaBetaSearch.encodeMove(last, SosBoard.S);
+		}
+		else if (middleLetter == SosBoard.EMPTY && firstLetter == SosBoard.S && lastLetter == SosBoard.S)
+		{
+			move = AlphaBetaSearch.encodeMove(middle, SosBoard.O);
+		}
+		else
+		{
+			return count;
+		}
+
+		if (seen[move] != stamp)
+		{
+			seen[move] = stamp;
+			moves[count++] = move;
+		}
+
+		return count;
+	}
+
+	private int[] getMoveList(final int ply)
+	{
+		if (ply >= moveLists.length)
+		{
+			final int[][] grown = new int[ply + 1][];
+			System.arraycopy(moveLists, 0, grown, 0, moveLists.length);
+			moveLists = grown;
+		}
+
+		if (moveLists[ply] == null || moveLists[ply].length < board.getCellCount() * 2)
+		{
+			moveLists[ply] = new int[board.getCellCount() * 2];
+		}
+
+		return moveLists[ply];
+	}
+
+	/**
+	 * Find the best chain in full, for showing as a hint. Every position along it is searched without a node limit,
+	 * which costs little once the first search has filled the memo. Afterwards the results are those of the first
+	 * position.
+	 *
+	 * @param board The position. Left as it was.
+	 * @param chain Receives the moves in order. Needs room for one move per empty cell.
+	 * @return Number of moves written.
+	 */
+	public int findChain(final SosBoard board, final int[] chain)
+	{
+		final int points = search(board, 0);
+		final int first = bestMove;
+		final long firstNodes = nodes;
+		int length = 0;
+
+		for (int move = first; move != AlphaBetaSearch.NO_MOVE; move = bestMove)
+		{
+			chain[length++] = move;
+			board.play(AlphaBetaSearch.getMoveCell(move), AlphaBetaSearch.getMoveLetter(move));
+			search(board, 0);
+		}
+
+		for (int i = 0; i < length; i++)
+		{
+			board.undo();
+		}
+
+		bestPoints = points;
+		bestMove = first;
+		nodes = firstNodes;
+		return length;
+	}
+
+	/** @return The memo, e.g. to clear it between games. */
+	public TranspositionTable getMemo()
+	{
+		return memo;
+	}
+
+	/** @return First move of the best chain of the last search, or NO_MOVE if there is no scoring move. */
+	public int getBestMove()
+	{
+		return bestMove;
+	}
+
+	/** @return Points won by the best chain of the last search. */
+	public int getBestPoints()
+	{
+		return bestPoints;
+	}
+
+	/** @return False if the last search hit its node limit. */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	/** @return Positions visited by the last search. */
+	public long getNodes()
+	{
+		return nodes;
+	}
+}
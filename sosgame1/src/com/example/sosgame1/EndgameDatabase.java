@@ -0,0 +1,133 @@
+package com.example.sosgame1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Exact values of positions of one board size, read from a file written by EndgameSolver. The file is mapped into
+ * memory with FileChannel.map(), so opening it reads nothing and a lookup touches only the page holding the value.
+ * <p>
+ * File layout, big endian: a header of eight ints (MAGIC, VERSION, width, height, maxEmptyCells, bitsPerValue,
+ * valueOffset, 0), then the values as longs, bitsPerValue bits per position, in position index order starting at the
+ * low bits. A value is stored plus valueOffset; the all ones code marks positions that were not solved. See
+ * EndgameSolver for the position index and the meaning of values. Lookups are thread safe.
+ * <p>
+ * The index is dense, so only boards of up to EndgameSolver.MAX_CELLS cells have a database; the game's 5x5 board
+ * does not.
+ */
+public class EndgameDatabase
+{
+	/** "SOSD". */
+	static final int MAGIC = 0x534F5344;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+
+	/** Returned by getValue() for positions the database does not hold. */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	private final MappedByteBuffer data;
+	private final int width;
+	private final int height;
+	private final int maxEmptyCells;
+	private final int bitsPerValue;
+	private final int valueOffset;
+	private final long mask;
+
+	/**
+	 * Map a database file.
+	 *
+	 * @throws IOException If the file cannot be read or is not a database.
+	 */
+	public static EndgameDatabase open(final File file) throws IOException
+	{
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+
+		try
+		{
+			final FileChannel channel = in.getChannel();
+			// The mapping stays valid after the channel is closed.
+			return new EndgameDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private EndgameDatabase(final MappedByteBuffer data) throws IOException
+	{
+		this.data = data;
+
+		if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION)
+		{
+			throw new IOException("Not an endgame database.");
+		}
+
+		width = data.getInt(8);
+		height = data.getInt(12);
+		maxEmptyCells = data.getInt(16);
+		bitsPerValue = data.getInt(20);
+		valueOffset = data.getInt(24);
+		mask = (1L << bitsPerValue) - 1;
+
+		final long positions = (long) Math.pow(3, width * height);
+		if (width * height > EndgameSolver.MAX_CELLS
+				|| data.capacity() < HEADER_BYTES + ((positions * bitsPerValue + 63) >>> 6) * 8)
+		{
+			throw new IOException("Endgame database is truncated.");
+		}
+	}
+
+	/** @return Bits needed for values from -valueOffset to valueOffset, plus the unknown code. */
+	static int getBitsPerValue(final int valueOffset)
+	{
+		return 32 - Integer.numberOfLeadingZeros(2 * valueOffset + 1);
+	}
+
+	/** @return True if the database is for boards of this size. */
+	public boolean covers(final SosBoard board)
+	{
+		return board.getWidth() == width && board.getHeight() == height;
+	}
+
+	/** @return Positions with up to this many empty cells are in the database. */
+	public int getMaxEmptyCells()
+	{
+		return maxEmptyCells;
+	}
+
+	/**
+	 * @param board A position of the database's board size.
+	 * @return Its exact value for the player to move, or UNKNOWN if it has too many empty cells.
+	 */
+	public int getValue(final SosBoard board)
+	{
+		int index = 0;
+		for (int cell = board.getCellCount() - 1; cell >= 0; cell--)
+		{
+			index = index * 3 + board.get(cell);
+		}
+
+		return getValue(index);
+	}
+
+	/** @return The value of the position with the given index, or UNKNOWN. */
+	public int getValue(final int index)
+	{
+		final long bit = (long) index * bitsPerValue;
+		final int word = (int) (bit >>> 6);
+		final int shift = (int) (bit & 63);
+		long code = data.getLong(HEADER_BYTES + word * 8) >>> shift;
+
+		if (shift + bitsPerValue > 64)
+		{
+			code |= data.getLong(HEADER_BYTES + (word + 1) * 8) << (64 - shift);
+		}
+
+		code &= mask;
+		return code == mask ? UNKNOWN : (int) code - valueOffset;
+	}
+}
@@ -0,0 +1,332 @@
+package com.example.sosgame1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves every position of a small board exactly and writes the values to an EndgameDatabase file.
+ * <p>
+ * A position is indexed by reading its cells as a base 3 number, EMPTY, S and O being the digits and cell 0 the
+ * lowest one, so every arrangement of letters has its own slot and no ranking is needed. The value of a position is
+ * the same as in AlphaBetaSearch: the points the player to move will still win minus the opponent's, with perfect play
+ * by both. It only depends on the cells, so the positions are solved retrograde, one layer of filled cell count at a
+ * time from the full board down, every move leading to a position of the layer before. The positions of a layer do
+ * not depend on each other and are shared out between threads.
+ * <p>
+ * Run as a program to build a database file: EndgameSolver width height maxEmptyCells file [threads]
+ */
+public class EndgameSolver
+{
+	/** Largest board that can be solved: 3^16 positions, one byte each while solving. */
+	public static final int MAX_CELLS = 16;
+
+	private final BoardGeometry geometry;
+	private final int cellCount;
+	private final int positionCount;
+
+	/** pow3[cell] is the index step of the cell's digit. */
+	private final int[] pow3;
+
+	/** Value of every position solved so far. */
+	private final byte[] values;
+
+	/**
+	 * @param width Number of columns.
+	 * @param height Number of rows. At most MAX_CELLS cells in all.
+	 */
+	public EndgameSolver(final int width, final int height)
+	{
+		geometry = BoardGeometry.get(width, height);
+		cellCount = geometry.cellCount;
+
+		if (cellCount > MAX_CELLS)
+		{
+			throw new IllegalArgumentException("Board too big to solve: " + width + "x" + height);
+		}
+
+		pow3 = new int[cellCount + 1];
+		pow3[0] = 1;
+		for (int cell = 0; cell < cellCount; cell++)
+		{
+			pow3[cell + 1] = pow3[cell] * 3;
+		}
+
+		positionCount = pow3[cellCount];
+		values = new byte[positionCount];
+	}
+
+	/**
+	 * Solve all positions with at most maxEmptyCells empty cells.
+	 *
+	 * @param threads Number of threads to solve each layer with.
+	 */
+	public void solve(final int maxEmptyCells, final int threads)
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try
+		{
+			// Full boards are worth 0, which the array already holds.
+			final int chunks = threads * 4;
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>(chunks);
+
+			for (int filled = cellCount - 1; filled >= cellCount - maxEmptyCells && filled >= 0; filled--)
+			{
+				futures.clear();
+
+				for (int chunk = 0; chunk < chunks; chunk++)
+				{
+					final int start = (int) ((long) positionCount * chunk / chunks);
+					final int end = (int) ((long) positionCount * (chunk + 1) / chunks);
+					final int layer = filled;
+
+					futures.add(executor.submit(new Callable<Void>()
+					{
+						public Void call()
+						{
+							solveRange(layer, start, end);
+							return null;
+						}
+					}));
+				}
+
+				for (int i = 0; i < futures.size(); i++)
+				{
+					futures.get(i).get();
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving.", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("Solver thread failed.", e.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Solve the positions of one layer in a range of indexes, stepping through the range like an odometer so that the
+	 * cells of each position are at hand.
+	 */
+	private void solveRange(final int filled, final int start, final int end)
+	{
+		final int[] digits = new int[cellCount];
+		int count = 0;
+		int rest = start;
+
+		for (int cell = 0; cell < cellCount; cell++)
+		{
+			digits[cell] = rest % 3;
+			rest /= 3;
+
+			if (digits[cell] != SosBoard.EMPTY)
+			{
+				count++;
+			}
+		}
+
+		for (int index = start; index < end; index++)
+		{
+			if (count == filled)
+			{
+				values[index] = (byte) solvePosition(digits, index);
+			}
+
+			// Next index: O rolls over to empty and carries.
+			int cell = 0;
+			while (cell < cellCount && digits[cell] == SosBoard.O)
+			{
+				digits[cell++] = SosBoard.EMPTY;
+				count--;
+			}
+
+			if (cell < cellCount)
+			{
+				if (digits[cell]++ == SosBoard.EMPTY)
+				{
+					count++;
+				}
+			}
+		}
+	}
+
+	/** @return The best value over all moves, from the values of the positions after them. */
+	private int solvePosition(final int[] digits, final int index)
+	{
+		int best = Integer.MIN_VALUE;
+
+		for (int cell = 0; cell < cellCount; cell++)
+		{
+			if (digits[cell] != SosBoard.EMPTY)
+			{
+				continue;
+			}
+
+			for (int letter = SosBoard.S; letter <= SosBoard.O; letter++)
+			{
+				digits[cell] = letter;
+				final int points = countLines(digits, cell);
+				digits[cell] = SosBoard.EMPTY;
+
+				final int after = values[index + letter * pow3[cell]];
+				final int value = points > 0 ? points + after : -after;
+
+				if (value > best)
+				{
+					best = value;
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/** @return Number of complete lines through a cell. */
+	private int countLines(final int[] digits, final int cell)
+	{
+		final int[] cells = geometry.tripleCells;
+		final int end = geometry.cellOffsets[cell + 1];
+		int count = 0;
+
+		for (int i = geometry.cellOffsets[cell]; i < end; i++)
+		{
+			final int t = geometry.cellTriples[i] * 3;
+
+			if (digits[cells[t]] == SosBoard.S && digits[cells[t + 1]] == SosBoard.O
+					&& digits[cells[t + 2]] == SosBoard.S)
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/** @return The value of a solved position. */
+	public int getValue(final int index)
+	{
+		return values[index];
+	}
+
+	/**
+	 * Write the solved positions as an EndgameDatabase file.
+	 *
+	 * @param maxEmptyCells As passed to solve(). Positions with more empty cells are stored as unknown.
+	 */
+	public void write(final File file, final int maxEmptyCells) throws IOException
+	{
+		final int valueOffset = geometry.tripleCount;
+		final int bitsPerValue = EndgameDatabase.getBitsPerValue(valueOffset);
+		final int unknown = (1 << bitsPerValue) - 1;
+		final long[] words = new long[(int) (((long) positionCount * bitsPerValue + 63) >>> 6)];
+		final int minFilled = cellCount - maxEmptyCells;
+		int filled = 0;
+
+		for (int index = 0; index < positionCount; index++)
+		{
+			// Same odometer as solveRange(), reduced to the filled count: each carry empties a cell.
+			if (index > 0)
+			{
+				int rest = index;
+				while (rest % 3 == 0)
+				{
+					filled--;
+					rest /= 3;
+				}
+				if (rest % 3 == 1)
+				{
+					filled++;
+				}
+			}
+
+			final long code = filled >= minFilled ? values[index] + valueOffset : unknown;
+			final long bit = (long) index * bitsPerValue;
+			final int word = (int) (bit >>> 6);
+			final int shift = (int) (bit & 63);
+			words[word] |= code << shift;
+
+			if (shift + bitsPerValue > 64)
+			{
+				words[word + 1] |= code >>> (64 - shift);
+			}
+		}
+
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+
+		try
+		{
+			out.setLength(0);
+			final FileChannel channel = out.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(EndgameDatabase.HEADER_BYTES);
+			header.putInt(EndgameDatabase.MAGIC).putInt(EndgameDatabase.VERSION);
+			header.putInt(geometry.width).putInt(geometry.height).putInt(maxEmptyCells);
+			header.putInt(bitsPerValue).putInt(valueOffset).putInt(0);
+			header.flip();
+			channel.write(header);
+
+			final ByteBuffer data = ByteBuffer.allocate(64 * 1024);
+			for (int i = 0; i < words.length; i++)
+			{
+				if (!data.hasRemaining())
+				{
+					data.flip();
+					channel.write(data);
+					data.clear();
+				}
+
+				data.putLong(words[i]);
+			}
+
+			data.flip();
+			channel.write(data);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/** Build a database file from the command line and report how long it took and how big it is. */
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length < 4)
+		{
+			System.err.println("Usage: EndgameSolver width height maxEmptyCells file [threads]");
+			System.exit(2);
+		}
+
+		final int width = Integer.parseInt(args[0]);
+		final int height = Integer.parseInt(args[1]);
+		final int maxEmptyCells = Math.min(Integer.parseInt(args[2]), width * height);
+		final File file = new File(args[3]);
+		final int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		final long start = System.nanoTime();
+		final EndgameSolver solver = new EndgameSolver(width, height);
+		solver.solve(maxEmptyCells, threads);
+		final long solved = System.nanoTime();
+		solver.write(file, maxEmptyCells);
+		final long written = System.nanoTime();
+
+		System.out.println(width + "x" + height + ", up to " + maxEmptyCells + " empty cells, " + threads
+				+ " threads: solved in " + (solved - start) / 1000000 + " ms, written in " + (written - solved) / 1000000
+				+ " ms, " + file.length() + " bytes");
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.sosgame1;
+
+/**
+ * The six clipping planes of a camera, for throwing away objects that cannot be on screen before any work is spent on
+ * them. The planes are read straight off the rows of the view-projection matrix (Gribb and Hartmann), so they are in
+ * world space and need no normalising: the tests below only look at signs. Plain Java with no Android dependencies.
+ */
+public class Frustum
+{
+	/** Left, right, bottom, top, near, far; each as a, b, c, d with a * x + b * y + c * z + d >= 0 inside. */
+	private final float[] planes = new float[24];
+
+	private final float[] viewProjection = new float[16];
+
+	/**
+	 * Rebuild the planes for a camera.
+	 *
+	 * @param viewMatrix The affine view matrix.
+	 * @param projectionMatrix The projection matrix.
+	 */
+	public void set(final float[] viewMatrix, final float[] projectionMatrix)
+	{
+		final float[] m = viewProjection;
+		MatrixMath.multiplyProjectiveAffine(m, projectionMatrix, viewMatrix);
+
+		for (int i = 0; i < 3; i++)
+		{
+			// Row 3 plus or minus row i, the matrix being column major.
+			setPlane(i * 2, m[3] + m[i], m[7] + m[4 + i], m[11] + m[8 + i], m[15] + m[12 + i]);
+			setPlane(i * 2 + 1, m[3] - m[i], m[7] - m[4 + i], m[11] - m[8 + i], m[15] - m[12 + i]);
+		}
+	}
+
+	private void setPlane(final int plane, final float a, final float b, final float c, final float d)
+	{
+		planes[plane * 4] = a;
+		planes[plane * 4 + 1] = b;
+		planes[plane * 4 + 2] = c;
+		planes[plane * 4 + 3] = d;
+	}
+
+	/**
+	 * Test an axis aligned box. Conservative: a box near a corner of the frustum may pass without being visible.
+	 *
+	 * @param bounds The box as minX, minY, minZ, maxX, maxY, maxZ in world space.
+	 * @param offset Index of minX in bounds.
+	 * @return False if the box is certainly outside.
+	 */
+	public boolean intersectsBox(final float[] bounds, final int offset)
+	{
+		for (int plane = 0; plane < 24; plane += 4)
+		{
+			final float a = planes[plane];
+			final float b = planes[plane + 1];
+			final float c = planes[plane + 2];
+
+			// The corner furthest along the plane normal. If even that one is outside, the whole box is.
+			final float x = a >= 0 ? bounds[offset + 3] : bounds[offset];
+			final float y = b >= 0 ? bounds[offset + 4] : bounds[offset + 1];
+			final float z = c >= 0 ? bounds[offset + 5] : bounds[offset + 2];
+
+			if (a * x + b * y + c * z + planes[plane + 3] < 0)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
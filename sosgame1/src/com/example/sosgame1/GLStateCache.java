@@ -0,0 +1,354 @@
+package com.example.sosgame1;
+
+import android.opengl.GLES20;
+
+/**
+ * Tracks the GL state we change while drawing and drops calls that would not change anything. All draw code should
+ * go through this class rather than calling GLES20 directly, otherwise the shadow state goes stale.
+ * <p>
+ * Every state is initially unknown, so the first call always reaches the driver. Call {@link #invalidate()} whenever
+ * a new EGL context is created.
+ */
+public class GLStateCache
+{
+	/** Marks a cached value as unknown. */
+	private static final int UNKNOWN = -1;
+
+	/** Enough for any ES 2.0 device we target; GL guarantees at least 8. */
+	private static final int MAX_TEXTURE_UNITS = 8;
+	private static final int MAX_VERTEX_ATTRIBS = 16;
+
+	private ShaderProgram currentProgram;
+	private int activeTextureUnit;
+	private final int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+	private int boundArrayBuffer;
+	private int boundElementArrayBuffer;
+
+	/** Capability flags: UNKNOWN, 0 (disabled) or 1 (enabled). */
+	private int blendEnabled;
+	private int depthTestEnabled;
+	private int cullFaceEnabled;
+	private int blendSrc;
+	private int blendDst;
+
+	/** Vertex attribute array state, indexed by attribute location. */
+	private final int[] attribEnabled = new int[MAX_VERTEX_ATTRIBS];
+	private final int[] attribBuffer = new int[MAX_VERTEX_ATTRIBS];
+	private final int[] attribSize = new int[MAX_VERTEX_ATTRIBS];
+	private final int[] attribType = new int[MAX_VERTEX_ATTRIBS];
+	private final boolean[] attribNormalized = new boolean[MAX_VERTEX_ATTRIBS];
+	private final int[] attribStride = new int[MAX_VERTEX_ATTRIBS];
+	private final int[] attribOffset = new int[MAX_VERTEX_ATTRIBS];
+
+	/** Number of calls passed to GL and number dropped as redundant since the last reset. */
+	private int issuedCalls;
+	private int skippedCalls;
+
+	public GLStateCache()
+	{
+		invalidate();
+	}
+
+	/**
+	 * Forget all cached state. Must be called from onSurfaceCreated(), since a new context starts with default state.
+	 */
+	public void invalidate()
+	{
+		currentProgram = null;
+		activeTextureUnit = UNKNOWN;
+		boundArrayBuffer = UNKNOWN;
+		boundElementArrayBuffer = UNKNOWN;
+		blendEnabled = UNKNOWN;
+		depthTestEnabled = UNKNOWN;
+		cullFaceEnabled = UNKNOWN;
+		blendSrc = UNKNOWN;
+		blendDst = UNKNOWN;
+
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++)
+		{
+			boundTextures[i] = UNKNOWN;
+		}
+
+		for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++)
+		{
+			attribEnabled[i] = UNKNOWN;
+			attribBuffer[i] = UNKNOWN;
+		}
+	}
+
+	/** Make a program current. */
+	public void useProgram(final ShaderProgram program)
+	{
+		if (program == currentProgram)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glUseProgram(program.programHandle);
+		currentProgram = program;
+		issuedCalls++;
+	}
+
+	/** @return The current program, or null if unknown. */
+	public ShaderProgram getCurrentProgram()
+	{
+		return currentProgram;
+	}
+
+	/**
+	 * Bind a 2D texture to a texture unit.
+	 *
+	 * @param unit Texture unit index, i.e. 0 for GL_TEXTURE0.
+	 * @param textureHandle The texture.
+	 */
+	public void bindTexture(final int unit, final int textureHandle)
+	{
+		if (boundTextures[unit] == textureHandle)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		if (activeTextureUnit != unit)
+		{
+			GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + unit);
+			activeTextureUnit = unit;
+			issuedCalls++;
+		}
+		else
+		{
+			skippedCalls++;
+		}
+
+		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureHandle);
+		boundTextures[unit] = textureHandle;
+		issuedCalls++;
+	}
+
+	/** Bind a buffer to GL_ARRAY_BUFFER. */
+	public void bindArrayBuffer(final int bufferHandle)
+	{
+		if (boundArrayBuffer == bufferHandle)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, bufferHandle);
+		boundArrayBuffer = bufferHandle;
+		issuedCalls++;
+	}
+
+	/** Bind a buffer to GL_ELEMENT_ARRAY_BUFFER. */
+	public void bindElementArrayBuffer(final int bufferHandle)
+	{
+		if (boundElementArrayBuffer == bufferHandle)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, bufferHandle);
+		boundElementArrayBuffer = bufferHandle;
+		issuedCalls++;
+	}
+
+	/** Enable or disable GL_BLEND. */
+	public void setBlend(final boolean enabled)
+	{
+		blendEnabled = setCapability(GLES20.GL_BLEND, blendEnabled, enabled);
+	}
+
+	/** Enable or disable GL_DEPTH_TEST. */
+	public void setDepthTest(final boolean enabled)
+	{
+		depthTestEnabled = setCapability(GLES20.GL_DEPTH_TEST, depthTestEnabled, enabled);
+	}
+
+	/** Enable or disable GL_CULL_FACE. */
+	public void setCullFace(final boolean enabled)
+	{
+		cullFaceEnabled = setCapability(GLES20.GL_CULL_FACE, cullFaceEnabled, enabled);
+	}
+
+	private int setCapability(final int capability, final int current, final boolean enabled)
+	{
+		final int wanted = enabled ? 1 : 0;
+
+		if (current == wanted)
+		{
+			skippedCalls++;
+			return current;
+		}
+
+		if (enabled)
+		{
+			GLES20.glEnable(capability);
+		}
+		else
+		{
+			GLES20.glDisable(capability);
+		}
+
+		issuedCalls++;
+		return wanted;
+	}
+
+	/** Set the blend function. */
+	public void blendFunc(final int src, final int dst)
+	{
+		if (blendSrc == src && blendDst == dst)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glBlendFunc(src, dst);
+		blendSrc = src;
+		blendDst = dst;
+		issuedCalls++;
+	}
+
+	/** Enable a vertex attribute array. */
+	public void enableVertexAttribArray(final int index)
+	{
+		if (index < 0)
+		{
+			return;
+		}
+
+		if (attribEnabled[index] == 1)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glEnableVertexAttribArray(index);
+		attribEnabled[index] = 1;
+		issuedCalls++;
+	}
+
+	/** Disable a vertex attribute array. */
+	public void disableVertexAttribArray(final int index)
+	{
+		if (index < 0)
+		{
+			return;
+		}
+
+		if (attribEnabled[index] == 0)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glDisableVertexAttribArray(index);
+		attribEnabled[index] = 0;
+		issuedCalls++;
+	}
+
+	/**
+	 * Point a vertex attribute at a region of a buffer object. The buffer is only bound if the pointer actually
+	 * changes.
+	 *
+	 * @param index Attribute location. Ignored if the program does not use the attribute.
+	 * @param bufferHandle The buffer object holding the data.
+	 */
+	public void vertexAttribPointer(final int index, final int bufferHandle, final int size, final int type,
+			final boolean normalized, final int stride, final int offset)
+	{
+		if (index < 0)
+		{
+			return;
+		}
+
+		if (attribBuffer[index] == bufferHandle && attribSize[index] == size && attribType[index] == type
+				&& attribNormalized[index] == normalized && attribStride[index] == stride && attribOffset[index] == offset)
+		{
+			skippedCalls++;
+			return;
+		}
+
+		bindArrayBuffer(bufferHandle);
+		GLES20.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+		attribBuffer[index] = bufferHandle;
+		attribSize[index] = size;
+		attribType[index] = type;
+		attribNormalized[index] = normalized;
+		attribStride[index] = stride;
+		attribOffset[index] = offset;
+		issuedCalls++;
+	}
+
+	/** Set an integer uniform on the current program. */
+	public void uniform1i(final int location, final int value)
+	{
+		if (!currentProgram.cacheUniform(location, value))
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glUniform1i(location, value);
+		issuedCalls++;
+	}
+
+	/** Set a float uniform on the current program. */
+	public void uniform1f(final int location, final float value)
+	{
+		if (!currentProgram.cacheUniform(location, value))
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glUniform1f(location, value);
+		issuedCalls++;
+	}
+
+	/** Set a vec3 uniform on the current program. */
+	public void uniform3f(final int location, final float x, final float y, final float z)
+	{
+		if (!currentProgram.cacheUniform(location, x, y, z))
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glUniform3f(location, x, y, z);
+		issuedCalls++;
+	}
+
+	/** Set a mat4 uniform on the current program. */
+	public void uniformMatrix4fv(final int location, final float[] matrix, final int offset)
+	{
+		if (!currentProgram.cacheUniform(location, matrix, offset))
+		{
+			skippedCalls++;
+			return;
+		}
+
+		GLES20.glUniformMatrix4fv(location, 1, false, matrix, offset);
+		issuedCalls++;
+	}
+
+	/** @return Calls passed on to GL since the last reset. */
+	public int getIssuedCalls()
+	{
+		return issuedCalls;
+	}
+
+	/** @return Calls dropped as redundant since the last reset. */
+	public int getSkippedCalls()
+	{
+		return skippedCalls;
+	}
+
+	/** Reset the issued/skipped call counters, e.g. once per frame. */
+	public void resetCounters()
+	{
+		issuedCalls = 0;
+		skippedCalls = 0;
+	}
+}
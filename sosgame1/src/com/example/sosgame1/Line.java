@@ -1,12 +1,8 @@
 package com.example.sosgame1;
 
-import android.content.Context;
-import android.opengl.GLES20;
-import android.opengl.Matrix;
 
 public class Line {
 
-	private final Context activityContext;
 	private final MyGLRenderer renderer;
 	
 	public float x = 0;
@@ -17,8 +13,7 @@ public class Line {
 	public float yRotation = 0;
 	public float zRotation = 0;
 
-	public Line(Context context, MyGLRenderer renderer) {
-		activityContext = context;
+	public Line(MyGLRenderer renderer) {
 		this.renderer = renderer;
 	}
 	
@@ -40,56 +35,33 @@ public class Line {
 
 	/**
 	 * Draws a cube.
+	 * @param program The current shader program.
+	 * @param ModelMatrix The model matrix for this cube.
 	 */			
-	public void draw(float[] ModelMatrix)
+	public void draw(ShaderProgram program, float[] ModelMatrix)
 	{		
-		// Pass in the position information
-		renderer.mCubePositions.position(0);		
-        GLES20.glVertexAttribPointer(renderer.mPositionHandle, renderer.mPositionDataSize, GLES20.GL_FLOAT, false,
-        		0, renderer.mCubePositions);        
-                
-        GLES20.glEnableVertexAttribArray(renderer.mPositionHandle);        
-        
-        // Pass in the color information
-        renderer.lineColors.position(0);
-        GLES20.glVertexAttribPointer(renderer.mColorHandle, renderer.mColorDataSize, GLES20.GL_FLOAT, false,
-        		0, renderer.lineColors);        
-        
-        GLES20.glEnableVertexAttribArray(renderer.mColorHandle);
-        
-        // Pass in the normal information
-        renderer.mCubeNormals.position(0);
-        GLES20.glVertexAttribPointer(renderer.mNormalHandle, renderer.mNormalDataSize, GLES20.GL_FLOAT, false, 
-        		0, renderer.mCubeNormals);
-        
-        GLES20.glEnableVertexAttribArray(renderer.mNormalHandle);
-        
-//        // Pass in the texture coordinate information
-//        renderer.mCubeTextureCoordinates.position(0);
-//        GLES20.glVertexAttribPointer(renderer.mTextureCoordinateHandle, renderer.mTextureCoordinateDataSize, GLES20.GL_FLOAT, false, 
-//        		0, renderer.mCubeTextureCoordinates);
-//        
-//        GLES20.glEnableVertexAttribArray(renderer.mTextureCoordinateHandle);
+		// Pass in the position, color, normal and texture coordinate information from one interleaved buffer
+		renderer.mLineVertices.bind(renderer.mGLState, program);
         
 		// This multiplies the view matrix by the model matrix, and stores the result in the MVP matrix
         // (which currently contains model * view).
-        Matrix.multiplyMM(renderer.mMVPMatrix, 0, renderer.mViewMatrix, 0, ModelMatrix, 0);   
+        MatrixMath.multiplyAffine(renderer.mMVPMatrix, renderer.mViewMatrix, ModelMatrix);   
         
         // Pass in the modelview matrix.
-        GLES20.glUniformMatrix4fv(renderer.mMVMatrixHandle, 1, false, renderer.mMVPMatrix, 0);                
+        renderer.mGLState.uniformMatrix4fv(program.mvMatrixUniform, renderer.mMVPMatrix, 0);                
         
         // This multiplies the modelview matrix by the projection matrix, and stores the result in the MVP matrix
         // (which now contains model * view * projection).
-        Matrix.multiplyMM(renderer.mMVPMatrix, 0, renderer.mProjectionMatrix, 0, renderer.mMVPMatrix, 0);
+        MatrixMath.multiplyProjectiveAffine(renderer.mMVPMatrix, renderer.mProjectionMatrix, renderer.mMVPMatrix);
 
         // Pass in the combined matrix.
-        GLES20.glUniformMatrix4fv(renderer.mMVPMatrixHandle, 1, false, renderer.mMVPMatrix, 0);
+        renderer.mGLState.uniformMatrix4fv(program.mvpMatrixUniform, renderer.mMVPMatrix, 0);
         
         // Pass in the light position in eye space.        
-        GLES20.glUniform3f(renderer.mLightPosHandle, renderer.mLightPosInEyeSpace[0], renderer.mLightPosInEyeSpace[1], renderer.mLightPosInEyeSpace[2]);
+        renderer.mGLState.uniform3f(program.lightPosUniform, renderer.mLightPosInEyeSpace[0], renderer.mLightPosInEyeSpace[1], renderer.mLightPosInEyeSpace[2]);
         
         // Draw the cube.
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, 36);                               
+        renderer.mLineVertices.draw(renderer.mGLState);                               
 	}	
 	
 }
@@ -0,0 +1,349 @@
+package com.example.sosgame1;
+
+/**
+ * Matrix math on column-major float[16] matrices, the same layout GL and android.opengl.Matrix use, so results can be
+ * passed straight to glUniformMatrix4fv.
+ * <p>
+ * Most of our transforms are affine (translate, rotate, scale), i.e. their bottom row is (0, 0, 0, 1). The affine
+ * methods rely on that and skip the work a general 4x4 routine would spend on it. Only the projection matrix is a
+ * full projective matrix. Plain Java with no Android dependencies.
+ */
+public class MatrixMath
+{
+	/** Set m to the identity. */
+	public static void setIdentity(final float[] m)
+	{
+		for (int i = 0; i < 16; i++)
+		{
+			m[i] = 0.0f;
+		}
+		m[0] = m[5] = m[10] = m[15] = 1.0f;
+	}
+
+	/** Affine: m = m * translate(x, y, z). */
+	public static void translate(final float[] m, final float x, final float y, final float z)
+	{
+		m[12] += m[0] * x + m[4] * y + m[8] * z;
+		m[13] += m[1] * x + m[5] * y + m[9] * z;
+		m[14] += m[2] * x + m[6] * y + m[10] * z;
+	}
+
+	/** Affine: m = m * scale(x, y, z). */
+	public static void scale(final float[] m, final float x, final float y, final float z)
+	{
+		m[0] *= x; m[1] *= x; m[2] *= x;
+		m[4] *= y; m[5] *= y; m[6] *= y;
+		m[8] *= z; m[9] *= z; m[10] *= z;
+	}
+
+	/** Affine: m = m * rotate(angle, 1, 0, 0). Only columns 1 and 2 change. */
+	public static void rotateX(final float[] m, final float angleInDegrees)
+	{
+		final double radians = Math.toRadians(angleInDegrees);
+		final float c = (float) Math.cos(radians);
+		final float s = (float) Math.sin(radians);
+
+		for (int i = 0; i < 3; i++)
+		{
+			final float a = m[4 + i];
+			final float b = m[8 + i];
+			m[4 + i] = c * a + s * b;
+			m[8 + i] = c * b - s * a;
+		}
+	}
+
+	/** Affine: m = m * rotate(angle, 0, 1, 0). Only columns 0 and 2 change. */
+	public static void rotateY(final float[] m, final float angleInDegrees)
+	{
+		final double radians = Math.toRadians(angleInDegrees);
+		final float c = (float) Math.cos(radians);
+		final float s = (float) Math.sin(radians);
+
+		for (int i = 0; i < 3; i++)
+		{
+			final float a = m[i];
+			final float b = m[8 + i];
+			m[i] = c * a - s * b;
+			m[8 + i] = s * a + c * b;
+		}
+	}
+
+	/** Affine: m = m * rotate(angle, 0, 0, 1). Only columns 0 and 1 change. */
+	public static void rotateZ(final float[] m, final float angleInDegrees)
+	{
+		final double radians = Math.toRadians(angleInDegrees);
+		final float c = (float) Math.cos(radians);
+		final float s = (float) Math.sin(radians);
+
+		for (int i = 0; i < 3; i++)
+		{
+			final float a = m[i];
+			final float b = m[4 + i];
+			m[i] = c * a + s * b;
+			m[4 + i] = c * b - s * a;
+		}
+	}
+
+	/** Affine: m = m * rotate(angle, x, y, z) about an arbitrary axis. The axis need not be normalized. */
+	public static void rotate(final float[] m, final float angleInDegrees, float x, float y, float z)
+	{
+		final float length = (float) Math.sqrt(x * x + y * y + z * z);
+		x /= length;
+		y /= length;
+		z /= length;
+
+		final double radians = Math.toRadians(angleInDegrees);
+		final float c = (float) Math.cos(radians);
+		final float s = (float) Math.sin(radians);
+		final float t = 1.0f - c;
+
+		// Rotation matrix, r<row><column>.
+		final float r00 = t * x * x + c, r01 = t * x * y - s * z, r02 = t * x * z + s * y;
+		final float r10 = t * x * y + s * z, r11 = t * y * y + c, r12 = t * y * z - s * x;
+		final float r20 = t * x * z - s * y, r21 = t * y * z + s * x, r22 = t * z * z + c;
+
+		for (int i = 0; i < 3; i++)
+		{
+			final float a = m[i];
+			final float b = m[4 + i];
+			final float d = m[8 + i];
+			m[i] = a * r00 + b * r10 + d * r20;
+			m[4 + i] = a * r01 + b * r11 + d * r21;
+			m[8 + i] = a * r02 + b * r12 + d * r22;
+		}
+	}
+
+	/**
+	 * Affine: result = a * b, where both a and b are affine. 36 multiplies instead of 64. result may be a or b.
+	 */
+	public static void multiplyAffine(final float[] result, final float[] a, final float[] b)
+	{
+		final float a00 = a[0], a10 = a[1], a20 = a[2];
+		final float a01 = a[4], a11 = a[5], a21 = a[6];
+		final float a02 = a[8], a12 = a[9], a22 = a[10];
+		final float a03 = a[12], a13 = a[13], a23 = a[14];
+
+		for (int j = 0; j < 4; j++)
+		{
+			final float b0 = b[j * 4];
+			final float b1 = b[j * 4 + 1];
+			final float b2 = b[j * 4 + 2];
+			result[j * 4] = a00 * b0 + a01 * b1 + a02 * b2;
+			result[j * 4 + 1] = a10 * b0 + a11 * b1 + a12 * b2;
+			result[j * 4 + 2] = a20 * b0 + a21 * b1 + a22 * b2;
+		}
+
+		result[12] += a03;
+		result[13] += a13;
+		result[14] += a23;
+		result[3] = result[7] = result[11] = 0.0f;
+		result[15] = 1.0f;
+	}
+
+	/**
+	 * result = p * a, where p is any 4x4 matrix (typically a projection) and a is affine. 48 multiplies instead of 64.
+	 * result may be p or a.
+	 */
+	public static void multiplyProjectiveAffine(final float[] result, final float[] p, final float[] a)
+	{
+		final float p00 = p[0], p10 = p[1], p20 = p[2], p30 = p[3];
+		final float p01 = p[4], p11 = p[5], p21 = p[6], p31 = p[7];
+		final float p02 = p[8], p12 = p[9], p22 = p[10], p32 = p[11];
+		final float p03 = p[12], p13 = p[13], p23 = p[14], p33 = p[15];
+
+		for (int j = 0; j < 4; j++)
+		{
+			final float a0 = a[j * 4];
+			final float a1 = a[j * 4 + 1];
+			final float a2 = a[j * 4 + 2];
+			result[j * 4] = p00 * a0 + p01 * a1 + p02 * a2;
+			result[j * 4 + 1] = p10 * a0 + p11 * a1 + p12 * a2;
+			result[j * 4 + 2] = p20 * a0 + p21 * a1 + p22 * a2;
+			result[j * 4 + 3] = p30 * a0 + p31 * a1 + p32 * a2;
+		}
+
+		result[12] += p03;
+		result[13] += p13;
+		result[14] += p23;
+		result[15] += p33;
+	}
+
+	/**
+	 * Affine: result = inverse(m), using the 3x3 inverse and the inverse translation. result may be m.
+	 *
+	 * @return false if m is singular, in which case result is unchanged.
+	 */
+	public static boolean invertAffine(final float[] result, final float[] m)
+	{
+		final float m00 = m[0], m10 = m[1], m20 = m[2];
+		final float m01 = m[4], m11 = m[5], m21 = m[6];
+		final float m02 = m[8], m12 = m[9], m22 = m[10];
+		final float tx = m[12], ty = m[13], tz = m[14];
+
+		final float c00 = m11 * m22 - m12 * m21;
+		final float c01 = m02 * m21 - m01 * m22;
+		final float c02 = m01 * m12 - m02 * m11;
+		final float det = m00 * c00 + m10 * c01 + m20 * c02;
+
+		if (det == 0.0f)
+		{
+			return false;
+		}
+
+		final float invDet = 1.0f / det;
+		final float i00 = c00 * invDet;
+		final float i01 = c01 * invDet;
+		final float i02 = c02 * invDet;
+		final float i10 = (m12 * m20 - m10 * m22) * invDet;
+		final float i11 = (m00 * m22 - m02 * m20) * invDet;
+		final float i12 = (m02 * m10 - m00 * m12) * invDet;
+		final float i20 = (m10 * m21 - m11 * m20) * invDet;
+		final float i21 = (m01 * m20 - m00 * m21) * invDet;
+		final float i22 = (m00 * m11 - m01 * m10) * invDet;
+
+		result[0] = i00; result[1] = i10; result[2] = i20; result[3] = 0.0f;
+		result[4] = i01; result[5] = i11; result[6] = i21; result[7] = 0.0f;
+		result[8] = i02; result[9] = i12; result[10] = i22; result[11] = 0.0f;
+		result[12] = -(i00 * tx + i01 * ty + i02 * tz);
+		result[13] = -(i10 * tx + i11 * ty + i12 * tz);
+		result[14] = -(i20 * tx + i21 * ty + i22 * tz);
+		result[15] = 1.0f;
+		return true;
+	}
+
+	/**
+	 * General 4x4 inverse, for projective matrices. result may be m.
+	 *
+	 * @return false if m is singular, in which case result is unchanged.
+	 */
+	public static boolean invert(final float[] result, final float[] m)
+	{
+		final float a0 = m[0] * m[5] - m[1] * m[4];
+		final float a1 = m[0] * m[6] - m[2] * m[4];
+		final float a2 = m[0] * m[7] - m[3] * m[4];
+		final float a3 = m[1] * m[6] - m[2] * m[5];
+		final float a4 = m[1] * m[7] - m[3] * m[5];
+		final float a5 = m[2] * m[7] - m[3] * m[6];
+		final float b0 = m[8] * m[13] - m[9] * m[12];
+		final float b1 = m[8] * m[14] - m[10] * m[12];
+		final float b2 = m[8] * m[15] - m[11] * m[12];
+		final float b3 = m[9] * m[14] - m[10] * m[13];
+		final float b4 = m[9] * m[15] - m[11] * m[13];
+		final float b5 = m[10] * m[15] - m[11] * m[14];
+
+		final float det = a0 * b5 - a1 * b4 + a2 * b3 + a3 * b2 - a4 * b1 + a5 * b0;
+
+		if (det == 0.0f)
+		{
+			return false;
+		}
+
+		final float invDet = 1.0f / det;
+		final float r0 = (m[5] * b5 - m[6] * b4 + m[7] * b3) * invDet;
+		final float r1 = (-m[1] * b5 + m[2] * b4 - m[3] * b3) * invDet;
+		final float r2 = (m[13] * a5 - m[14] * a4 + m[15] * a3) * invDet;
+		final float r3 = (-m[9] * a5 + m[10] * a4 - m[11] * a3) * invDet;
+		final float r4 = (-m[4] * b5 + m[6] * b2 - m[7] * b1) * invDet;
+		final float r5 = (m[0] * b5 - m[2] * b2 + m[3] * b1) * invDet;
+		final float r6 = (-m[12] * a5 + m[14] * a2 - m[15] * a1) * invDet;
+		final float r7 = (m[8] * a5 - m[10] * a2 + m[11] * a1) * invDet;
+		final float r8 = (m[4] * b4 - m[5] * b2 + m[7] * b0) * invDet;
+		final float r9 = (-m[0] * b4 + m[1] * b2 - m[3] * b0) * invDet;
+		final float r10 = (m[12] * a4 - m[13] * a2 + m[15] * a0) * invDet;
+		final float r11 = (-m[8] * a4 + m[9] * a2 - m[11] * a0) * invDet;
+		final float r12 = (-m[4] * b3 + m[5] * b1 - m[6] * b0) * invDet;
+		final float r13 = (m[0] * b3 - m[1] * b1 + m[2] * b0) * invDet;
+		final float r14 = (-m[12] * a3 + m[13] * a1 - m[14] * a0) * invDet;
+		final float r15 = (m[8] * a3 - m[9] * a1 + m[10] * a0) * invDet;
+
+		result[0] = r0; result[1] = r1; result[2] = r2; result[3] = r3;
+		result[4] = r4; result[5] = r5; result[6] = r6; result[7] = r7;
+		result[8] = r8; result[9] = r9; result[10] = r10; result[11] = r11;
+		result[12] = r12; result[13] = r13; result[14] = r14; result[15] = r15;
+		return true;
+	}
+
+	/** result = m * (x, y, z, w). result must hold 4 floats and may not alias m. */
+	public static void transform(final float[] result, final float[] m, final float x, final float y, final float z,
+			final float w)
+	{
+		result[0] = m[0] * x + m[4] * y + m[8] * z + m[12] * w;
+		result[1] = m[1] * x + m[5] * y + m[9] * z + m[13] * w;
+		result[2] = m[2] * x + m[6] * y + m[10] * z + m[14] * w;
+		result[3] = m[3] * x + m[7] * y + m[11] * z + m[15] * w;
+	}
+
+	/**
+	 * Map window coordinates back to object coordinates, like gluUnProject, but with the inverse of
+	 * projection * modelview supplied by the caller so it can be computed once and reused. As with gluUnProject, the
+	 * result is homogeneous and still has to be divided by its w component.
+	 *
+	 * @param result Receives 4 floats.
+	 */
+	public static void unProject(final float[] result, final float winX, final float winY, final float winZ,
+			final float[] inverseMVP, final int[] viewport)
+	{
+		final float x = 2.0f * (winX - viewport[0]) / viewport[2] - 1.0f;
+		final float y = 2.0f * (winY - viewport[1]) / viewport[3] - 1.0f;
+		final float z = 2.0f * winZ - 1.0f;
+		transform(result, inverseMVP, x, y, z, 1.0f);
+	}
+
+	/** Set m to a perspective projection, like glFrustum. */
+	public static void frustum(final float[] m, final float left, final float right, final float bottom,
+			final float top, final float near, final float far)
+	{
+		final float rWidth = 1.0f / (right - left);
+		final float rHeight = 1.0f / (top - bottom);
+		final float rDepth = 1.0f / (near - far);
+
+		for (int i = 0; i < 16; i++)
+		{
+			m[i] = 0.0f;
+		}
+
+		m[0] = 2.0f * near * rWidth;
+		m[5] = 2.0f * near * rHeight;
+		m[8] = (right + left) * rWidth;
+		m[9] = (top + bottom) * rHeight;
+		m[10] = (far + near) * rDepth;
+		m[11] = -1.0f;
+		m[14] = 2.0f * far * near * rDepth;
+	}
+
+	/** Set m to an affine viewing transform, like gluLookAt. */
+	public static void setLookAt(final float[] m, final float eyeX, final float eyeY, final float eyeZ,
+			final float centerX, final float centerY, final float centerZ, final float upX, final float upY,
+			final float upZ)
+	{
+		// Forward.
+		float fx = centerX - eyeX;
+		float fy = centerY - eyeY;
+		float fz = centerZ - eyeZ;
+		final float rlf = 1.0f / (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+		fx *= rlf;
+		fy *= rlf;
+		fz *= rlf;
+
+		// Side = forward x up.
+		float sx = fy * upZ - fz * upY;
+		float sy = fz * upX - fx * upZ;
+		float sz = fx * upY - fy * upX;
+		final float rls = 1.0f / (float) Math.sqrt(sx * sx + sy * sy + sz * sz);
+		sx *= rls;
+		sy *= rls;
+		sz *= rls;
+
+		// Up = side x forward.
+		final float ux = sy * fz - sz * fy;
+		final float uy = sz * fx - sx * fz;
+		final float uz = sx * fy - sy * fx;
+
+		m[0] = sx; m[1] = ux; m[2] = -fx; m[3] = 0.0f;
+		m[4] = sy; m[5] = uy; m[6] = -fy; m[7] = 0.0f;
+		m[8] = sz; m[9] = uz; m[10] = -fz; m[11] = 0.0f;
+		m[12] = 0.0f; m[13] = 0.0f; m[14] = 0.0f; m[15] = 1.0f;
+
+		translate(m, -eyeX, -eyeY, -eyeZ);
+	}
+}
@@ -0,0 +1,609 @@
+package com.example.sosgame1;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search over SosBoard for boards too big for AlphaBetaSearch, run by a fixed set of worker threads.
+ * <ul>
+ * <li>TREE_PARALLEL: all workers grow one shared tree. Node statistics are updated with atomic adds, children are
+ * published with a compare-and-set, and a virtual loss steers concurrent workers down different paths.</li>
+ * <li>ROOT_PARALLEL: every worker grows its own tree, and the root visit counts are summed at the end.</li>
+ * </ul>
+ * Trees live in preallocated node pools; when a pool is full the search keeps going without expanding. Each worker
+ * plays out on its own preallocated board, rewinding with undo(), so searching does not allocate. A position that a
+ * rotation or reflection leaves unchanged only gets children for one cell of each set of cells the symmetries map
+ * onto each other, since the others lead to the same positions turned around; on an empty square board that cuts the
+ * root children to about an eighth.
+ * <p>
+ * Results are win/draw/loss on the final scores, stored doubled as 2/1/0 so they stay integers. Moves use the
+ * AlphaBetaSearch encoding. One search at a time; stop() may be called from another thread.
+ */
+public class MctsSearch
+{
+	public static final int TREE_PARALLEL = 0;
+	public static final int ROOT_PARALLEL = 1;
+
+	/** UCT exploration constant, for rewards scaled to [0, 1]. */
+	private static final double EXPLORATION = 1.4;
+
+	/** One visit in the high half of a packed statistic. The low half holds the summed rewards. */
+	private static final long VISIT = 1L << 32;
+
+	/** Child index states. */
+	private static final int UNEXPANDED = -1;
+	private static final int EXPANDING = -2;
+	/** Expansion failed because the pool is full. Stays a leaf. */
+	private static final int FULL = -3;
+
+	/** A node pool. */
+	private static class Tree
+	{
+		/** Move leading to each node. */
+		final int[] moves;
+		/** Index of the first child, or UNEXPANDED, EXPANDING or FULL. */
+		final AtomicIntegerArray firstChild;
+		/** Number of children, valid once firstChild is set. */
+		final int[] childCount;
+		/** Visits and summed rewards, packed as visits * VISIT + rewards. */
+		final AtomicLongArray stats;
+		final AtomicInteger nodeCount = new AtomicInteger();
+
+		Tree(final int capacity)
+		{
+			moves = new int[capacity];
+			firstChild = new AtomicIntegerArray(capacity);
+			childCount = new int[capacity];
+			stats = new AtomicLongArray(capacity);
+		}
+
+		/** Reset to a single unexpanded root, node 0. Only call while no worker runs. */
+		void clear()
+		{
+			firstChild.set(0, UNEXPANDED);
+			stats.set(0, 0);
+			nodeCount.set(1);
+		}
+	}
+
+	/** One search thread with its own board and path buffers. */
+	private class Worker implements Callable<Void>
+	{
+		Tree tree;
+		SosBoard board;
+		int[] pathNodes = new int[0];
+		int[] pathMovers = new int[0];
+		int[] emptyCells = new int[0];
+		long random;
+		long playouts;
+		long maxPlayouts;
+		/** Set by the worker when it starts, or by search() to call it off before it does. */
+		final AtomicBoolean claimed = new AtomicBoolean();
+
+		Worker(final int index)
+		{
+			random = 0x9E3779B97F4A7C15L * (index + 1);
+		}
+
+		/**
+		 * Size the buffers and copy the root position.
+		 *
+		 * @param maxPlayouts This worker's share of the playout budget, or Long.MAX_VALUE.
+		 */
+		void prepare(final SosBoard root, final long maxPlayouts)
+		{
+			if (board == null || board.getWidth() != root.getWidth() || board.getHeight() != root.getHeight())
+			{
+				board = new SosBoard(root.getWidth(), root.getHeight());
+				pathNodes = new int[root.getCellCount() + 1];
+				pathMovers = new int[root.getCellCount() + 1];
+				emptyCells = new int[root.getCellCount()];
+			}
+
+			board.copyFrom(root);
+			playouts = 0;
+			this.maxPlayouts = maxPlayouts;
+			claimed.set(false);
+		}
+
+		public Void call()
+		{
+			if (!claimed.compareAndSet(false, true))
+			{
+				return null;
+			}
+
+			try
+			{
+				final int rootMoves = board.getMoveCount();
+
+				// At least one playout, so that the root is expanded and there is a move to return.
+				while (playouts == 0 || !stopRequested && playouts < maxPlayouts && System.nanoTime() < deadline)
+				{
+					iterate();
+
+					while (board.getMoveCount() > rootMoves)
+					{
+						board.undo();
+					}
+
+					playouts++;
+				}
+			}
+			finally
+			{
+				finished.countDown();
+			}
+
+			return null;
+		}
+
+		/** Select, expand, play out and back up once. */
+		private void iterate()
+		{
+			final Tree t = tree;
+			int node = 0;
+			int depth = 0;
+			t.stats.addAndGet(0, VISIT);
+
+			while (true)
+			{
+				pathNodes[depth] = node;
+
+				if (board.isFull())
+				{
+					break;
+				}
+
+				int first = t.firstChild.get(node);
+
+				if (first == UNEXPANDED)
+				{
+					first = expand(t, node);
+				}
+
+				if (first < 0)
+				{
+					break;
+				}
+
+				final int child = select(t, node, first, t.childCount[node]);
+
+				// Virtual loss: count the visit now, add the reward when the result is known.
+				t.stats.addAndGet(child, VISIT);
+				pathMovers[depth] = board.getCurrentPlayer();
+				final int move = t.moves[child];
+				board.play(AlphaBetaSearch.getMoveCell(move), AlphaBetaSearch.getMoveLetter(move));
+				node = child;
+				depth++;
+
+				if (t.stats.get(child) >>> 32 == 1)
+				{
+					// First visit: evaluate it by a playout before growing the tree under it.
+					pathNodes[depth] = node;
+					break;
+				}
+			}
+
+			playOut();
+
+			final int score0 = board.getScore(0);
+			final int score1 = board.getScore(1);
+
+			for (int i = 0; i < depth; i++)
+			{
+				final int mover = pathMovers[i];
+				final int mine = mover == 0 ? score0 : score1;
+				final int theirs = mover == 0 ? score1 : score0;
+				t.stats.addAndGet(pathNodes[i + 1], mine > theirs ? 2 : mine == theirs ? 1 : 0);
+			}
+		}
+
+		/**
+		 * Create the children of a node, one per legal move up to symmetry, unless another worker is already doing it.
+		 *
+		 * @return The first child, or a negative state if the node has no children to descend into.
+		 */
+		private int expand(final Tree t, final int node)
+		{
+			if (!t.firstChild.compareAndSet(node, UNEXPANDED, EXPANDING))
+			{
+				return t.firstChild.get(node);
+			}
+
+			final int symmetries = board.getSymmetries();
+			final int cellCount = board.getCellCount();
+			int count = 0;
+
+			if (symmetries == 1)
+			{
+				count = (cellCount - board.getMoveCount()) * 2;
+			}
+			else
+			{
+				for (int cell = 0; cell < cellCount; cell++)
+				{
+					if (isChildCell(cell, symmetries))
+					{
+						count += 2;
+					}
+				}
+			}
+
+			final int first = t.nodeCount.getAndAdd(count);
+
+			if (first + count > t.moves.length)
+			{
+				t.firstChild.set(node, FULL);
+				return FULL;
+			}
+
+			int i = first;
+
+			for (int cell = 0; cell < cellCount; cell++)
+			{
+				if (isChildCell(cell, symmetries))
+				{
+					t.moves[i++] = AlphaBetaSearch.encodeMove(cell, SosBoard.S);
+					t.moves[i++] = AlphaBetaSearch.encodeMove(cell, SosBoard.O);
+				}
+			}
+
+			// Pool slots may hold nodes from an earlier search.
+			for (i = first; i < first + count; i++)
+			{
+				t.firstChild.set(i, UNEXPANDED);
+				t.stats.set(i, 0);
+			}
+
+			t.childCount[node] = count;
+			// Publishes moves and childCount to the other workers.
+			t.firstChild.set(node, first);
+			return first;
+		}
+
+		/**
+		 * @param symmetries The symmetries of the position, see SosBoard.getSymmetries().
+		 * @return True if the cell is empty and no symmetry of the position takes it to a lower cell.
+		 */
+		private boolean isChildCell(final int cell, final int symmetries)
+		{
+			if (!board.isEmpty(cell))
+			{
+				return false;
+			}
+
+			for (int s = 1; s < board.getGeometry().symmetryCount; s++)
+			{
+				if ((symmetries >>> s & 1) != 0 && board.getGeometry().transformCell(s, cell) < cell)
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/** @return The child with the highest UCT value, or the first unvisited one. */
+		private int select(final Tree t, final int node, final int first, final int count)
+		{
+			final double logParent = Math.log(Math.max(t.stats.get(node) >>> 32, 1));
+			int best = first;
+			double bestValue = Double.NEGATIVE_INFINITY;
+
+			for (int i = first; i < first + count; i++)
+			{
+				final long stats = t.stats.get(i);
+				final long visits = stats >>> 32;
+
+				if (visits == 0)
+				{
+					return i;
+				}
+
+				final double value = (stats & 0xFFFFFFFFL) / (2.0 * visits)
+						+ EXPLORATION * Math.sqrt(logParent / visits);
+
+				if (value > bestValue)
+				{
+					bestValue = value;
+					best = i;
+				}
+			}
+
+			return best;
+		}
+
+		/** Fill the board with random moves, taking a line whenever the chosen cell offers one. */
+		private void playOut()
+		{
+			final int cellCount = board.getCellCount();
+			int empty = 0;
+
+			for (int cell = 0; cell < cellCount; cell++)
+			{
+				if (board.isEmpty(cell))
+				{
+					emptyCells[empty++] = cell;
+				}
+			}
+
+			while (empty > 0)
+			{
+				final long r = nextRandom();
+				final int index = (int) ((r >>> 33) % empty);
+				final int cell = emptyCells[index];
+				emptyCells[index] = emptyCells[--empty];
+
+				final int letter;
+				if (board.gain(cell, SosBoard.S) > 0)
+				{
+					letter = SosBoard.S;
+				}
+				else if (board.gain(cell, SosBoard.O) > 0)
+				{
+					letter = SosBoard.O;
+				}
+				else
+				{
+					letter = (r & 1) == 0 ? SosBoard.S : SosBoard.O;
+				}
+
+				board.play(cell, letter);
+			}
+		}
+
+		/** xorshift64*. */
+		private long nextRandom()
+		{
+			random ^= random >>> 12;
+			random ^= random << 25;
+			random ^= random >>> 27;
+			return random * 0x2545F4914F6CDD1DL;
+		}
+	}
+
+	private final int mode;
+	private final Tree[] trees;
+	private final Worker[] workers;
+	private final ExecutorService executor;
+
+	private volatile long deadline;
+	private volatile boolean stopRequested;
+	/** Counted down once per worker of the running search, when it returns or is called off. */
+	private CountDownLatch finished;
+
+	/** Statistics of the last search. */
+	private long lastPlayouts = 0;
+	private long elapsedNanos = 0;
+
+	/**
+	 * @param threads Number of worker threads.
+	 * @param mode TREE_PARALLEL or ROOT_PARALLEL.
+	 * @param nodesPerTree Node pool size: shared by all workers in TREE_PARALLEL mode, per worker in ROOT_PARALLEL
+	 * mode. Each node takes 20 bytes.
+	 */
+	public MctsSearch(final int threads, final int mode, final int nodesPerTree)
+	{
+		if (threads < 1 || (mode != TREE_PARALLEL && mode != ROOT_PARALLEL))
+		{
+			throw new IllegalArgumentException("Bad MCTS configuration.");
+		}
+
+		this.mode = mode;
+		trees = new Tree[mode == TREE_PARALLEL ? 1 : threads];
+		for (int i = 0; i < trees.length; i++)
+		{
+			trees[i] = new Tree(nodesPerTree);
+		}
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			workers[i] = new Worker(i);
+			workers[i].tree = trees[mode == TREE_PARALLEL ? 0 : i];
+		}
+
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(final Runnable runnable)
+			{
+				final Thread thread = new Thread(runnable, "mcts-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Search the position until the time is up, maxPlayouts playouts have been run or stop() is called. Blocks the
+	 * calling thread meanwhile. Every worker that started runs at least one playout. If the calling thread is
+	 * interrupted, the workers are stopped and waited for, and the best move so far is returned with the interrupt
+	 * flag set again; that is NO_MOVE if no worker had started.
+	 *
+	 * @param board The position. Not modified.
+	 * @param timeLimitMillis Time budget, or 0 for none.
+	 * @param maxPlayouts Playout budget, or 0 for none. It is split evenly between the workers. At least one budget
+	 * must be set.
+	 * @return The most visited root move, or AlphaBetaSearch.NO_MOVE if the board is full.
+	 */
+	public int search(final SosBoard board, final long timeLimitMillis, final long maxPlayouts)
+	{
+		if (timeLimitMillis <= 0 && maxPlayouts <= 0)
+		{
+			throw new IllegalArgumentException("No budget.");
+		}
+
+		if (board.isFull())
+		{
+			return AlphaBetaSearch.NO_MOVE;
+		}
+
+		final long start = System.nanoTime();
+		deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1000000L : Long.MAX_VALUE;
+		stopRequested = false;
+		final long share = maxPlayouts > 0 ? (maxPlayouts + workers.length - 1) / workers.length : Long.MAX_VALUE;
+
+		for (int i = 0; i < trees.length; i++)
+		{
+			trees[i].clear();
+		}
+
+		for (int i = 0; i < workers.length; i++)
+		{
+			workers[i].prepare(board, share);
+		}
+
+		finished = new CountDownLatch(workers.length);
+		final Future<?>[] futures = new Future<?>[workers.length];
+		for (int i = 0; i < workers.length; i++)
+		{
+			futures[i] = executor.submit(workers[i]);
+		}
+
+		try
+		{
+			for (int i = 0; i < futures.length; i++)
+			{
+				futures[i].get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			cancelWorkers(futures);
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			cancelWorkers(futures);
+			throw new RuntimeException("MCTS worker failed.", e.getCause());
+		}
+
+		lastPlayouts = 0;
+		for (int i = 0; i < workers.length; i++)
+		{
+			lastPlayouts += workers[i].playouts;
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return getMostVisitedMove();
+	}
+
+	/**
+	 * Stop the workers of the running search and wait until none of them touches the trees or its board any more, so
+	 * that the results can be read and the next search can reuse them. Ignores interrupts while waiting.
+	 */
+	private void cancelWorkers(final Future<?>[] futures)
+	{
+		stopRequested = true;
+
+		for (int i = 0; i < futures.length; i++)
+		{
+			futures[i].cancel(false);
+
+			// A worker still in the executor queue would never count down.
+			if (workers[i].claimed.compareAndSet(false, true))
+			{
+				finished.countDown();
+			}
+		}
+
+		while (true)
+		{
+			try
+			{
+				finished.await();
+				return;
+			}
+			catch (InterruptedException e)
+			{
+				// The caller re-asserts the interrupt.
+			}
+		}
+	}
+
+	/** @return The root move with the most visits, summed over all trees. */
+	private int getMostVisitedMove()
+	{
+		final Tree first = trees[0];
+		final int firstChild = first.firstChild.get(0);
+
+		if (firstChild < 0)
+		{
+			return AlphaBetaSearch.NO_MOVE;
+		}
+
+		// Every tree expands the same root with the same move order, so children line up by offset.
+		final int count = first.childCount[0];
+		int best = AlphaBetaSearch.NO_MOVE;
+		long bestVisits = -1;
+
+		for (int i = 0; i < count; i++)
+		{
+			long visits = 0;
+
+			for (int t = 0; t < trees.length; t++)
+			{
+				final int children = trees[t].firstChild.get(0);
+
+				if (children >= 0)
+				{
+					visits += trees[t].stats.get(children + i) >>> 32;
+				}
+			}
+
+			if (visits > bestVisits)
+			{
+				bestVisits = visits;
+				best = first.moves[firstChild + i];
+			}
+		}
+
+		return best;
+	}
+
+	/** Ask a running search to return as soon as possible. Safe to call from any thread. */
+	public void stop()
+	{
+		stopRequested = true;
+	}
+
+	/** Stop the worker threads. The search cannot be used afterwards. */
+	public void shutdown()
+	{
+		stop();
+		executor.shutdown();
+	}
+
+	public int getMode()
+	{
+		return mode;
+	}
+
+	public int getThreadCount()
+	{
+		return workers.length;
+	}
+
+	/** @return Playouts run by the last search. */
+	public long getPlayouts()
+	{
+		return lastPlayouts;
+	}
+
+	/** @return Playouts per second of the last search, over all threads. */
+	public long getPlayoutsPerSecond()
+	{
+		return elapsedNanos == 0 ? 0 : lastPlayouts * 1000000000L / elapsedNanos;
+	}
+}
@@ -1,20 +1,12 @@
 package com.example.sosgame1;
 
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.util.ArrayList;
-
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import android.content.Context;
-import android.graphics.PointF;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLU;
-import android.opengl.Matrix;
 import android.os.SystemClock;
 import android.util.Log;
 
@@ -47,42 +39,18 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 	/** Allocate storage for the final combined matrix. This will be passed into the shader program. */
 	public float[] mMVPMatrix = new float[16];
 	
+	/** Allocate storage for the modelview matrix of an animating tile. */
+	private final float[] mMVMatrix = new float[16];
+	
 	/** 
 	 * Stores a copy of the model matrix specifically for the light position.
 	 */
 	public float[] mLightModelMatrix = new float[16];	
 	
-	/** Store our model data in a float buffer. */
-	public final FloatBuffer mCubePositions;
-	public final FloatBuffer mCubeColors;
-	public final FloatBuffer lineColors;
-	public final FloatBuffer mCubeNormals;
-	public final FloatBuffer mCubeTextureCoordinates;
-	
-	/** This will be used to pass in the transformation matrix. */
-	public int mMVPMatrixHandle;
-	
-	/** This will be used to pass in the modelview matrix. */
-	public int mMVMatrixHandle;
-	
-	/** This will be used to pass in the light position. */
-	public int mLightPosHandle;
+	/** Store our model data in static buffer objects, indexed and interleaved in the packed vertex format. */
+	public final VertexBuffer mCubeVertices;
+	public final VertexBuffer mLineVertices;
 	
-	/** This will be used to pass in the texture. */
-	public int mTextureUniformHandle;
-	
-	/** This will be used to pass in model position information. */
-	public int mPositionHandle;
-	
-	/** This will be used to pass in model color information. */
-	public int mColorHandle;
-	
-	/** This will be used to pass in model normal information. */
-	public int mNormalHandle;
-	
-	/** This will be used to pass in model texture coordinate information. */
-	public int mTextureCoordinateHandle;
-
 	/** How many bytes per float. */
 	public final int mBytesPerFloat = 4;	
 	
@@ -108,19 +76,67 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 	/** Used to hold the transformed position of the light in eye space (after transformation via modelview matrix) */
 	public final float[] mLightPosInEyeSpace = new float[4];
 	
-	/** This is a handle to our cube shading program. */
-	public int mProgramHandle;
+	/** This is our cube shading program. */
+	public ShaderProgram mProgram;
 		
-	/** This is a handle to our light point program. */
-	public int mPointProgramHandle;
+	/** This is our light point program. */
+	public ShaderProgram mPointProgram;
 	
-	/** This is a handle to another program without texture. */
-	public int noTexProgramHandle;
+	/** This is another program without texture. */
+	public ShaderProgram noTexProgram;
+	
+	/** Draws far away tiles as point sprites. */
+	public ShaderProgram mTilePointProgram;
+	
+	/** Filters out redundant GL state changes. */
+	public final GLStateCache mGLState = new GLStateCache();
 	
 	/** This is a handle to our texture data. */
 	public int mTextureDataHandle;
 	
-	public ArrayList<Cube> cubes = new ArrayList<Cube>();
+	/**
+	 * Hands the scene from the UI thread, which plays the game, to the GL thread, which draws the latest scene
+	 * published.
+	 */
+	public final SceneBuffer mScene;
+	
+	/** One tile per board cell, in SosBoard cell order. The UI thread's working copy, see mScene. */
+	public final TileStore mTiles;
+	
+	/**
+	 * Animates the tiles of mTiles. The UI thread starts animations and ends them; the GL thread samples the
+	 * published copy at each frame's time.
+	 */
+	public final TileAnimator mAnimator;
+	
+	/** Default board size in tiles. */
+	public static final int BOARD_COLUMNS = 5;
+	public static final int BOARD_ROWS = 5;
+	
+	/** Board size in tiles. */
+	private final int mColumns;
+	private final int mRows;
+	
+	/** Distance between tile centres. The board is centred on x = y = 0. */
+	private static final float TILE_SPACING = 2.0f;
+	
+	/** World z of the plane the tiles rest on. */
+	private static final float BOARD_Z = -5.0f;
+	
+	/** The game being shown. Tiles take their letters from here. UI thread only. */
+	public final SosBoard mBoard;
+	
+	/** How far empty tiles sit behind placed ones. */
+	private static final float EMPTY_TILE_Z = -0.5f;
+	
+	/** Draws the tiles that are not animating, one call per chunk on screen, at a level of detail per chunk. */
+	public final TileChunks mTileChunks;
+	
+	/** Draws the strike lines of the scene, one at a time. */
+	private final Line mStrikeLine;
+	
+	/** Maps touches to tiles. */
+	public final TilePicker mPicker;
 	
 	/** Viewport width. */
 	private int width;
@@ -128,20 +144,35 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 	/** Viewport height. */
 	private int height;
 	
-	/** Near clipping plane used in frustum/projection matrix. Declared here
-	 * so we can use it in gluunproject calculations.*/
+	/** Near clipping plane used in frustum/projection matrix. */
 	private final float near = 1;
 	
-	/** Far clipping plane used in frustum/projection matrix. Declared here
-	 * so we can use it in gluunproject calculations.*/
+	/** Far clipping plane used in frustum/projection matrix. */
 	private final float far = 10;
 	
 	/**
-	 * Initialize the model data.
+	 * Initialize the model data for a board of the default size.
 	 */
 	public MyGLRenderer(final Context activityContext)
+	{
+		this(activityContext, BOARD_COLUMNS, BOARD_ROWS);
+	}
+	
+	/**
+	 * Initialize the model data.
+	 * @param columns Board width in tiles.
+	 * @param rows Board height in tiles.
+	 */
+	public MyGLRenderer(final Context activityContext, final int columns, final int rows)
 	{	
 		mActivityContext = activityContext;
+		mColumns = columns;
+		mRows = rows;
+		mBoard = new SosBoard(columns, rows);
+		mScene = new SceneBuffer(columns, rows);
+		mTiles = mScene.edit().tiles;
+		mAnimator = mScene.edit().animations;
+		mPicker = new TilePicker(columns, rows, TILE_SPACING, getTileX(0), getTileY(0), BOARD_Z);
 		
 		// Define points for a cube.		
 		
@@ -495,36 +526,62 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 				0.0f, 0.0f
 		};
 		
-		// Initialize the buffers.
-		mCubePositions = ByteBuffer.allocateDirect(cubePositionData.length * mBytesPerFloat)
-        .order(ByteOrder.nativeOrder()).asFloatBuffer();							
-		mCubePositions.put(cubePositionData).position(0);		
-		
-		mCubeColors = ByteBuffer.allocateDirect(cubeColorData.length * mBytesPerFloat)
-        .order(ByteOrder.nativeOrder()).asFloatBuffer();							
-		mCubeColors.put(cubeColorData).position(0);
+		// Initialize the buffers. These are uploaded to the GPU in onSurfaceCreated().
+		// Shared vertices are merged, so the 36 vertices of each cube become 24 plus an index buffer.
+		final ShapeBuilder.IndexedShape cubeShape = ShapeBuilder.generateIndexedData(cubePositionData, cubeColorData,
+				cubeNormalData, cubeTextureCoordinateData);
+		final ShapeBuilder.IndexedShape lineShape = ShapeBuilder.generateIndexedData(cubePositionData, lineColorData,
+				cubeNormalData, null);
+		mCubeVertices = new VertexBuffer(cubeShape, VertexFormat.PACKED);
+		mLineVertices = new VertexBuffer(lineShape, VertexFormat.PACKED);
 		
-		lineColors = ByteBuffer.allocateDirect(lineColorData.length * mBytesPerFloat)
-		        .order(ByteOrder.nativeOrder()).asFloatBuffer();							
-		lineColors.put(lineColorData).position(0);
-				
-		mCubeNormals = ByteBuffer.allocateDirect(cubeNormalData.length * mBytesPerFloat)
-        .order(ByteOrder.nativeOrder()).asFloatBuffer();							
-		mCubeNormals.put(cubeNormalData).position(0);
-		
-		mCubeTextureCoordinates = ByteBuffer.allocateDirect(cubeTextureCoordinateData.length * mBytesPerFloat)
-		.order(ByteOrder.nativeOrder()).asFloatBuffer();
-		mCubeTextureCoordinates.put(cubeTextureCoordinateData).position(0);
+        mStrikeLine = new Line(this);
+        mScene.edit().addStrikeLine(-2, -2, -4.8f, 0, 0);
+        mScene.edit().addStrikeLine(2, 2, -4.8f, 180, 90);
 		
-        for (float x = -4; x < 5; x += 2) {
-        	for (float y = -4; y < 5; y += 2) {
-        		Cube cube = new Cube(mActivityContext, this);
-        		cube.x = x;
-        		cube.y = y;
-        		cubes.add(cube);
+        for (int row = 0; row < rows; row++) {
+        	for (int column = 0; column < columns; column++) {
+        		final int tile = row * columns + column;
+        		mTiles.setX(tile, getTileX(column));
+        		mTiles.setY(tile, getTileY(row));
+        		syncTile(tile);
         	}
         }
-		
+        
+        mTileChunks = new TileChunks(ShapeBuilder.generateTileLods(cubeShape), mTiles, BOARD_Z + EMPTY_TILE_Z,
+        		BOARD_Z);
+        mScene.publish();
+	}
+	
+	/**
+	 * Put a tile in the rest pose for its cell's state on the board: S shows the front face, O the back face, and an
+	 * empty tile sits back from the board. UI thread only; shows with the next publish.
+	 * @param cell The board cell, which is also the tile.
+	 */
+	public void syncTile(int cell) {
+		final int letter = mBoard.get(cell);
+		mTiles.setLetter(cell, letter);
+		mTiles.setYRotation(cell, getTileRotation(letter));
+		mTiles.setZ(cell, letter == SosBoard.EMPTY ? EMPTY_TILE_Z : 0);
+	}
+	
+	/** @return World x of the centre of the tiles in a column. */
+	public float getTileX(int column) {
+		return (column - (mColumns - 1) / 2.0f) * TILE_SPACING;
+	}
+	
+	/** @return World y of the centre of the tiles in a row. */
+	public float getTileY(int row) {
+		return (row - (mRows - 1) / 2.0f) * TILE_SPACING;
+	}
+
+	
+	/**
+	 * @param letter SosBoard.EMPTY, S or O.
+	 * @return The y rotation that shows the letter.
+	 */
+	public static float getTileRotation(int letter) {
+		return letter == SosBoard.O ? 180 : 0;
 	}
 	
 	protected String getVertexShader()
@@ -540,14 +597,17 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 	@Override
 	public void onSurfaceCreated(GL10 glUnused, EGLConfig config) 
 	{
+		// This is a new context, so any state we remember belongs to the old one.
+		mGLState.invalidate();
+		
 		// Set the background clear color to black.
 		GLES20.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
 		
 		// Use culling to remove back faces.
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
+		mGLState.setCullFace(true);
 		
 		// Enable depth testing
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+		mGLState.setDepthTest(true);
 		
 		// The below glEnable() call is a holdover from OpenGL ES 1, and is not needed in OpenGL ES 2.
 		// Enable texture mapping
@@ -571,39 +631,46 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 		// Set the view matrix. This matrix can be said to represent the camera position.
 		// NOTE: In OpenGL 1, a ModelView matrix is used, which is a combination of a model and
 		// view matrix. In OpenGL 2, we can keep track of these matrices separately if we choose.
-		Matrix.setLookAtM(mViewMatrix, 0, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);		
+		MatrixMath.setLookAt(mViewMatrix, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);		
+		cameraChanged();
 
 		final String vertexShader = getVertexShader();   		
  		final String fragmentShader = getFragmentShader();			
 		
-		final int vertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, vertexShader);		
-		final int fragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentShader);		
-		
-		mProgramHandle = ShaderHelper.createAndLinkProgram(vertexShaderHandle, fragmentShaderHandle, 
+		mProgram = new ShaderProgram(vertexShader, fragmentShader, 
 				new String[] {"a_Position",  "a_Color", "a_Normal", "a_TexCoordinate"});								                                							       
         
         // Define a simple shader program for our point.
         final String pointVertexShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.point_vertex_shader);        	       
         final String pointFragmentShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.point_fragment_shader);
         
-        final int pointVertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, pointVertexShader);
-        final int pointFragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, pointFragmentShader);
-        mPointProgramHandle = ShaderHelper.createAndLinkProgram(pointVertexShaderHandle, pointFragmentShaderHandle, 
+        mPointProgram = new ShaderProgram(pointVertexShader, pointFragmentShader, 
         		new String[] {"a_Position"}); 
         
         // Define a shader program without texture.
         final String noTexVertexShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.per_pixel_vertex_shader_no_tex);        	       
         final String noTexFragmentShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.per_pixel_fragment_shader_no_tex);
         
-        final int noTexVertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, noTexVertexShader);
-        final int noTexFragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, noTexFragmentShader);
-        noTexProgramHandle = ShaderHelper.createAndLinkProgram(noTexVertexShaderHandle, noTexFragmentShaderHandle, 
+        noTexProgram = new ShaderProgram(noTexVertexShader, noTexFragmentShader, 
         		new String[] {"a_Position"}); 
         
+        // Define the point sprite program for tiles that are only a few pixels across.
+        final String tilePointVertexShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.tile_point_vertex_shader);
+        final String tilePointFragmentShader = RawResourceReader.readTextFileFromRawResource(mActivityContext, R.raw.tile_point_fragment_shader);
+        
+        mTilePointProgram = new ShaderProgram(tilePointVertexShader, tilePointFragmentShader,
+        		new String[] {"a_Position", "a_Color", "a_TexCoordinate"});
+        
         // Load the texture
 //        mTextureDataHandle = TextureHelper.loadTexture(mActivityContext, R.drawable.bumpy_bricks_public_domain);
         mTextureDataHandle = TextureHelper.loadTexture(mActivityContext,
         		R.drawable.texture2);
+        
+        // Upload the model data. This runs again whenever the EGL context is recreated, so the buffers are
+        // rebuilt after a context loss.
+        mCubeVertices.upload();
+        mLineVertices.upload();
+        mTileChunks.onSurfaceCreated();
 	}	
 		
 	@Override
@@ -637,209 +704,129 @@ public class MyGLRenderer implements GLSurfaceView.Renderer
 //		final float near = 1.0f;
 //		final float far = 10.0f;
 		
-		Matrix.frustumM(mProjectionMatrix, 0, left, right, bottom, top, near, far);
+		MatrixMath.frustum(mProjectionMatrix, left, right, bottom, top, near, far);
+		cameraChanged();
+	}
+	
+	/**
+	 * Must be called after the view or projection matrix or the viewport changed. Updates the picker's inverse
+	 * view-projection, and re-aims the chunk culling and level of detail.
+	 */
+	private void cameraChanged() {
+		mPicker.setCamera(mViewMatrix, mProjectionMatrix, width, height);
+		mTileChunks.setCamera(mViewMatrix, mProjectionMatrix, height);
 	}	
 
 	@Override
 	public void onDrawFrame(GL10 glUnused) 
 	{
 		GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);			        
+		mGLState.resetCounters();
+                
+        // Take the latest scene the UI thread published. It stays the same for the whole frame, apart from the
+        // animating tiles, which are moved to where their animations are at this frame's time.
+        final long frameTime = SystemClock.uptimeMillis();
+        final SceneState scene = mScene.acquire();
+        scene.animations.sample(frameTime);
+        final TileStore tiles = scene.tiles;
                 
         // Do a complete rotation every 10 seconds.
-        long time = SystemClock.uptimeMillis() % 10000L;        
+        long time = frameTime % 10000L;        
         float angleInDegrees = (360.0f / 10000.0f) * ((int) time);                
         
         
         
         // Set our per-vertex lighting program.
-        GLES20.glUseProgram(mProgramHandle);
-        
-        // Set program handles for cube drawing.
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_MVPMatrix");
-        mMVMatrixHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_MVMatrix"); 
-        mLightPosHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_LightPos");
-        mTextureUniformHandle = GLES20.glGetUniformLocation(mProgramHandle, "u_Texture");
-        mPositionHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_Position");
-        mColorHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_Color");
-        mNormalHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_Normal"); 
-        mTextureCoordinateHandle = GLES20.glGetAttribLocation(mProgramHandle, "a_TexCoordinate");
+        mGLState.useProgram(mProgram);
         
-        // Set the active texture unit to texture unit 0.
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        
-        // Bind the texture to this unit.
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureDataHandle);
+        // Bind the texture to texture unit 0.
+        mGLState.bindTexture(0, mTextureDataHandle);
         
         // Tell the texture uniform sampler to use this texture in the shader by binding to texture unit 0.
-        GLES20.glUniform1i(mTextureUniformHandle, 0);        
+        mGLState.uniform1i(mProgram.textureUniform, 0);        
         
         // Calculate position of the light. Rotate and then push into the distance.
-        Matrix.setIdentityM(mLightModelMatrix, 0);
-        Matrix.translateM(mLightModelMatrix, 0, 0.0f, 0.0f, -5.0f);      
-//        Matrix.rotateM(mLightModelMatrix, 0, angleInDegrees, 0.0f, 1.0f, 0.0f);
-        Matrix.translateM(mLightModelMatrix, 0, 0.0f, 0.0f, 2.0f);
+        MatrixMath.setIdentity(mLightModelMatrix);
+        MatrixMath.translate(mLightModelMatrix, 0.0f, 0.0f, -5.0f);      
+//        MatrixMath.rotateY(mLightModelMatrix, angleInDegrees);
+        MatrixMath.translate(mLightModelMatrix, 0.0f, 0.0f, 2.0f);
                
-        Matrix.multiplyMV(mLightPosInWorldSpace, 0, mLightModelMatrix, 0, mLightPosInModelSpace, 0);
-        Matrix.multiplyMV(mLightPosInEyeSpace, 0, mViewMatrix, 0, mLightPosInWorldSpace, 0);                        
+        MatrixMath.transform(mLightPosInWorldSpace, mLightModelMatrix, mLightPosInModelSpace[0], mLightPosInModelSpace[1], mLightPosInModelSpace[2], mLightPosInModelSpace[3]);
+        MatrixMath.transform(mLightPosInEyeSpace, mViewMatrix, mLightPosInWorldSpace[0], mLightPosInWorldSpace[1], mLightPosInWorldSpace[2], mLightPosInWorldSpace[3]);                        
+        
+        // Draw the resting cubes of the chunks on screen, one call per chunk, then the animating ones individually.
+        mTileChunks.draw(mGLState, tiles, mProgram, mTilePointProgram, mProjectionMatrix, mLightPosInEyeSpace);
         
-        // Draw some cubes.
-        for (Cube cube: cubes) {
-    		Matrix.setIdentityM(mModelMatrix, 0);
-    		Matrix.translateM(mModelMatrix, 0, cube.x, cube.y, -5.0f + cube.z);
-    		Matrix.rotateM(mModelMatrix, 0, cube.yRotation, 0.0f, 1.0f, 0.0f);
-    		Matrix.rotateM(mModelMatrix, 0, cube.zRotation, 0.0f, 0.0f, 1.0f);
-    		Matrix.scaleM(mModelMatrix, 0, 0.9f, 0.9f, 0.25f);
-    		cube.draw(mModelMatrix);
+        final int animatingCount = tiles.getAnimatingCount();
+        for (int i = 0; i < animatingCount; i++) {
+        	drawTile(tiles, tiles.getAnimatingTile(i), mProgram);
         }
         
-        // Draw another cube without texture
-        Line aCube = new Line(mActivityContext, this);
-        aCube.x = -2;
-        aCube.y = -2;
-        aCube.z = -4.8f;
-        aCube.xRotation = 45;
-        aCube.yRotation = 45;
-        aCube.zRotation = 0;
-		Matrix.setIdentityM(mModelMatrix, 0);
-		Matrix.translateM(mModelMatrix, 0, aCube.x, aCube.y, aCube.z);
-		Matrix.rotateM(mModelMatrix, 0, aCube.zRotation, 0.0f, 0.0f, 1.0f);
-		Matrix.scaleM(mModelMatrix, 0, 3.0f, 0.20f, 0.10f);
-//		Matrix.rotateM(mModelMatrix, 0, aCube.yRotation, 0.0f, 1.0f, 0.0f);
+        // Draw the strike lines without texture
         // Change the shader program
-        GLES20.glUseProgram(noTexProgramHandle);
+        mGLState.useProgram(noTexProgram);
         // Enable alpha blending
-        GLES20.glEnable(GLES20.GL_BLEND);
-//        GLES20.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE);
-        GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
-//        GLES20.glBlendFunc(GLES20.GL_DST_ALPHA, GLES20.GL_ZERO);
+        mGLState.setBlend(true);
+//        mGLState.blendFunc(GLES20.GL_ONE, GLES20.GL_ONE);
+        mGLState.blendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+//        mGLState.blendFunc(GLES20.GL_DST_ALPHA, GLES20.GL_ZERO);
 
-        // Set program handles for cube drawing.
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(noTexProgramHandle, "u_MVPMatrix");
-        mMVMatrixHandle = GLES20.glGetUniformLocation(noTexProgramHandle, "u_MVMatrix"); 
-        mLightPosHandle = GLES20.glGetUniformLocation(noTexProgramHandle, "u_LightPos");
-//        mTextureUniformHandle = GLES20.glGetUniformLocation(noTexProgramHandle, "u_Texture");
-        mPositionHandle = GLES20.glGetAttribLocation(noTexProgramHandle, "a_Position");
-        mColorHandle = GLES20.glGetAttribLocation(noTexProgramHandle, "a_Color");
-        mNormalHandle = GLES20.glGetAttribLocation(noTexProgramHandle, "a_Normal"); 
-
-        aCube.draw(mModelMatrix);
-        
-        Line aLine = new Line(mActivityContext, this);
-        aLine.x = 2;
-        aLine.y = 2;
-        aLine.z = -4.8f;
-        aLine.xRotation = 180;
-        aLine.yRotation = 45;
-        aLine.zRotation = 90;
-		Matrix.setIdentityM(mModelMatrix, 0);
-		Matrix.translateM(mModelMatrix, 0, aLine.x, aLine.y, aLine.z);
-		Matrix.rotateM(mModelMatrix, 0, aLine.xRotation, 1.0f, 0.0f, 0.0f);
-//		Matrix.translateM(mModelMatrix, 0, 0, 0, aLine.z);
-		Matrix.rotateM(mModelMatrix, 0, aLine.zRotation, 0.0f, 0.0f, 1.0f);
-		Matrix.scaleM(mModelMatrix, 0, 3.0f, 0.20f, 0.10f);
-        aLine.draw(mModelMatrix);
+        final int lineCount = scene.getStrikeLineCount();
+        for (int i = 0; i < lineCount; i++) {
+        	scene.getStrikeLineMatrix(i, mModelMatrix);
+        	mStrikeLine.draw(noTexProgram, mModelMatrix);
+        }
         
-		GLES20.glDisable(GLES20.GL_BLEND);
+		mGLState.setBlend(false);
         
 //        Log.v("draw", "drew a frame");
         
         // Draw a point to indicate the light.
-//        GLES20.glUseProgram(mPointProgramHandle);        
+//        mGLState.useProgram(mPointProgram);        
 //        drawLight();
 	}				
 	
-	/** Calculate world coordinates from touch coordinates.<br>
-	 * gluUnProject code adapted from:<br>
-	 * http://gamedev.stackexchange.com/questions/26292/opengl-es-2-0-gluunproject
-	 * @param x Touch x.
-	 * @param y Touch y.
-	 * @return A PointF object with x and y coordinates in the 3D world space.
-	 */
-	public PointF getWorldXY(float x, float y) {
-		// 
-		// 
-		// 
-		float[] nearPos = new float[4];
-		float[] farPos = new float[4];
-		float[] modelViewMatrix = new float[16];
-		float[] projectionMatrix = new float[16];
-		modelViewMatrix = getModelViewMatrix();
-		projectionMatrix = mProjectionMatrix;
-		int[] viewPortMatrix = new int[]{0, 0, width, 
-				height};
-		boolean unprojNear = (GLU.gluUnProject(x, height - y, 0, 
-				modelViewMatrix, 0,
-				projectionMatrix, 0, 
-				viewPortMatrix, 0, nearPos, 0) == GLES20.GL_TRUE);
-		boolean unprojFar = (GLU.gluUnProject(x, height - y, 1, 
-				modelViewMatrix, 0,
-				projectionMatrix, 0, 
-				viewPortMatrix, 0, farPos, 0) == GLES20.GL_TRUE);
-		float unprojectedX = 0;
-		float unprojectedY = 0;
-		if (unprojNear && unprojFar) {
-			// To convert the transformed 4D vector to 3D, you must divide
-			// it by the W component
-			nearPos = convertTo3d(nearPos);
-			farPos = convertTo3d(farPos);
-			Log.v("nearPos", ""+nearPos[0]+", "+nearPos[1]+", "+nearPos[2]+", "+nearPos[3]);
-			Log.v("farPos", ""+farPos[0]+", "+farPos[1]+", "+farPos[2]+", "+farPos[3]);
-
-			// Use the near and far instead of the assumed camera position
-			float perspectiveNear = near;
-			float perspectiveFar = far;
-			unprojectedX = (((farPos[0] - nearPos[0]) 
-					/ (perspectiveFar - perspectiveNear)) * nearPos[2]) 
-					+ nearPos[0];
-			unprojectedY = (((farPos[1] - nearPos[1]) 
-					/ (perspectiveFar - perspectiveNear)) * nearPos[2])  
-					+ nearPos[1];
-			Log.v("unprojectedXY", ""+(unprojectedX)+", "+(unprojectedY));
-		}
-		return new PointF(unprojectedX, unprojectedY);
-	}
-	
-	/** Get the ModelView matrix needed for gluunproject calculations.
-	 * @return The model matrix multiplied by the view matrix.
+	/**
+	 * Draws one tile on its own.
+	 * @param tiles The scene's tiles.
+	 * @param tile The tile.
+	 * @param program The current shader program.
 	 */
-	public float[] getModelViewMatrix() {
-		float[] modelViewMatrix = new float[16];
-		Matrix.setIdentityM(modelViewMatrix, 0);
-		Matrix.translateM(modelViewMatrix, 0, 0, 0, -5.0f);
-        Matrix.multiplyMM(modelViewMatrix, 0, mViewMatrix, 0, modelViewMatrix, 0);   
-		return modelViewMatrix;
+	private void drawTile(TileStore tiles, int tile, ShaderProgram program)
+	{
+		// Pass in the position, color, normal and texture coordinate information from one interleaved buffer
+		mCubeVertices.bind(mGLState, program);
+		
+		tiles.getModelMatrix(tile, mModelMatrix);
+		MatrixMath.multiplyAffine(mMVMatrix, mViewMatrix, mModelMatrix);
+		MatrixMath.multiplyProjectiveAffine(mMVPMatrix, mProjectionMatrix, mMVMatrix);
+		
+		mGLState.uniformMatrix4fv(program.mvMatrixUniform, mMVMatrix, 0);
+		mGLState.uniformMatrix4fv(program.mvpMatrixUniform, mMVPMatrix, 0);
+		mGLState.uniform3f(program.lightPosUniform, mLightPosInEyeSpace[0], mLightPosInEyeSpace[1],
+				mLightPosInEyeSpace[2]);
+		
+		mCubeVertices.draw(mGLState);
 	}
 	
-    /** Convert a 4D (x, y, z, w) vector to a 3D (x, y, z) vector.<br>
-     * From: http://gamedev.stackexchange.com/questions/26292/opengl-es-2-0-gluunproject
-     * @param vector The 4D vector
-     * @return A 3D vector
-     */
-    private float[] convertTo3d(float[] vector) {
-        float[] result = new float[4];
-        for (int index = 0; index < vector.length; index++) {
-            result[index] = vector[index] / vector[3];
-        }
-        return result;
-    }
 	/**
 	 * Draws a point representing the position of the light.
 	 */
 	private void drawLight()
 	{
-		final int pointMVPMatrixHandle = GLES20.glGetUniformLocation(mPointProgramHandle, "u_MVPMatrix");
-        final int pointPositionHandle = GLES20.glGetAttribLocation(mPointProgramHandle, "a_Position");
+		final int pointMVPMatrixHandle = mPointProgram.mvpMatrixUniform;
+        final int pointPositionHandle = mPointProgram.positionAttribute;
         
 		// Pass in the position.
 		GLES20.glVertexAttrib3f(pointPositionHandle, mLightPosInModelSpace[0], mLightPosInModelSpace[1], mLightPosInModelSpace[2]);
 
 		// Since we are not using a buffer object, disable vertex arrays for this attribute.
-        GLES20.glDisableVertexAttribArray(pointPositionHandle);  
+        mGLState.disableVertexAttribArray(pointPositionHandle);  
 		
 		// Pass in the transformation matrix.
-		Matrix.multiplyMM(mMVPMatrix, 0, mViewMatrix, 0, mLightModelMatrix, 0);
-		Matrix.multiplyMM(mMVPMatrix, 0, mProjectionMatrix, 0, mMVPMatrix, 0);
-		GLES20.glUniformMatrix4fv(pointMVPMatrixHandle, 1, false, mMVPMatrix, 0);
+		MatrixMath.multiplyAffine(mMVPMatrix, mViewMatrix, mLightModelMatrix);
+		MatrixMath.multiplyProjectiveAffine(mMVPMatrix, mProjectionMatrix, mMVPMatrix);
+		mGLState.uniformMatrix4fv(pointMVPMatrixHandle, mMVPMatrix, 0);
 		
 		// Draw the point.
 		GLES20.glDrawArrays(GLES20.GL_POINTS, 0, 1);
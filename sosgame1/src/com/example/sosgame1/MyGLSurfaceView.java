@@ -1,26 +1,33 @@
 package com.example.sosgame1;
 
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.content.Context;
-import android.graphics.PointF;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLU;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.MotionEvent;
 
+import java.util.concurrent.Executor;
+
 public class MyGLSurfaceView extends GLSurfaceView {
 
 //	private final MyGLRenderer mRenderer;
 	// Can't set a final variable outside of the constructor (I think) 
 	private MyGLRenderer mRenderer;
-	private ObjectAnimator anim;
-	private boolean animationInProgress = false;
+
+	/** The player the computer plays for. The human moves first. */
+	private static final int COMPUTER_PLAYER = 1;
+	/** How long the computer may think about a move. */
+	private static final long AI_BUDGET_MILLIS = 500;
+	/** How long a tile takes to flip. */
+	private static final long FLIP_MILLIS = 1000;
+
+	/**
+	 * Plays for the computer in the background. Only used on the UI thread, which owns the board and publishes the
+	 * scene to the GL thread.
+	 */
+	private SearchScheduler mScheduler;
 
     public MyGLSurfaceView(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -39,6 +46,13 @@ public class MyGLSurfaceView extends GLSurfaceView {
         // Set the Renderer for drawing on the GLSurfaceView
         mRenderer = new MyGLRenderer(context);
         setRenderer(mRenderer);
+        // No endgame database: those only exist for boards of up to EndgameSolver.MAX_CELLS cells.
+        final AlphaBetaSearch search = new AlphaBetaSearch(16);
+        mScheduler = new SearchScheduler(new Executor() {
+        	public void execute(Runnable command) {
+        		post(command);
+        	}
+        }, search);
 
         // Render the view only when there is a change in the drawing data
         setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
@@ -53,66 +67,34 @@ public class MyGLSurfaceView extends GLSurfaceView {
         float x = e.getX();
         float y = e.getY();
         
-        if (!animationInProgress) {
-        	switch (e.getAction()) {
-        	case MotionEvent.ACTION_DOWN:
-        		PointF p = mRenderer.getWorldXY(x, y);
-        		Cube foo = null;
-        		for (Cube aCube: mRenderer.cubes) {
-        			if (p.x >= aCube.x - 1 && p.x <= aCube.x + 1
-        					&& p.y >= aCube.y - 1 && p.y <= aCube.y + 1) {
-        				foo = aCube;
-        			}
-        		}
-        		
-        		if (foo != null) {
-        			animationInProgress = true;
-        			setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
-        			AnimatorSet animSet = new AnimatorSet();
-        			ObjectAnimator zAnim = ObjectAnimator.ofFloat(foo, "z",
-        					0, 1, 1, 0);
-        			zAnim.setDuration(1000);
-        			float start;
-        			float end;
-        			if (foo.yRotation == 0) {
-        				start = 0;
-        				end = 180;
-        			} else {
-        				start = 180;
-        				end = 0;
-        			}
-        			anim = ObjectAnimator.ofFloat(foo, "yRotation", start, start,
-        					end, end);
-        			anim.setDuration(1000);
-        			anim.addListener(new AnimatorListenerAdapter() {
-        				public void onAnimationEnd(Animator animation) {
-        					setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
-        					animationInProgress = false;
-        				}
-        			});
-        			animSet.playTogether(zAnim, anim);
-        			animSet.start();
-        		}
-        		break;
-        	case MotionEvent.ACTION_MOVE:
-        		
-        		float dx = x - mPreviousX;
-        		float dy = y - mPreviousY;
-
-        		// reverse direction of rotation above the mid-line
-        		if (y > getHeight() / 2) {
-        			dx = dx * -1 ;
+        switch (e.getAction()) {
+        case MotionEvent.ACTION_DOWN:
+        	final int tile = mRenderer.mPicker.pick(x, y);
+        	if (tile != TilePicker.NONE) {
+        		final int letter = playTile(tile);
+        		if (letter != SosBoard.EMPTY) {
+        			startMove(tile, letter);
         		}
+        	}
+        	break;
+        case MotionEvent.ACTION_MOVE:
+        	
+        	float dx = x - mPreviousX;
+        	float dy = y - mPreviousY;
 
-        		// reverse direction of rotation to left of the mid-line
-        		if (x < getWidth() / 2) {
-        			dy = dy * -1 ;
-        		}
+        	// reverse direction of rotation above the mid-line
+        	if (y > getHeight() / 2) {
+        		dx = dx * -1 ;
+        	}
 
-        		//                mRenderer.mAngle += (dx + dy) * TOUCH_SCALE_FACTOR;  // = 180.0f / 320
-        		break;
+        	// reverse direction of rotation to left of the mid-line
+        	if (x < getWidth() / 2) {
+        		dy = dy * -1 ;
         	}
+
+        	//                mRenderer.mAngle += (dx + dy) * TOUCH_SCALE_FACTOR;  // = 180.0f / 320
         	requestRender();
+        	break;
         }
 
         mPreviousX = x;
@@ -120,4 +102,112 @@ public class MyGLSurfaceView extends GLSurfaceView {
         return true;
     }
     
+    /** Receives the computer's move on the UI thread. */
+    private final SearchScheduler.Listener mComputerMove = new SearchScheduler.Listener() {
+    	public void onMove(int move) {
+    		final int tile = AlphaBetaSearch.getMoveCell(move);
+    		final int letter = AlphaBetaSearch.getMoveLetter(move);
+    		mRenderer.mBoard.play(tile, letter);
+    		startMove(tile, letter);
+    	}
+    };
+
+    /**
+     * Animate a move that has just been played on the board. Called on the UI thread. Only the tile itself is locked
+     * while it flips; a tile that is still flipping, such as an S being turned into an O, flips on from where it is.
+     */
+    private void startMove(final int tile, final int letter) {
+    	mScheduler.cancel();
+    	final TileAnimator animator = mRenderer.mAnimator;
+    	final TileStore tiles = mRenderer.mTiles;
+    	// Bring the working tiles to where the animations are now, so a flipping tile flips on from there.
+    	final long now = SystemClock.uptimeMillis();
+    	animator.sample(now);
+    	animator.cancel(tile);
+    	final float start = tiles.getYRotation(tile);
+    	final float end = MyGLRenderer.getTileRotation(letter);
+    	animator.animate(tile, TileAnimator.TRACK_Z, now, FLIP_MILLIS, TileAnimator.EASE_IN_OUT, null,
+    			tiles.getZ(tile), 1, 1, 0);
+    	animator.animate(tile, TileAnimator.TRACK_Y_ROTATION, now, FLIP_MILLIS, TileAnimator.EASE_IN_OUT, mFlipEnd,
+    			start, start, end, end);
+    	mRenderer.mScene.publish();
+    	setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+    	scheduleAnimationEnd(now);
+    }
+
+    /**
+     * Wake up when the next animation ends. In between, the GL thread draws every frame and moves the animating
+     * tiles itself, from the published animations and the frame's time, so the UI thread has nothing to do.
+     */
+    private void scheduleAnimationEnd(final long now) {
+    	removeCallbacks(mAnimationEnd);
+    	postDelayed(mAnimationEnd, Math.max(mRenderer.mAnimator.getNextEndTime() - now, 0));
+    }
+
+    /**
+     * Ends the animations that are over, which runs their listeners, and publishes the result. Once nothing is
+     * running, frames are only drawn on demand again.
+     */
+    private final Runnable mAnimationEnd = new Runnable() {
+    	public void run() {
+    		final TileAnimator animator = mRenderer.mAnimator;
+    		final long now = SystemClock.uptimeMillis();
+    		animator.update(now);
+    		mRenderer.mScene.publish();
+    		if (animator.isIdle()) {
+    			setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
+    			requestRender();
+    		} else {
+    			scheduleAnimationEnd(now);
+    		}
+    	}
+    };
+
+    /** Puts a flipped tile in its rest pose, and moves the game on once the latest move has been shown. */
+    private final TileAnimator.Listener mFlipEnd = new TileAnimator.Listener() {
+    	public void onAnimationEnd(int tile) {
+    		mRenderer.syncTile(tile);
+    		if (tile == mRenderer.mBoard.getLastCell()) {
+    			afterMove();
+    		}
+    	}
+    };
+
+    /**
+     * Start the computer thinking if it is its turn, or pondering while the human thinks. Called on the UI thread
+     * once a move has been shown.
+     */
+    private void afterMove() {
+    	final SosBoard board = mRenderer.mBoard;
+    	if (board.isFull()) {
+    		return;
+    	}
+    	if (board.getCurrentPlayer() == COMPUTER_PLAYER) {
+    		mScheduler.think(board, AI_BUDGET_MILLIS, mComputerMove);
+    	} else {
+    		mScheduler.ponder(board);
+    	}
+    }
+
+    /**
+     * Play the move for a tapped tile. Tapping an empty tile places an S. Tapping the S that was just placed turns
+     * it into an O instead, as long as the computer has not replied yet. Called on the UI thread.
+     * @param tile The tapped cell.
+     * @return The letter now in the cell, or SosBoard.EMPTY if the tap was not a move.
+     */
+    private int playTile(int tile) {
+    	final SosBoard board = mRenderer.mBoard;
+    	if (board.isEmpty(tile) && board.getCurrentPlayer() != COMPUTER_PLAYER) {
+    		board.play(tile, SosBoard.S);
+    		return SosBoard.S;
+    	}
+    	if (tile == board.getLastCell() && board.getLastPlayer() != COMPUTER_PLAYER
+    			&& board.get(tile) == SosBoard.S) {
+    		board.undo();
+    		board.play(tile, SosBoard.O);
+    		return SosBoard.O;
+    	}
+    	return SosBoard.EMPTY;
+    }
+    
 }
\ No newline at end of file
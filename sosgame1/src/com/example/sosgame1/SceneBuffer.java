@@ -0,0 +1,100 @@
+package com.example.sosgame1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the scene from the thread that plays the game to the GL thread without locks. The writer changes its own
+ * working SceneState and publishes it; the renderer acquires the latest published scene at the start of a frame.
+ * <p>
+ * Publishing copies the working scene into a back buffer, incrementally, and swaps the back buffer with the middle
+ * one in a single atomic step. Acquiring swaps the front buffer with the middle one, if that holds something new, in
+ * another. Each side only ever touches its own buffer, so the renderer always draws a whole scene as it was at one
+ * publish, never blocks, and never holds up the writer, however long the GPU takes over a frame. A scene published
+ * while the renderer is busy simply replaces the previous one that it has not taken yet.
+ * <p>
+ * There must be a single writer thread, normally the UI thread, and a single reader thread, normally the GL thread.
+ * Other threads, such as the AI's, hand their changes to the writer instead. Plain Java with no Android dependencies.
+ */
+public class SceneBuffer
+{
+	/** Set in middle while it holds a scene the reader has not taken yet. */
+	private static final int FRESH = 4;
+
+	/** Masks the buffer index out of middle. */
+	private static final int INDEX = 3;
+
+	/** The writer's scene. */
+	private final SceneState working;
+
+	private final SceneState[] buffers = new SceneState[3];
+
+	/** The buffer last published, plus FRESH. The only state both threads touch. */
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	/** The buffer the writer copies into next. Writer thread only. */
+	private int back = 2;
+
+	/** The buffer the reader draws. Reader thread only. */
+	private int front = 0;
+
+	/** Number of publishes and of acquires that found a new scene. */
+	private volatile long published = 0;
+	private volatile long acquired = 0;
+
+	/**
+	 * @param columns Number of tile columns.
+	 * @param rows Number of tile rows.
+	 */
+	public SceneBuffer(final int columns, final int rows)
+	{
+		working = new SceneState(columns, rows);
+
+		for (int i = 0; i < buffers.length; i++)
+		{
+			buffers[i] = new SceneState(columns, rows);
+		}
+	}
+
+	/** @return The writer's scene. Changes show once they are published. Writer thread only. */
+	public SceneState edit()
+	{
+		return working;
+	}
+
+	/** Publish the working scene as it is now. Never waits for the reader. Writer thread only. */
+	public void publish()
+	{
+		buffers[back].copyFrom(working);
+		back = middle.getAndSet(back | FRESH) & INDEX;
+		published++;
+	}
+
+	/**
+	 * Take the latest published scene, or keep the current one if nothing was published since. Never waits for the
+	 * writer. Reader thread only.
+	 *
+	 * @return The scene to draw. Valid until the next acquire().
+	 */
+	public SceneState acquire()
+	{
+		if ((middle.get() & FRESH) != 0)
+		{
+			front = middle.getAndSet(front) & INDEX;
+			acquired++;
+		}
+
+		return buffers[front];
+	}
+
+	/** @return Number of scenes published. */
+	public long getPublishedCount()
+	{
+		return published;
+	}
+
+	/** @return Number of published scenes the reader took; the rest were replaced before it got to them. */
+	public long getAcquiredCount()
+	{
+		return acquired;
+	}
+}
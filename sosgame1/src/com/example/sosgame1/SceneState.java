@@ -0,0 +1,106 @@
+package com.example.sosgame1;
+
+import java.util.Arrays;
+
+/**
+ * Everything a frame draws that the game changes: the tiles, with their transforms and letters, the animations
+ * running on them, and the strike lines through the SOSes made so far. SceneBuffer keeps several of these to hand a
+ * consistent scene from the thread that plays the game to the GL thread. Plain Java with no Android dependencies.
+ */
+public class SceneState
+{
+	/** Floats per strike line: centre, then x and z rotation in degrees. */
+	private static final int LINE_FLOATS = 5;
+
+	/** All tiles, row by row. */
+	public final TileStore tiles;
+
+	/** The animations running on the tiles. The reader samples them at each frame's time. */
+	public final TileAnimator animations;
+
+	/** The strike lines, LINE_FLOATS each. Grown as needed, never shrunk. */
+	private float[] lines = new float[0];
+	private int lineCount = 0;
+
+	/**
+	 * @param columns Number of tile columns.
+	 * @param rows Number of tile rows.
+	 */
+	public SceneState(final int columns, final int rows)
+	{
+		tiles = new TileStore(columns, rows);
+		animations = new TileAnimator(tiles);
+	}
+
+	/**
+	 * Add a strike line. A line is a long thin bar, rotated about x and then about z.
+	 *
+	 * @param x World x of its centre.
+	 * @param y World y of its centre.
+	 * @param z World z of its centre.
+	 * @param xRotation Rotation about x in degrees.
+	 * @param zRotation Rotation about z in degrees.
+	 */
+	public void addStrikeLine(final float x, final float y, final float z, final float xRotation,
+			final float zRotation)
+	{
+		if ((lineCount + 1) * LINE_FLOATS > lines.length)
+		{
+			lines = Arrays.copyOf(lines, Math.max(4, lineCount * 2) * LINE_FLOATS);
+		}
+
+		final int l = lineCount++ * LINE_FLOATS;
+		lines[l] = x;
+		lines[l + 1] = y;
+		lines[l + 2] = z;
+		lines[l + 3] = xRotation;
+		lines[l + 4] = zRotation;
+	}
+
+	/** Remove every strike line. */
+	public void clearStrikeLines()
+	{
+		lineCount = 0;
+	}
+
+	/** @return Number of strike lines. */
+	public int getStrikeLineCount()
+	{
+		return lineCount;
+	}
+
+	/**
+	 * Build a strike line's model matrix.
+	 *
+	 * @param line The line.
+	 * @param m Receives the matrix.
+	 */
+	public void getStrikeLineMatrix(final int line, final float[] m)
+	{
+		final int l = line * LINE_FLOATS;
+		MatrixMath.setIdentity(m);
+		MatrixMath.translate(m, lines[l], lines[l + 1], lines[l + 2]);
+		MatrixMath.rotateX(m, lines[l + 3]);
+		MatrixMath.rotateZ(m, lines[l + 4]);
+		MatrixMath.scale(m, 3.0f, 0.20f, 0.10f);
+	}
+
+	/**
+	 * Make this scene equal to another of the same size. The tiles are copied incrementally, see
+	 * TileStore.copyFrom(), and the animations without their listeners, see TileAnimator.copyFrom().
+	 *
+	 * @param source The scene to copy.
+	 */
+	public void copyFrom(final SceneState source)
+	{
+		tiles.copyFrom(source.tiles);
+		animations.copyFrom(source.animations);
+
+		if (lines.length < source.lineCount * LINE_FLOATS)
+		{
+			lines = new float[source.lines.length];
+		}
+		System.arraycopy(source.lines, 0, lines, 0, source.lineCount * LINE_FLOATS);
+		lineCount = source.lineCount;
+	}
+}
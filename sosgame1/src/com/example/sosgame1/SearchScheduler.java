@@ -0,0 +1,180 @@
+package com.example.sosgame1;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs AlphaBetaSearch on a background thread, so that neither the GL thread nor the UI thread ever waits for the
+ * AI. The chosen move is handed to the UI thread, which owns the board, through an Executor that posts to it.
+ * <p>
+ * While the human thinks, the scheduler can ponder the position. The transposition table survives between searches
+ * and its values do not depend on whose turn it is, so the following search starts from everything pondering found.
+ * <p>
+ * Every new request cancels the previous one. Cancellation is cooperative: the running search is asked to stop, and
+ * a result that arrives after its request was cancelled is dropped. Call from the UI thread.
+ */
+public class SearchScheduler
+{
+	/** Receives the AI's move on the UI thread. */
+	public interface Listener
+	{
+		void onMove(int move);
+	}
+
+	/** Depth limit for all searches; the time budget is what really stops them. */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * think() stops searching this long before the move is due. On a busy device the search thread may be off the CPU
+	 * when its time is up, and the UI thread has to be scheduled to take the move.
+	 */
+	private static final long DELIVERY_MARGIN_MILLIS = 30;
+
+	/** Pondering stops after this long, so a human who walks away does not drain the battery. */
+	private static final long PONDER_LIMIT_MILLIS = 10000;
+
+	private final Executor uiThread;
+	private final AlphaBetaSearch search;
+	private final ExecutorService executor;
+
+	/** Id of the latest request. Older requests are cancelled. */
+	private final AtomicInteger currentRequest = new AtomicInteger();
+
+	/** Statistics of the last completed search. Written on the search thread. */
+	private volatile int lastDepth;
+	private volatile long lastNodesPerSecond;
+	private volatile float lastHitRate;
+	private volatile long lastElapsedMillis;
+
+	/**
+	 * @param uiThread Runs the listener calls on the UI thread, normally a view's post().
+	 * @param search The engine. Only this scheduler may use it from now on.
+	 */
+	public SearchScheduler(final Executor uiThread, final AlphaBetaSearch search)
+	{
+		this.uiThread = uiThread;
+		this.search = search;
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(final Runnable runnable)
+			{
+				final Thread thread = new Thread(runnable, "ai-search");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Start searching for the AI's move. The listener is called on the UI thread once the budget is used up, unless
+	 * another request comes first.
+	 *
+	 * @param board The position, with the AI to move. Copied, so the caller may keep changing it.
+	 * @param budgetMillis Time from now until the move must be delivered. The search gets all but
+	 * DELIVERY_MARGIN_MILLIS of it.
+	 * @param listener Receives the move.
+	 */
+	public void think(final SosBoard board, final long budgetMillis, final Listener listener)
+	{
+		final long deadline = System.nanoTime() + Math.max(budgetMillis - DELIVERY_MARGIN_MILLIS, 0) * 1000000L;
+		submit(board, deadline, listener);
+	}
+
+	/**
+	 * Search the position in the background to fill the transposition table, until the next request.
+	 *
+	 * @param board The position, with the human to move. Copied.
+	 */
+	public void ponder(final SosBoard board)
+	{
+		submit(board, System.nanoTime() + PONDER_LIMIT_MILLIS * 1000000L, null);
+	}
+
+	/** Cancel the current request, if any. */
+	public void cancel()
+	{
+		currentRequest.incrementAndGet();
+		search.stop();
+	}
+
+	/** Cancel and stop the search thread for good. */
+	public void shutdown()
+	{
+		cancel();
+		executor.shutdownNow();
+	}
+
+	private void submit(final SosBoard board, final long deadline, final Listener listener)
+	{
+		cancel();
+		final int request = currentRequest.get();
+		final SosBoard position = new SosBoard(board.getWidth(), board.getHeight());
+		position.copyFrom(board);
+
+		executor.execute(new Runnable()
+		{
+			public void run()
+			{
+				// Clear before checking, so that a cancel() after the check is still seen by the search.
+				search.clearStop();
+
+				if (request != currentRequest.get())
+				{
+					return;
+				}
+
+				final long remaining = (deadline - System.nanoTime()) / 1000000L;
+				final int move = search.search(position, MAX_DEPTH, Math.max(remaining, 1));
+
+				lastDepth = search.getDepthReached();
+				lastNodesPerSecond = search.getNodesPerSecond();
+				lastHitRate = search.getHitRate();
+				lastElapsedMillis = search.getElapsedMillis();
+
+				if (listener == null || move == AlphaBetaSearch.NO_MOVE || request != currentRequest.get())
+				{
+					return;
+				}
+
+				uiThread.execute(new Runnable()
+				{
+					public void run()
+					{
+						if (request == currentRequest.get())
+						{
+							listener.onMove(move);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/** @return Depth reached by the last search. */
+	public int getLastDepth()
+	{
+		return lastDepth;
+	}
+
+	/** @return Nodes per second of the last search. */
+	public long getLastNodesPerSecond()
+	{
+		return lastNodesPerSecond;
+	}
+
+	/** @return Transposition table hit rate of the last search. */
+	public float getLastHitRate()
+	{
+		return lastHitRate;
+	}
+
+	/** @return How long the last search ran. */
+	public long getLastElapsedMillis()
+	{
+		return lastElapsedMillis;
+	}
+}
@@ -0,0 +1,588 @@
+package com.example.sosgame1;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless self-play between two engine configurations, for catching speed and strength regressions. Runs on a
+ * plain JVM: only the board model and the engines are used, no Android classes.
+ * <p>
+ * Games are shared out between threads, each with its own pair of engines. The engines swap sides every game, and
+ * every game starts with a few random moves from a seeded generator so that deterministic engines do not play the
+ * same game over and over. The report is JSON on standard output or in a file, so runs of two builds can be diffed.
+ * <p>
+ * Usage: SelfPlayTournament [--games N] [--threads N] [--size WxH] [--opening N] [--seed N] [--out file] engineA
+ * engineB
+ * <p>
+ * Engines are given as name[:key=value,...]:
+ * <ul>
+ * <li>ab: AlphaBetaSearch. time (ms per move, default 50), depth (default 64), table (log2 slots, default 16).</li>
+ * <li>mcts: single threaded MctsSearch. time (ms per move, default 50), playouts (per move, default 0 for none),
+ * nodes (pool size, default 2^18).</li>
+ * <li>combo: plays the best combo if there is one, otherwise a random move.</li>
+ * <li>random: plays random moves.</li>
+ * </ul>
+ */
+public class SelfPlayTournament
+{
+	/** A computer player. Each instance is used by one thread. */
+	interface Engine
+	{
+		/** @return The move to play, encoded as in AlphaBetaSearch. */
+		int move(SosBoard board);
+
+		/** @return Nodes or playouts used by the last move. */
+		long getLastNodes();
+
+		/** Release threads, if the engine has any. */
+		void close();
+	}
+
+	private static class AlphaBetaEngine implements Engine
+	{
+		private final AlphaBetaSearch search;
+		private final int depth;
+		private final long timeMillis;
+
+		AlphaBetaEngine(final int depth, final long timeMillis, final int tableLog2Size)
+		{
+			search = new AlphaBetaSearch(tableLog2Size);
+			this.depth = depth;
+			this.timeMillis = timeMillis;
+		}
+
+		public int move(final SosBoard board)
+		{
+			return search.search(board, depth, timeMillis);
+		}
+
+		public long getLastNodes()
+		{
+			return search.getNodes();
+		}
+
+		public void close()
+		{
+		}
+	}
+
+	private static class MctsEngine implements Engine
+	{
+		private final MctsSearch search;
+		private final long timeMillis;
+		private final long playouts;
+
+		MctsEngine(final long timeMillis, final long playouts, final int nodes)
+		{
+			search = new MctsSearch(1, MctsSearch.TREE_PARALLEL, nodes);
+			this.timeMillis = timeMillis;
+			this.playouts = playouts;
+		}
+
+		public int move(final SosBoard board)
+		{
+			return search.search(board, timeMillis, playouts);
+		}
+
+		public long getLastNodes()
+		{
+			return search.getPlayouts();
+		}
+
+		public void close()
+		{
+			search.shutdown();
+		}
+	}
+
+	/** Plays the first move of the best combo, or a random move when there is none. */
+	private static class ComboEngine implements Engine
+	{
+		private final ComboSearch search = new ComboSearch(14);
+		private final Random random;
+		private long lastNodes;
+
+		ComboEngine(final long seed)
+		{
+			random = new Random(seed);
+		}
+
+		public int move(final SosBoard board)
+		{
+			search.search(board, 0);
+			lastNodes = search.getNodes();
+			return search.getBestMove() != AlphaBetaSearch.NO_MOVE ? search.getBestMove() : randomMove(board, random);
+		}
+
+		public long getLastNodes()
+		{
+			return lastNodes;
+		}
+
+		public void close()
+		{
+		}
+	}
+
+	private static class RandomEngine implements Engine
+	{
+		private final Random random;
+
+		RandomEngine(final long seed)
+		{
+			random = new Random(seed);
+		}
+
+		public int move(final SosBoard board)
+		{
+			return randomMove(board, random);
+		}
+
+		public long getLastNodes()
+		{
+			return 0;
+		}
+
+		public void close()
+		{
+		}
+	}
+
+	/** Move latencies and node counts of one engine, collected over some games. */
+	private static class EngineStats
+	{
+		long[] latencies = new long[256];
+		int moves = 0;
+		long nodes = 0;
+		long nanos = 0;
+
+		void add(final long latency, final long moveNodes)
+		{
+			if (moves == latencies.length)
+			{
+				latencies = Arrays.copyOf(latencies, moves * 2);
+			}
+
+			latencies[moves++] = latency;
+			nodes += moveNodes;
+			nanos += latency;
+		}
+
+		void addAll(final EngineStats other)
+		{
+			for (int i = 0; i < other.moves; i++)
+			{
+				add(other.latencies[i], 0);
+			}
+
+			nodes += other.nodes;
+		}
+
+		/** @return The latency below which the given fraction of moves fall, in milliseconds. */
+		double getPercentileMillis(final double fraction)
+		{
+			if (moves == 0)
+			{
+				return 0;
+			}
+
+			final long[] sorted = Arrays.copyOf(latencies, moves);
+			Arrays.sort(sorted);
+			return sorted[Math.min((int) Math.ceil(fraction * moves) - 1, moves - 1)] / 1e6;
+		}
+	}
+
+	/** What one thread brings back: results of its games from engine A's point of view, and engine statistics. */
+	private static class Batch
+	{
+		int winsA = 0;
+		int draws = 0;
+		int winsB = 0;
+		final EngineStats[] stats = { new EngineStats(), new EngineStats() };
+	}
+
+	private final int width;
+	private final int height;
+	private final int games;
+	private final int threads;
+	private final int openingMoves;
+	private final long seed;
+	private final String[] specs;
+
+	public SelfPlayTournament(final int width, final int height, final int games, final int threads,
+			final int openingMoves, final long seed, final String specA, final String specB)
+	{
+		this.width = width;
+		this.height = height;
+		this.games = games;
+		this.threads = threads;
+		this.openingMoves = openingMoves;
+		this.seed = seed;
+		specs = new String[] { specA, specB };
+
+		// Fail on a bad spec before any thread starts.
+		createEngine(specA, 0).close();
+		createEngine(specB, 0).close();
+	}
+
+	/**
+	 * Parse an engine spec, see the class comment.
+	 *
+	 * @throws IllegalArgumentException If the spec is not understood.
+	 */
+	static Engine createEngine(final String spec, final long seed)
+	{
+		final int colon = spec.indexOf(':');
+		final String name = colon < 0 ? spec : spec.substring(0, colon);
+		long time = 50;
+		int depth = 64;
+		int table = 16;
+		long playouts = 0;
+		int nodes = 1 << 18;
+
+		if (colon >= 0)
+		{
+			for (final String option : spec.substring(colon + 1).split(","))
+			{
+				final int equals = option.indexOf('=');
+				if (equals < 0)
+				{
+					throw new IllegalArgumentException("Bad engine option: " + option);
+				}
+
+				final String key = option.substring(0, equals);
+				final long value = Long.parseLong(option.substring(equals + 1));
+
+				if (key.equals("time"))
+				{
+					time = value;
+				}
+				else if (key.equals("depth"))
+				{
+					depth = (int) value;
+				}
+				else if (key.equals("table"))
+				{
+					table = (int) value;
+				}
+				else if (key.equals("playouts"))
+				{
+					playouts = value;
+				}
+				else if (key.equals("nodes"))
+				{
+					nodes = (int) value;
+				}
+				else
+				{
+					throw new IllegalArgumentException("Unknown engine option: " + key);
+				}
+			}
+		}
+
+		if (name.equals("ab"))
+		{
+			return new AlphaBetaEngine(depth, time, table);
+		}
+		if (name.equals("mcts"))
+		{
+			return new MctsEngine(time, playouts, nodes);
+		}
+		if (name.equals("combo"))
+		{
+			return new ComboEngine(seed);
+		}
+		if (name.equals("random"))
+		{
+			return new RandomEngine(seed);
+		}
+
+		throw new IllegalArgumentException("Unknown engine: " + name);
+	}
+
+	/** @return A uniformly random legal move. The board must not be full. */
+	static int randomMove(final SosBoard board, final Random random)
+	{
+		int skip = random.nextInt(board.getCellCount() - board.getMoveCount());
+		int cell = 0;
+
+		while (!board.isEmpty(cell) || skip-- > 0)
+		{
+			cell++;
+		}
+
+		return AlphaBetaSearch.encodeMove(cell, random.nextBoolean() ? SosBoard.S : SosBoard.O);
+	}
+
+	/**
+	 * Play all games and write the report.
+	 */
+	public void run(final Writer out) throws IOException
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<Batch>> futures = new ArrayList<Future<Batch>>(threads);
+		final long start = System.nanoTime();
+
+		for (int t = 0; t < threads; t++)
+		{
+			final int thread = t;
+			futures.add(executor.submit(new Callable<Batch>()
+			{
+				public Batch call()
+				{
+					return playBatch(thread);
+				}
+			}));
+		}
+
+		final Batch total = new Batch();
+
+		try
+		{
+			for (int i = 0; i < futures.size(); i++)
+			{
+				final Batch batch = futures.get(i).get();
+				total.winsA += batch.winsA;
+				total.draws += batch.draws;
+				total.winsB += batch.winsB;
+				total.stats[0].addAll(batch.stats[0]);
+				total.stats[1].addAll(batch.stats[1]);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("Game thread failed.", e.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		writeReport(out, total, (System.nanoTime() - start) / 1e9);
+	}
+
+	/** Play this thread's share of the games: every game whose number is the thread number modulo threads. */
+	private Batch playBatch(final int thread)
+	{
+		final Batch batch = new Batch();
+		final Engine[] engines = { createEngine(specs[0], seed * 31 + thread * 2),
+				createEngine(specs[1], seed * 31 + thread * 2 + 1) };
+		final SosBoard board = new SosBoard(width, height);
+
+		try
+		{
+			for (int game = thread; game < games; game += threads)
+			{
+				board.reset();
+				final Random opening = new Random(seed + game / 2);
+
+				for (int i = 0; i < openingMoves && !board.isFull(); i++)
+				{
+					final int move = randomMove(board, opening);
+					board.play(AlphaBetaSearch.getMoveCell(move), AlphaBetaSearch.getMoveLetter(move));
+				}
+
+				// Engine A is player 0 in even games and player 1 in odd ones; pairs share their opening.
+				final int playerA = game & 1;
+
+				while (!board.isFull())
+				{
+					final int engine = board.getCurrentPlayer() == playerA ? 0 : 1;
+					final long moveStart = System.nanoTime();
+					final int move = engines[engine].move(board);
+					batch.stats[engine].add(System.nanoTime() - moveStart, engines[engine].getLastNodes());
+					board.play(AlphaBetaSearch.getMoveCell(move), AlphaBetaSearch.getMoveLetter(move));
+				}
+
+				final int margin = board.getScore(playerA) - board.getScore(playerA ^ 1);
+				if (margin > 0)
+				{
+					batch.winsA++;
+				}
+				else if (margin < 0)
+				{
+					batch.winsB++;
+				}
+				else
+				{
+					batch.draws++;
+				}
+			}
+		}
+		finally
+		{
+			engines[0].close();
+			engines[1].close();
+		}
+
+		return batch;
+	}
+
+	private void writeReport(final Writer out, final Batch total, final double seconds) throws IOException
+	{
+		final int played = total.winsA + total.draws + total.winsB;
+		final double score = played == 0 ? 0 : (total.winsA + 0.5 * total.draws) / played;
+
+		// Wilson score interval, counting draws as half a win. Unlike the plain normal approximation it stays
+		// meaningful when one engine wins every game.
+		final double z = 1.96;
+		final double n = Math.max(played, 1);
+		final double centre = (score + z * z / (2 * n)) / (1 + z * z / n);
+		final double margin = z * Math.sqrt(score * (1 - score) / n + z * z / (4 * n * n)) / (1 + z * z / n);
+
+		final StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"board\": \"").append(width).append('x').append(height).append("\",\n");
+		json.append("  \"games\": ").append(played).append(",\n");
+		json.append("  \"threads\": ").append(threads).append(",\n");
+		json.append("  \"openingMoves\": ").append(openingMoves).append(",\n");
+		json.append("  \"seed\": ").append(seed).append(",\n");
+		json.append("  \"elapsedSeconds\": ").append(format(seconds)).append(",\n");
+		json.append("  \"gamesPerSecond\": ").append(format(played / seconds)).append(",\n");
+		json.append("  \"engines\": [\n");
+
+		for (int e = 0; e < 2; e++)
+		{
+			final EngineStats stats = total.stats[e];
+			json.append("    {\n");
+			json.append("      \"name\": \"").append(e == 0 ? 'A' : 'B').append("\",\n");
+			final String spec = specs[e].replace("\\", "\\\\").replace("\"", "\\\"");
+			json.append("      \"spec\": \"").append(spec).append("\",\n");
+			json.append("      \"moves\": ").append(stats.moves).append(",\n");
+			json.append("      \"nodes\": ").append(stats.nodes).append(",\n");
+			json.append("      \"nodesPerSecond\": ")
+					.append(format(stats.nanos == 0 ? 0 : stats.nodes * 1e9 / stats.nanos)).append(",\n");
+			json.append("      \"latencyMillis\": { \"p50\": ").append(format(stats.getPercentileMillis(0.5)))
+					.append(", \"p90\": ").append(format(stats.getPercentileMillis(0.9)))
+					.append(", \"p99\": ").append(format(stats.getPercentileMillis(0.99)))
+					.append(", \"max\": ").append(format(stats.getPercentileMillis(1))).append(" }\n");
+			json.append(e == 0 ? "    },\n" : "    }\n");
+		}
+
+		json.append("  ],\n");
+		json.append("  \"result\": {\n");
+		json.append("    \"winsA\": ").append(total.winsA).append(",\n");
+		json.append("    \"draws\": ").append(total.draws).append(",\n");
+		json.append("    \"winsB\": ").append(total.winsB).append(",\n");
+		json.append("    \"scoreA\": ").append(format(score)).append(",\n");
+		json.append("    \"scoreA95\": [").append(format(centre - margin)).append(", ")
+				.append(format(centre + margin)).append("],\n");
+		json.append("    \"eloA\": ").append(score > 0 && score < 1
+				? format(-400 * Math.log10(1 / score - 1)) : "null").append('\n');
+		json.append("  }\n");
+		json.append("}\n");
+
+		out.write(json.toString());
+		out.flush();
+	}
+
+	private static String format(final double value)
+	{
+		return String.format(Locale.US, "%.4f", value);
+	}
+
+	public static void main(final String[] args) throws IOException
+	{
+		int games = 1000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int width = 5;
+		int height = 5;
+		int openingMoves = 2;
+		long seed = 1;
+		String outFile = null;
+		final List<String> engines = new ArrayList<String>();
+
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				final String arg = args[i];
+
+				if (arg.equals("--games"))
+				{
+					games = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("--threads"))
+				{
+					threads = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("--size"))
+				{
+					final String[] size = args[++i].split("x");
+					width = Integer.parseInt(size[0]);
+					height = Integer.parseInt(size[1]);
+				}
+				else if (arg.equals("--opening"))
+				{
+					openingMoves = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("--seed"))
+				{
+					seed = Long.parseLong(args[++i]);
+				}
+				else if (arg.equals("--out"))
+				{
+					outFile = args[++i];
+				}
+				else
+				{
+					engines.add(arg);
+				}
+			}
+
+			if (engines.size() != 2 || games < 1 || threads < 1)
+			{
+				throw new IllegalArgumentException("Need two engines, at least one game and one thread.");
+			}
+
+			final SelfPlayTournament tournament = new SelfPlayTournament(width, height, games,
+					Math.min(threads, games), openingMoves, seed, engines.get(0), engines.get(1));
+
+			final Writer out = outFile == null ? new OutputStreamWriter(System.out) : new FileWriter(outFile);
+			try
+			{
+				tournament.run(out);
+			}
+			finally
+			{
+				if (outFile != null)
+				{
+					out.close();
+				}
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			usage(e.getMessage());
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			usage("Missing option value.");
+		}
+	}
+
+	private static void usage(final String message)
+	{
+		System.err.println(message);
+		System.err.println("Usage: SelfPlayTournament [--games N] [--threads N] [--size WxH] [--opening N] "
+				+ "[--seed N] [--out file] engineA engineB");
+		System.exit(2);
+	}
+}
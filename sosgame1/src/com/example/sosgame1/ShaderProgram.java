@@ -0,0 +1,266 @@
+package com.example.sosgame1;
+
+import java.util.HashMap;
+
+import android.opengl.GLES20;
+
+/**
+ * A linked shader program together with the locations of all of its active uniforms and attributes. The locations
+ * are enumerated once right after linking, so switching to this program in the draw path costs no string lookups.
+ */
+public class ShaderProgram
+{
+	/** Location returned for a variable the program does not use. GL ignores uniform calls to this location. */
+	public static final int NOT_FOUND = -1;
+
+	/** An active uniform or attribute as reported by the driver. */
+	public static class Variable
+	{
+		public final String name;
+		public final int location;
+		/** GL type, e.g. GL_FLOAT_MAT4. */
+		public final int type;
+		/** Array size, or 1 for non-array variables. */
+		public final int size;
+
+		Variable(final String name, final int location, final int type, final int size)
+		{
+			this.name = name;
+			this.location = location;
+			this.type = type;
+			this.size = size;
+		}
+	}
+
+	/** An OpenGL handle to the program. */
+	public final int programHandle;
+
+	/** Pre-resolved locations of the variables used by our shaders, or NOT_FOUND if the program lacks them. */
+	public final int mvpMatrixUniform;
+	public final int mvMatrixUniform;
+	public final int lightPosUniform;
+	public final int textureUniform;
+	public final int pointSizeUniform;
+	public final int positionAttribute;
+	public final int colorAttribute;
+	public final int normalAttribute;
+	public final int textureCoordinateAttribute;
+
+	private final HashMap<String, Variable> uniforms = new HashMap<String, Variable>();
+	private final HashMap<String, Variable> attributes = new HashMap<String, Variable>();
+
+	/** Last value uploaded for each uniform location, used by GLStateCache to drop redundant uploads. */
+	private final float[][] uniformValues;
+	private final boolean[] uniformKnown;
+
+	/**
+	 * Compile, link and reflect a program.
+	 *
+	 * @param vertexShader The vertex shader source.
+	 * @param fragmentShader The fragment shader source.
+	 * @param attributes Attributes that need to be bound to the program.
+	 */
+	public ShaderProgram(final String vertexShader, final String fragmentShader, final String[] attributes)
+	{
+		final int vertexShaderHandle = ShaderHelper.compileShader(GLES20.GL_VERTEX_SHADER, vertexShader);
+		final int fragmentShaderHandle = ShaderHelper.compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentShader);
+
+		programHandle = ShaderHelper.createAndLinkProgram(vertexShaderHandle, fragmentShaderHandle, attributes);
+
+		reflect(GLES20.GL_ACTIVE_UNIFORMS, GLES20.GL_ACTIVE_UNIFORM_MAX_LENGTH, this.uniforms);
+		reflect(GLES20.GL_ACTIVE_ATTRIBUTES, GLES20.GL_ACTIVE_ATTRIBUTE_MAX_LENGTH, this.attributes);
+
+		int maxLocation = -1;
+		for (Variable uniform : uniforms.values())
+		{
+			maxLocation = Math.max(maxLocation, uniform.location);
+		}
+		uniformValues = new float[maxLocation + 1][16];
+		uniformKnown = new boolean[maxLocation + 1];
+
+		mvpMatrixUniform = getUniform("u_MVPMatrix");
+		mvMatrixUniform = getUniform("u_MVMatrix");
+		lightPosUniform = getUniform("u_LightPos");
+		textureUniform = getUniform("u_Texture");
+		pointSizeUniform = getUniform("u_PointSize");
+		positionAttribute = getAttribute("a_Position");
+		colorAttribute = getAttribute("a_Color");
+		normalAttribute = getAttribute("a_Normal");
+		textureCoordinateAttribute = getAttribute("a_TexCoordinate");
+	}
+
+	/**
+	 * Enumerate the active uniforms or attributes of the program into a table.
+	 *
+	 * @param countParameter GL_ACTIVE_UNIFORMS or GL_ACTIVE_ATTRIBUTES.
+	 * @param maxLengthParameter The matching GL_ACTIVE_*_MAX_LENGTH.
+	 * @param table The table to fill.
+	 */
+	private void reflect(final int countParameter, final int maxLengthParameter, final HashMap<String, Variable> table)
+	{
+		final int[] count = new int[1];
+		final int[] maxLength = new int[1];
+		GLES20.glGetProgramiv(programHandle, countParameter, count, 0);
+		GLES20.glGetProgramiv(programHandle, maxLengthParameter, maxLength, 0);
+
+		final byte[] nameBuffer = new byte[Math.max(maxLength[0], 1)];
+		final int[] length = new int[1];
+		final int[] size = new int[1];
+		final int[] type = new int[1];
+
+		for (int i = 0; i < count[0]; i++)
+		{
+			String name;
+			final int location;
+
+			if (countParameter == GLES20.GL_ACTIVE_UNIFORMS)
+			{
+				GLES20.glGetActiveUniform(programHandle, i, nameBuffer.length, length, 0, size, 0, type, 0, nameBuffer, 0);
+				name = new String(nameBuffer, 0, length[0]);
+				location = GLES20.glGetUniformLocation(programHandle, name);
+			}
+			else
+			{
+				GLES20.glGetActiveAttrib(programHandle, i, nameBuffer.length, length, 0, size, 0, type, 0, nameBuffer, 0);
+				name = new String(nameBuffer, 0, length[0]);
+				location = GLES20.glGetAttribLocation(programHandle, name);
+			}
+
+			// Arrays are reported as "name[0]"; store them under the plain name.
+			if (name.endsWith("[0]"))
+			{
+				name = name.substring(0, name.length() - 3);
+			}
+
+			table.put(name, new Variable(name, location, type[0], size[0]));
+		}
+	}
+
+	/** @return The location of the named uniform, or NOT_FOUND. Not meant to be called per frame. */
+	public int getUniform(final String name)
+	{
+		final Variable variable = uniforms.get(name);
+		return variable == null ? NOT_FOUND : variable.location;
+	}
+
+	/** @return The location of the named attribute, or NOT_FOUND. Not meant to be called per frame. */
+	public int getAttribute(final String name)
+	{
+		final Variable variable = attributes.get(name);
+		return variable == null ? NOT_FOUND : variable.location;
+	}
+
+	/** @return The reflected uniform, or null if the program has no such active uniform. */
+	public Variable getUniformVariable(final String name)
+	{
+		return uniforms.get(name);
+	}
+
+	/** @return The reflected attribute, or null if the program has no such active attribute. */
+	public Variable getAttributeVariable(final String name)
+	{
+		return attributes.get(name);
+	}
+
+	/**
+	 * Record an int uniform value.
+	 *
+	 * @return true if the value differs from the last one recorded and must be uploaded.
+	 */
+	boolean cacheUniform(final int location, final int value)
+	{
+		if (location < 0)
+		{
+			return false;
+		}
+
+		final float[] cached = uniformValues[location];
+
+		if (uniformKnown[location] && cached[0] == value)
+		{
+			return false;
+		}
+
+		cached[0] = value;
+		uniformKnown[location] = true;
+		return true;
+	}
+
+	/**
+	 * Record a float uniform value.
+	 *
+	 * @return true if the value differs from the last one recorded and must be uploaded.
+	 */
+	boolean cacheUniform(final int location, final float value)
+	{
+		if (location < 0)
+		{
+			return false;
+		}
+
+		final float[] cached = uniformValues[location];
+
+		if (uniformKnown[location] && cached[0] == value)
+		{
+			return false;
+		}
+
+		cached[0] = value;
+		uniformKnown[location] = true;
+		return true;
+	}
+
+	/**
+	 * Record a vec3 uniform value.
+	 *
+	 * @return true if the value differs from the last one recorded and must be uploaded.
+	 */
+	boolean cacheUniform(final int location, final float x, final float y, final float z)
+	{
+		if (location < 0)
+		{
+			return false;
+		}
+
+		final float[] cached = uniformValues[location];
+
+		if (uniformKnown[location] && cached[0] == x && cached[1] == y && cached[2] == z)
+		{
+			return false;
+		}
+
+		cached[0] = x;
+		cached[1] = y;
+		cached[2] = z;
+		uniformKnown[location] = true;
+		return true;
+	}
+
+	/**
+	 * Record a mat4 uniform value.
+	 *
+	 * @return true if the value differs from the last one recorded and must be uploaded.
+	 */
+	boolean cacheUniform(final int location, final float[] matrix, final int offset)
+	{
+		if (location < 0)
+		{
+			return false;
+		}
+
+		final float[] cached = uniformValues[location];
+		boolean changed = !uniformKnown[location];
+
+		for (int i = 0; i < 16; i++)
+		{
+			if (cached[i] != matrix[offset + i])
+			{
+				cached[i] = matrix[offset + i];
+				changed = true;
+			}
+		}
+
+		uniformKnown[location] = true;
+		return changed;
+	}
+}
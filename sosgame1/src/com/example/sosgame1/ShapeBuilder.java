@@ -1,7 +1,71 @@
 package com.example.sosgame1;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import android.opengl.GLES20;
+
 public class ShapeBuilder 
 {
+	/** Largest number of vertices that can be addressed with GL_UNSIGNED_SHORT indices. */
+	public static final int MAX_INDEXED_VERTICES = 65536;
+	
+	/** Levels of detail of a tile, finest first; see generateTileLods(). */
+	public static final int LOD_CUBE = 0;
+	public static final int LOD_FACES = 1;
+	public static final int LOD_POINT = 2;
+	public static final int LOD_COUNT = 3;
+	
+	/**
+	 * A shape as deduplicated vertices plus indices. The attribute arrays hold one entry per unique vertex; any of
+	 * them may be null if the source had no such attribute.
+	 */
+	public static class IndexedShape
+	{
+		public final float[] positions;
+		public final float[] colors;
+		public final float[] normals;
+		public final float[] textureCoordinates;
+		public final short[] indices;
+		
+		/** Number of unique vertices. */
+		public final int vertexCount;
+		
+		/** GL_TRIANGLES or GL_POINTS. */
+		public final int primitive;
+		
+		/** Indices per primitive: 3 for triangles, 1 for points. */
+		public final int indicesPerPrimitive;
+		
+		/**
+		 * True if the shape holds a front and a back version of a flat tile, of which only the one whose normal ends
+		 * up pointing towards the camera needs to be drawn.
+		 */
+		public final boolean facingOnly;
+		
+		IndexedShape(float[] positions, float[] colors, float[] normals, float[] textureCoordinates, short[] indices,
+				int vertexCount)
+		{
+			this(positions, colors, normals, textureCoordinates, indices, vertexCount, GLES20.GL_TRIANGLES, false);
+		}
+		
+		IndexedShape(float[] positions, float[] colors, float[] normals, float[] textureCoordinates, short[] indices,
+				int vertexCount, int primitive, boolean facingOnly)
+		{
+			this.positions = positions;
+			this.colors = colors;
+			this.normals = normals;
+			this.textureCoordinates = textureCoordinates;
+			this.indices = indices;
+			this.vertexCount = vertexCount;
+			this.primitive = primitive;
+			this.indicesPerPrimitive = primitive == GLES20.GL_POINTS ? 1 : 3;
+			this.facingOnly = facingOnly;
+		}
+	}
+
 	public static float[] generateCubeData(float[] point1,
 			float[] point2,
 			float[] point3,
@@ -78,4 +142,344 @@ public class ShapeBuilder
 
 		return cubeData;
 	}
+	
+	/**
+	 * Interleave separate per-attribute arrays into a single buffer laid out as described by a vertex format.
+	 * 
+	 * @param format The vertex layout to produce.
+	 * @param positions 3 floats per vertex.
+	 * @param colors 4 floats per vertex, or null to leave the color zero.
+	 * @param normals 3 floats per vertex, or null to leave the normal zero.
+	 * @param textureCoordinates 2 floats per vertex, or null to leave the texture coordinate zero.
+	 * @return A direct buffer in native byte order, ready to be uploaded.
+	 */
+	public static ByteBuffer generateInterleavedData(VertexFormat format,
+			float[] positions,
+			float[] colors,
+			float[] normals,
+			float[] textureCoordinates)
+	{
+		final int vertexCount = positions.length / 3;
+		final ByteBuffer vertexData = ByteBuffer.allocateDirect(vertexCount * format.stride)
+		.order(ByteOrder.nativeOrder());
+		
+		for (int vertex = 0; vertex < vertexCount; vertex++)
+		{
+			for (VertexFormat.Attribute attribute : format.attributes)
+			{
+				final float[] source;
+				
+				if (attribute.semantic == VertexFormat.POSITION)
+				{
+					source = positions;
+				}
+				else if (attribute.semantic == VertexFormat.COLOR)
+				{
+					source = colors;
+				}
+				else if (attribute.semantic == VertexFormat.NORMAL)
+				{
+					source = normals;
+				}
+				else // if (attribute.semantic == VertexFormat.TEXTURE_COORDINATE)
+				{
+					source = textureCoordinates;
+				}
+				
+				// Attributes missing from the source are left as zero.
+				if (source != null)
+				{
+					putAttribute(vertexData, vertex * format.stride + attribute.offset, attribute,
+							source, vertex * attribute.size);
+				}
+			}
+		}
+		
+		vertexData.position(0);
+		return vertexData;
+	}
+	
+	/**
+	 * Convert one attribute value from floats into its packed representation and write it into a buffer.
+	 * Normalized integer types are clamped to [-1, 1] (signed) or [0, 1] (unsigned) first.
+	 * 
+	 * @param vertexData The buffer to write to. Its position is not changed.
+	 * @param byteOffset Where to write the attribute.
+	 * @param attribute The attribute layout.
+	 * @param source The float components.
+	 * @param sourceOffset Index of the first component in source.
+	 */
+	public static void putAttribute(ByteBuffer vertexData, int byteOffset, VertexFormat.Attribute attribute,
+			float[] source, int sourceOffset)
+	{
+		for (int i = 0; i < attribute.size; i++)
+		{
+			final float value = source[sourceOffset + i];
+			
+			switch (attribute.type)
+			{
+			case GLES20.GL_FLOAT:
+				vertexData.putFloat(byteOffset + i * 4, value);
+				break;
+			case GLES20.GL_BYTE:
+				vertexData.put(byteOffset + i, (byte) (attribute.normalized ? Math.round(clamp(value, -1, 1) * 127) : value));
+				break;
+			case GLES20.GL_UNSIGNED_BYTE:
+				vertexData.put(byteOffset + i, (byte) (attribute.normalized ? Math.round(clamp(value, 0, 1) * 255) : value));
+				break;
+			case GLES20.GL_SHORT:
+				vertexData.putShort(byteOffset + i * 2, (short) (attribute.normalized ? Math.round(clamp(value, -1, 1) * 32767) : value));
+				break;
+			case GLES20.GL_UNSIGNED_SHORT:
+				vertexData.putShort(byteOffset + i * 2, (short) (attribute.normalized ? Math.round(clamp(value, 0, 1) * 65535) : value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported vertex attribute type " + attribute.type);
+			}
+		}
+	}
+	
+	private static float clamp(float value, float min, float max)
+	{
+		return value < min ? min : (value > max ? max : value);
+	}
+	
+	/**
+	 * Merge identical vertices of a triangle list and generate indices for the result. Two vertices are identical if
+	 * all of their attributes are equal. A flat-shaded cube goes from 36 vertices to 24.
+	 * 
+	 * @param positions 3 floats per vertex.
+	 * @param colors 4 floats per vertex, or null.
+	 * @param normals 3 floats per vertex, or null.
+	 * @param textureCoordinates 2 floats per vertex, or null.
+	 * @return The deduplicated shape.
+	 */
+	public static IndexedShape generateIndexedData(float[] positions,
+			float[] colors,
+			float[] normals,
+			float[] textureCoordinates)
+	{
+		final int vertexCount = positions.length / 3;
+		final float[][] sources = {positions, colors, normals, textureCoordinates};
+		final int[] sizes = {3, 4, 3, 2};
+		
+		int floatsPerVertex = 0;
+		for (int i = 0; i < sources.length; i++)
+		{
+			if (sources[i] != null)
+			{
+				floatsPerVertex += sizes[i];
+			}
+		}
+		
+		final HashMap<VertexKey, Integer> uniqueVertices = new HashMap<VertexKey, Integer>();
+		final int[] firstOccurrence = new int[vertexCount];
+		final short[] indices = new short[vertexCount];
+		int uniqueCount = 0;
+		
+		for (int vertex = 0; vertex < vertexCount; vertex++)
+		{
+			// Gather all attributes of this vertex into one key.
+			final float[] key = new float[floatsPerVertex];
+			int k = 0;
+			for (int i = 0; i < sources.length; i++)
+			{
+				if (sources[i] != null)
+				{
+					System.arraycopy(sources[i], vertex * sizes[i], key, k, sizes[i]);
+					k += sizes[i];
+				}
+			}
+			
+			final VertexKey vertexKey = new VertexKey(key);
+			Integer index = uniqueVertices.get(vertexKey);
+			
+			if (index == null)
+			{
+				if (uniqueCount == MAX_INDEXED_VERTICES)
+				{
+					throw new IllegalArgumentException("Too many unique vertices for short indices.");
+				}
+				
+				index = uniqueCount;
+				firstOccurrence[uniqueCount++] = vertex;
+				uniqueVertices.put(vertexKey, index);
+			}
+			
+			indices[vertex] = (short) index.intValue();
+		}
+		
+		final float[][] unique = new float[sources.length][];
+		for (int i = 0; i < sources.length; i++)
+		{
+			if (sources[i] != null)
+			{
+				unique[i] = new float[uniqueCount * sizes[i]];
+				for (int u = 0; u < uniqueCount; u++)
+				{
+					System.arraycopy(sources[i], firstOccurrence[u] * sizes[i], unique[i], u * sizes[i], sizes[i]);
+				}
+			}
+		}
+		
+		return new IndexedShape(unique[0], unique[1], unique[2], unique[3], indices, uniqueCount);
+	}
+	
+	/**
+	 * Build the level of detail chain of a tile from its full mesh, finest first:
+	 * <ul>
+	 * <li>LOD_CUBE, the mesh itself;</li>
+	 * <li>LOD_FACES, just its front and back faces, the ones with a letter, of which a batch keeps the one facing the
+	 * camera: 2 triangles a tile instead of 12;</li>
+	 * <li>LOD_POINT, one point per letter face, at the face's centre, with the texture coordinate of the centre of its
+	 * letter. Drawn as a point sprite the size of the tile.</li>
+	 * </ul>
+	 * Vertices of the coarser levels are plain copies of the mesh's, so they keep its colors and normals.
+	 * 
+	 * @param cube A tile mesh with positions, normals and texture coordinates, whose letter faces have normals of
+	 *        (0, 0, 1) and (0, 0, -1).
+	 * @return The shapes, indexed by level.
+	 */
+	public static IndexedShape[] generateTileLods(IndexedShape cube)
+	{
+		final IndexedShape[] lods = new IndexedShape[LOD_COUNT];
+		lods[LOD_CUBE] = cube;
+		
+		// Vertices of triangles facing +z or -z, renumbered in order of first use.
+		final int[] newIndex = new int[cube.vertexCount];
+		Arrays.fill(newIndex, -1);
+		final short[] faceIndices = new short[cube.indices.length];
+		final int[] faceVertices = new int[cube.vertexCount];
+		int faceIndexCount = 0;
+		int faceVertexCount = 0;
+		
+		for (int i = 0; i < cube.indices.length; i += 3)
+		{
+			if (cube.normals[cube.indices[i] * 3 + 2] == 0)
+			{
+				continue;
+			}
+			
+			for (int k = 0; k < 3; k++)
+			{
+				final int vertex = cube.indices[i + k];
+				
+				if (newIndex[vertex] < 0)
+				{
+					newIndex[vertex] = faceVertexCount;
+					faceVertices[faceVertexCount++] = vertex;
+				}
+				
+				faceIndices[faceIndexCount++] = (short) newIndex[vertex];
+			}
+		}
+		
+		lods[LOD_FACES] = new IndexedShape(copyVertices(cube.positions, 3, faceVertices, faceVertexCount),
+				copyVertices(cube.colors, 4, faceVertices, faceVertexCount),
+				copyVertices(cube.normals, 3, faceVertices, faceVertexCount),
+				copyVertices(cube.textureCoordinates, 2, faceVertices, faceVertexCount),
+				Arrays.copyOf(faceIndices, faceIndexCount), faceVertexCount, GLES20.GL_TRIANGLES, true);
+		
+		// One point per letter face, with the color and normal of the face's first vertex and the position and
+		// texture coordinate of the middle of the face: components 0 to 2 of min and max are x, y, z, 3 and 4 s, t.
+		final int[] pointVertices = new int[2];
+		final float[] pointPositions = new float[6];
+		final float[] pointTextureCoordinates = new float[4];
+		
+		for (int point = 0; point < 2; point++)
+		{
+			final float nz = point == 0 ? 1 : -1;
+			final float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+			final float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE,
+					-Float.MAX_VALUE};
+			pointVertices[point] = -1;
+			
+			for (int vertex = 0; vertex < cube.vertexCount; vertex++)
+			{
+				if (cube.normals[vertex * 3 + 2] != nz)
+				{
+					continue;
+				}
+				
+				if (pointVertices[point] < 0)
+				{
+					pointVertices[point] = vertex;
+				}
+				
+				for (int c = 0; c < 5; c++)
+				{
+					final float value = c < 3 ? cube.positions[vertex * 3 + c]
+							: cube.textureCoordinates[vertex * 2 + c - 3];
+					min[c] = Math.min(min[c], value);
+					max[c] = Math.max(max[c], value);
+				}
+			}
+			
+			if (pointVertices[point] < 0)
+			{
+				throw new IllegalArgumentException("Tile mesh has no face with normal z = " + nz);
+			}
+			
+			for (int c = 0; c < 5; c++)
+			{
+				final float centre = (min[c] + max[c]) / 2;
+				
+				if (c < 3)
+				{
+					pointPositions[point * 3 + c] = centre;
+				}
+				else
+				{
+					pointTextureCoordinates[point * 2 + c - 3] = centre;
+				}
+			}
+		}
+		
+		lods[LOD_POINT] = new IndexedShape(pointPositions, copyVertices(cube.colors, 4, pointVertices, 2),
+				copyVertices(cube.normals, 3, pointVertices, 2), pointTextureCoordinates, new short[] {0, 1}, 2,
+				GLES20.GL_POINTS, true);
+		
+		return lods;
+	}
+	
+	/** @return The attribute values of some vertices, or null if source is null. */
+	private static float[] copyVertices(float[] source, int size, int[] vertices, int count)
+	{
+		if (source == null)
+		{
+			return null;
+		}
+		
+		final float[] result = new float[count * size];
+		for (int i = 0; i < count; i++)
+		{
+			System.arraycopy(source, vertices[i] * size, result, i * size, size);
+		}
+		return result;
+	}
+	
+	/** Value-comparing wrapper so vertices can be used as hash keys. */
+	private static class VertexKey
+	{
+		private final float[] values;
+		private final int hash;
+		
+		VertexKey(float[] values)
+		{
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other)
+		{
+			return other instanceof VertexKey && Arrays.equals(values, ((VertexKey) other).values);
+		}
+	}
 }
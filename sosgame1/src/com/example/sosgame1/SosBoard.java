@@ -0,0 +1,408 @@
+package com.example.sosgame1;
+
+/**
+ * The SOS game state, independent of rendering. Cells hold S, O or nothing and are stored as two packed bitboards.
+ * When a letter is placed only the three-cell segments through that cell are checked for newly completed S-O-S
+ * lines, at most 12 of them, looked up in the shared BoardGeometry table. A player who completes at least one line
+ * scores it and moves again.
+ * <p>
+ * play() and undo() run in constant time and never allocate, so search code can call them millions of times. Cells
+ * are numbered row by row: cell = row * width + column. Not thread safe.
+ * <p>
+ * Besides its own Zobrist hash, the board keeps the hash of each of its rotations and reflections, see
+ * BoardGeometry. Positions that are the same up to symmetry have the same canonical hash, which lets a search store
+ * them once.
+ */
+public class SosBoard
+{
+	/** Cell states. */
+	public static final int EMPTY = 0;
+	public static final int S = 1;
+	public static final int O = 2;
+
+	/** Number of players. Players are numbered 0 and 1. */
+	public static final int PLAYERS = 2;
+
+	/** Layout of a history entry. */
+	private static final int HISTORY_CELL_MASK = (1 << 20) - 1;
+	private static final int HISTORY_LETTER_SHIFT = 20;
+	private static final int HISTORY_PLAYER_SHIFT = 22;
+	private static final int HISTORY_POINTS_SHIFT = 23;
+
+	private final int width;
+	private final int height;
+	private final int cellCount;
+	private final BoardGeometry geometry;
+
+	/** One bit per cell for each letter. */
+	private final long[] sBits;
+	private final long[] oBits;
+
+	private final int[] scores = new int[PLAYERS];
+	private int currentPlayer = 0;
+
+	/** Zobrist hash of the cells under each symmetry. hashes[0] is the hash of the board itself. */
+	private final long[] hashes;
+
+	/** One packed entry per move played, so that moves can be undone. */
+	private final int[] history;
+	private int moveCount = 0;
+
+	/**
+	 * @param width Number of columns, at least 1.
+	 * @param height Number of rows, at least 1.
+	 */
+	public SosBoard(final int width, final int height)
+	{
+		if (width < 1 || height < 1 || (long) width * height > HISTORY_CELL_MASK)
+		{
+			throw new IllegalArgumentException("Bad board size: " + width + "x" + height);
+		}
+
+		this.width = width;
+		this.height = height;
+		cellCount = width * height;
+		geometry = BoardGeometry.get(width, height);
+		sBits = new long[(cellCount + 63) >>> 6];
+		oBits = new long[(cellCount + 63) >>> 6];
+		history = new int[cellCount];
+		hashes = new long[geometry.symmetryCount];
+	}
+
+	/** Clear the board and the scores. Player 0 moves first. */
+	public void reset()
+	{
+		for (int i = 0; i < sBits.length; i++)
+		{
+			sBits[i] = 0;
+			oBits[i] = 0;
+		}
+
+		scores[0] = 0;
+		scores[1] = 0;
+		currentPlayer = 0;
+		moveCount = 0;
+
+		for (int s = 0; s < hashes.length; s++)
+		{
+			hashes[s] = 0;
+		}
+	}
+
+	/**
+	 * Make this board a copy of another of the same size, including its history. Does not allocate.
+	 */
+	public void copyFrom(final SosBoard other)
+	{
+		if (other.width != width || other.height != height)
+		{
+			throw new IllegalArgumentException("Board sizes differ.");
+		}
+
+		System.arraycopy(other.sBits, 0, sBits, 0, sBits.length);
+		System.arraycopy(other.oBits, 0, oBits, 0, oBits.length);
+		System.arraycopy(other.history, 0, history, 0, other.moveCount);
+		scores[0] = other.scores[0];
+		scores[1] = other.scores[1];
+		currentPlayer = other.currentPlayer;
+		moveCount = other.moveCount;
+		System.arraycopy(other.hashes, 0, hashes, 0, hashes.length);
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public int getCellCount()
+	{
+		return cellCount;
+	}
+
+	/** @return The shared line segment table for this board size. */
+	public BoardGeometry getGeometry()
+	{
+		return geometry;
+	}
+
+	/** @return EMPTY, S or O. */
+	public int get(final int cell)
+	{
+		if (isS(cell))
+		{
+			return S;
+		}
+
+		return isO(cell) ? O : EMPTY;
+	}
+
+	public boolean isEmpty(final int cell)
+	{
+		return (((sBits[cell >>> 6] | oBits[cell >>> 6]) >>> cell) & 1) == 0;
+	}
+
+	private boolean isS(final int cell)
+	{
+		return ((sBits[cell >>> 6] >>> cell) & 1) != 0;
+	}
+
+	private boolean isO(final int cell)
+	{
+		return ((oBits[cell >>> 6] >>> cell) & 1) != 0;
+	}
+
+	/**
+	 * Copy the board out as bit rows, each starting on a word boundary: bit c of word k of row r is the cell in
+	 * column 64 * k + c. Bits past the last column are zero.
+	 *
+	 * @param sRows Receives the S rows, height * wordsPerRow words.
+	 * @param oRows Receives the O rows, height * wordsPerRow words.
+	 * @param wordsPerRow At least (width + 63) / 64.
+	 */
+	public void copyRows(final long[] sRows, final long[] oRows, final int wordsPerRow)
+	{
+		for (int row = 0; row < height; row++)
+		{
+			for (int k = 0; k < wordsPerRow; k++)
+			{
+				final int bits = Math.min(Math.max(width - k * 64, 0), 64);
+				final int from = row * width + k * 64;
+				sRows[row * wordsPerRow + k] = extract(sBits, from, bits);
+				oRows[row * wordsPerRow + k] = extract(oBits, from, bits);
+			}
+		}
+	}
+
+	/** @return count bits of a bitboard starting at bit from, in the low bits of the result. */
+	private static long extract(final long[] bitboard, final int from, final int count)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		final int word = from >>> 6;
+		final int shift = from & 63;
+		long value = bitboard[word] >>> shift;
+
+		if (shift != 0 && word + 1 < bitboard.length)
+		{
+			value |= bitboard[word + 1] << (64 - shift);
+		}
+
+		return count == 64 ? value : value & ((1L << count) - 1);
+	}
+
+	/**
+	 * @return Zobrist hash of the cells. It ignores scores and the player to move: the points still to be won from a
+	 * position depend on neither.
+	 */
+	public long getHash()
+	{
+		return hashes[0];
+	}
+
+	/** @return The hash of the board transformed by a symmetry. */
+	public long getSymmetricHash(final int symmetry)
+	{
+		return hashes[symmetry];
+	}
+
+	/**
+	 * @return The symmetry whose transformed board has the smallest hash. All positions that are the same up to
+	 * symmetry are taken to the same canonical position by it.
+	 */
+	public int getCanonicalSymmetry()
+	{
+		int best = 0;
+
+		for (int s = 1; s < hashes.length; s++)
+		{
+			if (hashes[s] < hashes[best])
+			{
+				best = s;
+			}
+		}
+
+		return best;
+	}
+
+	/** @return The hash of the canonical position, the same for all positions that are the same up to symmetry. */
+	public long getCanonicalHash()
+	{
+		return hashes[getCanonicalSymmetry()];
+	}
+
+	/** @return A bit mask of the symmetries that leave the board as it is. Bit 0, the identity, is always set. */
+	public int getSymmetries()
+	{
+		int mask = 1;
+
+		for (int s = 1; s < hashes.length; s++)
+		{
+			if (hashes[s] == hashes[0])
+			{
+				mask |= 1 << s;
+			}
+		}
+
+		return mask;
+	}
+
+	/**
+	 * @return Number of lines placing a letter in an empty cell would complete. The board is left unchanged.
+	 */
+	public int gain(final int cell, final int letter)
+	{
+		final long[] bits = letter == S ? sBits : oBits;
+		bits[cell >>> 6] |= 1L << cell;
+		final int points = countLines(cell);
+		bits[cell >>> 6] &= ~(1L << cell);
+		return points;
+	}
+
+	/** @return The player to move, 0 or 1. */
+	public int getCurrentPlayer()
+	{
+		return currentPlayer;
+	}
+
+	/** @return Number of lines the player has completed. */
+	public int getScore(final int player)
+	{
+		return scores[player];
+	}
+
+	public int getMoveCount()
+	{
+		return moveCount;
+	}
+
+	/** @return True when every cell is filled, which ends the game. */
+	public boolean isFull()
+	{
+		return moveCount == cellCount;
+	}
+
+	/** @return The cell of the most recent move, or -1 if none has been played. */
+	public int getLastCell()
+	{
+		return moveCount == 0 ? -1 : history[moveCount - 1] & HISTORY_CELL_MASK;
+	}
+
+	/** @return The player who made the most recent move, or -1 if none has been played. */
+	public int getLastPlayer()
+	{
+		return moveCount == 0 ? -1 : (history[moveCount - 1] >>> HISTORY_PLAYER_SHIFT) & 1;
+	}
+
+	/**
+	 * Place a letter for the current player. If it completes any lines the player scores them and moves again,
+	 * otherwise the turn passes.
+	 *
+	 * @param cell An empty cell.
+	 * @param letter S or O.
+	 * @return Number of lines completed by this move.
+	 */
+	public int play(final int cell, final int letter)
+	{
+		if (!isEmpty(cell))
+		{
+			throw new IllegalStateException("Cell " + cell + " is not empty.");
+		}
+
+		if (letter == S)
+		{
+			sBits[cell >>> 6] |= 1L << cell;
+		}
+		else if (letter == O)
+		{
+			oBits[cell >>> 6] |= 1L << cell;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Bad letter: " + letter);
+		}
+
+		updateHashes(cell, letter);
+
+		// Lines through the cell were incomplete before, since it was empty, so every complete one is new.
+		final int points = countLines(cell);
+
+		history[moveCount++] = cell | letter << HISTORY_LETTER_SHIFT | currentPlayer << HISTORY_PLAYER_SHIFT
+				| points << HISTORY_POINTS_SHIFT;
+
+		if (points > 0)
+		{
+			scores[currentPlayer] += points;
+		}
+		else
+		{
+			currentPlayer ^= 1;
+		}
+
+		return points;
+	}
+
+	/** Take back the most recent move, restoring the board, the scores and the player to move. */
+	public void undo()
+	{
+		if (moveCount == 0)
+		{
+			throw new IllegalStateException("No move to undo.");
+		}
+
+		final int entry = history[--moveCount];
+		final int cell = entry & HISTORY_CELL_MASK;
+		final int player = (entry >>> HISTORY_PLAYER_SHIFT) & 1;
+		final int letter = (entry >>> HISTORY_LETTER_SHIFT) & 3;
+		final long clear = ~(1L << cell);
+
+		updateHashes(cell, letter);
+		sBits[cell >>> 6] &= clear;
+		oBits[cell >>> 6] &= clear;
+		scores[player] -= entry >>> HISTORY_POINTS_SHIFT;
+		currentPlayer = player;
+	}
+
+	/** Add or remove a letter in the hashes of all symmetries. */
+	private void updateHashes(final int cell, final int letter)
+	{
+		final long[] keys = geometry.symmetryKeys;
+		final int count = hashes.length;
+		final int first = (cell * 2 + letter - S) * count;
+
+		for (int s = 0; s < count; s++)
+		{
+			hashes[s] ^= keys[first + s];
+		}
+	}
+
+	/** @return Number of complete S-O-S lines through a cell. */
+	private int countLines(final int cell)
+	{
+		final int[] cells = geometry.tripleCells;
+		final int[] triples = geometry.cellTriples;
+		final int end = geometry.cellOffsets[cell + 1];
+		int count = 0;
+
+		for (int i = geometry.cellOffsets[cell]; i < end; i++)
+		{
+			final int t = triples[i] * 3;
+			final int first = cells[t];
+			final int middle = cells[t + 1];
+			final int last = cells[t + 2];
+
+			// Non short-circuit ands: the scan stays free of data dependent branches.
+			count += (int) ((sBits[first >>> 6] >>> first) & (oBits[middle >>> 6] >>> middle)
+					& (sBits[last >>> 6] >>> last) & 1);
+		}
+
+		return count;
+	}
+}
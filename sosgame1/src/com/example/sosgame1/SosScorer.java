@@ -0,0 +1,98 @@
+package com.example.sosgame1;
+
+/**
+ * Counts every S-O-S line on a board from scratch, for loading saved games, validating submitted boards and checking
+ * the incremental scoring in SosBoard. Works on bit rows, 64 cells at a time: with S and O the row bitmasks, lines
+ * starting at each column are
+ * <pre>
+ * horizontal     S[r] &amp; O[r] &gt;&gt; 1 &amp; S[r] &gt;&gt; 2
+ * vertical       S[r] &amp; O[r + 1] &amp; S[r + 2]
+ * diagonal       S[r] &amp; O[r + 1] &gt;&gt; 1 &amp; S[r + 2] &gt;&gt; 2
+ * anti-diagonal  S[r] &gt;&gt; 2 &amp; O[r + 1] &gt;&gt; 1 &amp; S[r + 2]
+ * </pre>
+ * and the score is the sum of their bit counts. Bits past the last column are zero, so nothing needs masking.
+ * <p>
+ * One instance per board size; it holds reusable row buffers, so score() does not allocate. Not thread safe.
+ */
+public class SosScorer
+{
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+
+	/** Row buffers for score(SosBoard). */
+	private final long[] sRows;
+	private final long[] oRows;
+
+	public SosScorer(final int width, final int height)
+	{
+		this.width = width;
+		this.height = height;
+		wordsPerRow = (width + 63) >>> 6;
+		sRows = new long[height * wordsPerRow];
+		oRows = new long[height * wordsPerRow];
+	}
+
+	/** @return Words per row expected by score(long[], long[]). */
+	public int getWordsPerRow()
+	{
+		return wordsPerRow;
+	}
+
+	/** @return Number of complete S-O-S lines on the board. */
+	public int score(final SosBoard board)
+	{
+		if (board.getWidth() != width || board.getHeight() != height)
+		{
+			throw new IllegalArgumentException("Board is " + board.getWidth() + "x" + board.getHeight()
+					+ ", scorer is " + width + "x" + height);
+		}
+
+		board.copyRows(sRows, oRows, wordsPerRow);
+		return score(sRows, oRows);
+	}
+
+	/**
+	 * Score a board given as bit rows in the layout of SosBoard.copyRows(). Bits past the last column must be zero.
+	 *
+	 * @return Number of complete S-O-S lines.
+	 */
+	public int score(final long[] s, final long[] o)
+	{
+		final int n = wordsPerRow;
+		int count = 0;
+
+		for (int row = 0; row < height; row++)
+		{
+			final int r0 = row * n;
+			final int r1 = r0 + n;
+			final int r2 = r1 + n;
+			final boolean threeRows = row + 2 < height;
+
+			for (int k = 0; k < n; k++)
+			{
+				final long s0 = s[r0 + k];
+				count += Long.bitCount(s0 & shift(o, r0, k, n, 1) & shift(s, r0, k, n, 2));
+
+				if (threeRows)
+				{
+					final long s2 = s[r2 + k];
+					final long o1 = shift(o, r1, k, n, 1);
+					count += Long.bitCount(s0 & o[r1 + k] & s2);
+					count += Long.bitCount(s0 & o1 & shift(s, r2, k, n, 2));
+					count += Long.bitCount(shift(s, r0, k, n, 2) & o1 & s2);
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/** @return Word k of the row starting at rowStart, shifted towards column 0 by bits columns. */
+	private static long shift(final long[] rows, final int rowStart, final int k, final int wordsPerRow,
+			final int bits)
+	{
+		final long low = rows[rowStart + k] >>> bits;
+		return k + 1 < wordsPerRow ? low | rows[rowStart + k + 1] << (64 - bits) : low;
+	}
+}
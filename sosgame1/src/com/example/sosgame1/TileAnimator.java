@@ -0,0 +1,354 @@
+package com.example.sosgame1;
+
+import java.util.Arrays;
+
+/**
+ * Animates tile state. Each animation drives one float track of one tile, such as its lift or its rotation, through
+ * a few evenly spaced keyframes, writing straight into the TileStore. Animations are kept in parallel arrays, so
+ * running one costs no boxing, reflection or allocation per frame, and any number of them can run at once.
+ * <p>
+ * A tile is locked while it has running animations, which keeps it out of its chunk's batch. Locks are per tile:
+ * animating one tile never holds up input to or animations of another.
+ * <p>
+ * Each SceneState has one. The thread that plays the game starts animations on its working scene and calls update()
+ * when they end, which unlocks the tiles and calls the listeners; it never steps them frame by frame. Publishing
+ * copies the running animations along with the tiles, and the GL thread samples its copy at the time of each frame
+ * it draws, so the motion follows the display's frames. Not thread safe.
+ */
+public class TileAnimator
+{
+	/** Receives the end of an animation on the thread calling update(). */
+	public interface Listener
+	{
+		void onAnimationEnd(int tile);
+	}
+
+	/** Tracks, the tile values an animation can drive. */
+	public static final int TRACK_Z = 0;
+	public static final int TRACK_Y_ROTATION = 1;
+	public static final int TRACK_Z_ROTATION = 2;
+
+	/** Easing curves, applied to the fraction of the duration that has passed. */
+	public static final int LINEAR = 0;
+	public static final int EASE_IN = 1;
+	public static final int EASE_OUT = 2;
+	/** Slow start and end, the curve property animators use by default. */
+	public static final int EASE_IN_OUT = 3;
+
+	/** Most keyframes an animation can have. */
+	public static final int MAX_KEYFRAMES = 4;
+
+	private final TileStore store;
+
+	/** Number of running animations for each tile. */
+	private final int[] locks;
+
+	/** The running animations. */
+	private int count = 0;
+	private int[] tiles = new int[0];
+	private int[] tracks = new int[0];
+	private int[] curves = new int[0];
+	private int[] keyframeCounts = new int[0];
+	private float[] keyframes = new float[0];
+	private long[] startTimes = new long[0];
+	private long[] durations = new long[0];
+	private Listener[] listeners = new Listener[0];
+
+	/** Animations that ended in the current update(), whose listeners are still to be called. */
+	private int[] endedTiles = new int[0];
+	private Listener[] endedListeners = new Listener[0];
+
+	/**
+	 * @param store The tiles to animate.
+	 */
+	public TileAnimator(final TileStore store)
+	{
+		this.store = store;
+		locks = new int[store.count];
+	}
+
+	/**
+	 * Start an animation.
+	 *
+	 * @param tile The tile.
+	 * @param track TRACK_Z, TRACK_Y_ROTATION or TRACK_Z_ROTATION.
+	 * @param startMillis When it starts, on the SystemClock.uptimeMillis() clock.
+	 * @param durationMillis How long it runs.
+	 * @param curve LINEAR, EASE_IN, EASE_OUT or EASE_IN_OUT.
+	 * @param listener Called once the last keyframe has been written, or null.
+	 * @param values 2 to MAX_KEYFRAMES values, evenly spaced over the duration.
+	 */
+	public void animate(final int tile, final int track, final long startMillis, final long durationMillis,
+			final int curve, final Listener listener, final float... values)
+	{
+		if (values.length < 2 || values.length > MAX_KEYFRAMES)
+		{
+			throw new IllegalArgumentException("An animation needs 2 to " + MAX_KEYFRAMES + " keyframes.");
+		}
+
+		if (count == tiles.length)
+		{
+			grow();
+		}
+
+		tiles[count] = tile;
+		tracks[count] = track;
+		curves[count] = curve;
+		keyframeCounts[count] = values.length;
+		System.arraycopy(values, 0, keyframes, count * MAX_KEYFRAMES, values.length);
+		startTimes[count] = startMillis;
+		durations[count] = Math.max(durationMillis, 1);
+		listeners[count] = listener;
+		count++;
+
+		if (locks[tile]++ == 0)
+		{
+			store.setAnimating(tile, true);
+		}
+	}
+
+	/** Stop every animation of a tile where it is, without calling their listeners. */
+	public void cancel(final int tile)
+	{
+		if (locks[tile] == 0)
+		{
+			return;
+		}
+
+		int kept = 0;
+		for (int i = 0; i < count; i++)
+		{
+			if (tiles[i] != tile)
+			{
+				move(i, kept++);
+			}
+		}
+		clear(kept, count);
+		count = kept;
+
+		locks[tile] = 0;
+		store.setAnimating(tile, false);
+	}
+
+	/**
+	 * Advance every animation to a time, then unlock the tiles whose last animation ended and call the listeners of
+	 * the animations that ended. Listeners may start new animations. Call it at getNextEndTime() or later.
+	 *
+	 * @param timeMillis The time, e.g. SystemClock.uptimeMillis().
+	 */
+	public void update(final long timeMillis)
+	{
+		int kept = 0;
+		int ended = 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			final float fraction = getFraction(i, timeMillis);
+			write(tiles[i], tracks[i], sample(i, ease(curves[i], fraction)));
+
+			if (fraction < 1)
+			{
+				move(i, kept++);
+				continue;
+			}
+
+			endedTiles[ended] = tiles[i];
+			endedListeners[ended] = listeners[i];
+			ended++;
+		}
+
+		clear(kept, count);
+		count = kept;
+
+		for (int i = 0; i < ended; i++)
+		{
+			final int tile = endedTiles[i];
+
+			if (--locks[tile] == 0)
+			{
+				store.setAnimating(tile, false);
+			}
+		}
+
+		for (int i = 0; i < ended; i++)
+		{
+			final Listener listener = endedListeners[i];
+			endedListeners[i] = null;
+
+			if (listener != null)
+			{
+				listener.onAnimationEnd(endedTiles[i]);
+			}
+		}
+	}
+
+	/**
+	 * Write every running animation's value at a time into the store, without ending any of them. Used by the GL
+	 * thread on its copy of the scene; allocates nothing.
+	 *
+	 * @param frameTimeMillis The time of the frame about to be drawn, e.g. SystemClock.uptimeMillis().
+	 */
+	public void sample(final long frameTimeMillis)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			write(tiles[i], tracks[i], sample(i, ease(curves[i], getFraction(i, frameTimeMillis))));
+		}
+	}
+
+	/** @return When the next animation ends, or Long.MAX_VALUE if none is running. */
+	public long getNextEndTime()
+	{
+		long next = Long.MAX_VALUE;
+
+		for (int i = 0; i < count; i++)
+		{
+			next = Math.min(next, startTimes[i] + durations[i]);
+		}
+
+		return next;
+	}
+
+	/**
+	 * Make the running animations equal to another animator's, for sampling. Listeners and locks are not copied, so
+	 * the copy must not be updated. Allocates only when the other animator has outgrown this one.
+	 *
+	 * @param source The animator of the scene this animator's store is copied from.
+	 */
+	public void copyFrom(final TileAnimator source)
+	{
+		while (tiles.length < source.count)
+		{
+			grow();
+		}
+
+		final int n = source.count;
+		System.arraycopy(source.tiles, 0, tiles, 0, n);
+		System.arraycopy(source.tracks, 0, tracks, 0, n);
+		System.arraycopy(source.curves, 0, curves, 0, n);
+		System.arraycopy(source.keyframeCounts, 0, keyframeCounts, 0, n);
+		System.arraycopy(source.keyframes, 0, keyframes, 0, n * MAX_KEYFRAMES);
+		System.arraycopy(source.startTimes, 0, startTimes, 0, n);
+		System.arraycopy(source.durations, 0, durations, 0, n);
+		count = n;
+	}
+
+	/** @return True if the tile has running animations. */
+	public boolean isLocked(final int tile)
+	{
+		return locks[tile] > 0;
+	}
+
+	/** @return True if nothing is running, so frames need only be drawn on demand. */
+	public boolean isIdle()
+	{
+		return count == 0;
+	}
+
+	/** @return Number of running animations. */
+	public int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @param curve An easing curve.
+	 * @param t Fraction of the duration, 0 to 1.
+	 * @return The eased fraction.
+	 */
+	public static float ease(final int curve, final float t)
+	{
+		switch (curve)
+		{
+		case EASE_IN:
+			return t * t;
+		case EASE_OUT:
+			return 1 - (1 - t) * (1 - t);
+		case EASE_IN_OUT:
+			return (float) (1 - Math.cos(Math.PI * t)) / 2;
+		default:
+			return t;
+		}
+	}
+
+	/** @return The fraction of an animation's duration that has passed at a time, 0 to 1. */
+	private float getFraction(final int animation, final long timeMillis)
+	{
+		final float fraction = (float) (timeMillis - startTimes[animation]) / durations[animation];
+		return Math.max(0, Math.min(fraction, 1));
+	}
+
+	/** @return The value of an animation at an eased fraction, interpolating between its keyframes. */
+	private float sample(final int animation, final float fraction)
+	{
+		final int base = animation * MAX_KEYFRAMES;
+		final int segments = keyframeCounts[animation] - 1;
+		final float position = fraction * segments;
+		final int segment = Math.min((int) position, segments - 1);
+		final float from = keyframes[base + segment];
+		final float to = keyframes[base + segment + 1];
+
+		return from + (to - from) * (position - segment);
+	}
+
+	private void write(final int tile, final int track, final float value)
+	{
+		switch (track)
+		{
+		case TRACK_Z:
+			store.setZ(tile, value);
+			break;
+		case TRACK_Y_ROTATION:
+			store.setYRotation(tile, value);
+			break;
+		case TRACK_Z_ROTATION:
+			store.setZRotation(tile, value);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown track " + track);
+		}
+	}
+
+	/** Copy an animation to a lower slot, compacting the list. */
+	private void move(final int from, final int to)
+	{
+		if (from == to)
+		{
+			return;
+		}
+
+		tiles[to] = tiles[from];
+		tracks[to] = tracks[from];
+		curves[to] = curves[from];
+		keyframeCounts[to] = keyframeCounts[from];
+		System.arraycopy(keyframes, from * MAX_KEYFRAMES, keyframes, to * MAX_KEYFRAMES, MAX_KEYFRAMES);
+		startTimes[to] = startTimes[from];
+		durations[to] = durations[from];
+		listeners[to] = listeners[from];
+	}
+
+	/** Drop the listener references of freed slots. */
+	private void clear(final int start, final int end)
+	{
+		for (int i = start; i < end; i++)
+		{
+			listeners[i] = null;
+		}
+	}
+
+	/** Double the capacity. The ended lists are copied too, as a listener may start animations while they are read. */
+	private void grow()
+	{
+		final int capacity = Math.max(8, tiles.length * 2);
+		tiles = Arrays.copyOf(tiles, capacity);
+		tracks = Arrays.copyOf(tracks, capacity);
+		curves = Arrays.copyOf(curves, capacity);
+		keyframeCounts = Arrays.copyOf(keyframeCounts, capacity);
+		keyframes = Arrays.copyOf(keyframes, capacity * MAX_KEYFRAMES);
+		startTimes = Arrays.copyOf(startTimes, capacity);
+		durations = Arrays.copyOf(durations, capacity);
+		listeners = Arrays.copyOf(listeners, capacity);
+		endedTiles = Arrays.copyOf(endedTiles, capacity);
+		endedListeners = Arrays.copyOf(endedListeners, capacity);
+	}
+}
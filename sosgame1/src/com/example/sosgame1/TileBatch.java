@@ -0,0 +1,341 @@
+package com.example.sosgame1;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import android.opengl.GLES20;
+
+/**
+ * Draws a set of tiles that are not animating with a single draw call. The tile mesh is pre-transformed into world
+ * space for every static tile and merged into one indexed vertex buffer, which is only rebuilt when a tile of the set
+ * starts or stops animating or the mesh is swapped for another level of detail. Animating tiles are left to the caller
+ * to draw one by one.
+ * <p>
+ * A facingOnly mesh keeps only the primitives that face the camera, so its batch is also rebuilt when the camera
+ * moves.
+ */
+public class TileBatch
+{
+	/** How many bytes per short. */
+	private static final int BYTES_PER_SHORT = 2;
+
+	/** Layout of the merged vertices. Transformed normals stay within unit length, so they still fit in bytes. */
+	private static final VertexFormat FORMAT = VertexFormat.PACKED;
+
+	/** Mesh data for a single tile, in model space. */
+	private ShapeBuilder.IndexedShape shape;
+	private int verticesPerTile;
+	private int indicesPerTile;
+
+	/** Most tiles one batch can hold with the current mesh, limited by GL_UNSIGNED_SHORT indices. */
+	private int maxTiles;
+
+	/** Client side copies of the merged vertices and indices. Grown as needed, never shrunk. */
+	private ByteBuffer vertexData;
+	private ShortBuffer indexData;
+
+	/** Attribute layouts within FORMAT. */
+	private final VertexFormat.Attribute positionAttribute = FORMAT.find(VertexFormat.POSITION);
+	private final VertexFormat.Attribute colorAttribute = FORMAT.find(VertexFormat.COLOR);
+	private final VertexFormat.Attribute normalAttribute = FORMAT.find(VertexFormat.NORMAL);
+	private final VertexFormat.Attribute textureCoordinateAttribute = FORMAT.find(VertexFormat.TEXTURE_COORDINATE);
+
+	/** OpenGL handles to the merged buffers, and their sizes in bytes. */
+	private int bufferHandle = 0;
+	private int indexBufferHandle = 0;
+	private int bufferCapacity = 0;
+	private int indexBufferCapacity = 0;
+
+	/** Number of tiles and indices in the merged buffers. */
+	private int tileCount = 0;
+	private int indexCount = 0;
+
+	/** Set when the set of static tiles or their transforms change. GL thread only, like the rest of the batch. */
+	private boolean dirty = true;
+
+	/** World space camera position that facingOnly primitives are culled against. */
+	private float eyeX = 0;
+	private float eyeY = 0;
+	private float eyeZ = 0;
+
+	private final float[] mvpMatrix = new float[16];
+	private final float[] modelMatrix = new float[16];
+	private final float[] transformed = new float[3];
+
+	/**
+	 * @param shape The indexed tile mesh in model space.
+	 */
+	public TileBatch(final ShapeBuilder.IndexedShape shape)
+	{
+		setShape(shape);
+		vertexData = ByteBuffer.allocateDirect(0).order(ByteOrder.nativeOrder());
+		indexData = ByteBuffer.allocateDirect(0).order(ByteOrder.nativeOrder()).asShortBuffer();
+	}
+
+	/** Swap the tile mesh, e.g. for another level of detail. Takes effect with the next update(). */
+	public void setShape(final ShapeBuilder.IndexedShape shape)
+	{
+		if (shape == this.shape)
+		{
+			return;
+		}
+
+		this.shape = shape;
+		verticesPerTile = shape.vertexCount;
+		indicesPerTile = shape.indices.length;
+		maxTiles = ShapeBuilder.MAX_INDEXED_VERTICES / verticesPerTile;
+		dirty = true;
+	}
+
+	/** @return The current tile mesh. */
+	public ShapeBuilder.IndexedShape getShape()
+	{
+		return shape;
+	}
+
+	/** Request a rebuild before the next draw. GL thread only. */
+	public void invalidate()
+	{
+		dirty = true;
+	}
+
+	/**
+	 * Set the camera position that facingOnly primitives are culled against. If it changed and the mesh is facingOnly,
+	 * the next update() rebuilds. GL thread only.
+	 */
+	public void setEye(final float x, final float y, final float z)
+	{
+		if (x == eyeX && y == eyeY && z == eyeZ)
+		{
+			return;
+		}
+
+		eyeX = x;
+		eyeY = y;
+		eyeZ = z;
+		dirty |= shape.facingOnly;
+	}
+
+	/** Forget the GPU buffers. Must be called from onSurfaceCreated(), since the old handles died with the context. */
+	public void onSurfaceCreated()
+	{
+		bufferHandle = 0;
+		indexBufferHandle = 0;
+		bufferCapacity = 0;
+		indexBufferCapacity = 0;
+		dirty = true;
+	}
+
+	/**
+	 * Rebuild the merged buffers from the static tiles if anything changed since the last call.
+	 *
+	 * @param state The GL state cache.
+	 * @param store All tiles.
+	 * @param tiles The tiles in this batch; the ones currently animating are skipped.
+	 */
+	public void update(final GLStateCache state, final TileStore store, final int[] tiles)
+	{
+		if (!dirty)
+		{
+			return;
+		}
+		dirty = false;
+
+		final int cubeCount = tiles.length;
+
+		if (cubeCount > maxTiles)
+		{
+			throw new IllegalStateException("Too many tiles for one batch: " + cubeCount);
+		}
+
+		if (vertexData.capacity() < cubeCount * verticesPerTile * FORMAT.stride)
+		{
+			vertexData = ByteBuffer.allocateDirect(cubeCount * verticesPerTile * FORMAT.stride)
+			.order(ByteOrder.nativeOrder());
+		}
+
+		if (indexData.capacity() < cubeCount * indicesPerTile)
+		{
+			indexData = ByteBuffer.allocateDirect(cubeCount * indicesPerTile * BYTES_PER_SHORT)
+			.order(ByteOrder.nativeOrder()).asShortBuffer();
+		}
+
+		tileCount = 0;
+		indexCount = 0;
+
+		for (int i = 0; i < cubeCount; i++)
+		{
+			final int tile = tiles[i];
+
+			if (store.isAnimating(tile))
+			{
+				continue;
+			}
+
+			store.getModelMatrix(tile, modelMatrix);
+			appendTile(modelMatrix, tileCount++);
+		}
+
+		if (bufferHandle == 0)
+		{
+			final int[] handles = new int[2];
+			GLES20.glGenBuffers(2, handles, 0);
+
+			if (handles[0] == 0 || handles[1] == 0)
+			{
+				throw new RuntimeException("Error creating tile batch buffers.");
+			}
+
+			bufferHandle = handles[0];
+			indexBufferHandle = handles[1];
+		}
+
+		final int vertexBytes = tileCount * verticesPerTile * FORMAT.stride;
+		final int indexBytes = indexCount * BYTES_PER_SHORT;
+		vertexData.position(0);
+		indexData.position(0);
+
+		state.bindArrayBuffer(bufferHandle);
+
+		if (vertexBytes > bufferCapacity)
+		{
+			bufferCapacity = vertexData.capacity();
+			GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, bufferCapacity, vertexData, GLES20.GL_STATIC_DRAW);
+		}
+		else if (vertexBytes > 0)
+		{
+			GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, vertexBytes, vertexData);
+		}
+
+		state.bindElementArrayBuffer(indexBufferHandle);
+
+		if (indexBytes > indexBufferCapacity)
+		{
+			indexBufferCapacity = indexData.capacity() * BYTES_PER_SHORT;
+			GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexBufferCapacity, indexData,
+					GLES20.GL_STATIC_DRAW);
+		}
+		else if (indexBytes > 0)
+		{
+			GLES20.glBufferSubData(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0, indexBytes, indexData);
+		}
+	}
+
+	/**
+	 * Transform one copy of the tile mesh into world space and append it to the client side data. For a facingOnly
+	 * mesh, only the indices of primitives facing the eye are appended.
+	 *
+	 * @param m The tile's model matrix.
+	 * @param tile Slot in the batch to write.
+	 */
+	private void appendTile(final float[] m, final int tile)
+	{
+		final float[] positions = shape.positions;
+		final float[] normals = shape.normals;
+		final float[] t = transformed;
+		final int baseVertex = tile * verticesPerTile;
+		int offset = baseVertex * FORMAT.stride;
+
+		for (int v = 0; v < verticesPerTile; v++)
+		{
+			final float x = positions[v * 3];
+			final float y = positions[v * 3 + 1];
+			final float z = positions[v * 3 + 2];
+			final float nx = normals[v * 3];
+			final float ny = normals[v * 3 + 1];
+			final float nz = normals[v * 3 + 2];
+
+			// Position, w = 1.
+			t[0] = m[0] * x + m[4] * y + m[8] * z + m[12];
+			t[1] = m[1] * x + m[5] * y + m[9] * z + m[13];
+			t[2] = m[2] * x + m[6] * y + m[10] * z + m[14];
+			ShapeBuilder.putAttribute(vertexData, offset + positionAttribute.offset, positionAttribute, t, 0);
+
+			ShapeBuilder.putAttribute(vertexData, offset + colorAttribute.offset, colorAttribute, shape.colors, v * 4);
+
+			// Normal, w = 0. Transformed the same way the shader transforms it by the modelview matrix.
+			t[0] = m[0] * nx + m[4] * ny + m[8] * nz;
+			t[1] = m[1] * nx + m[5] * ny + m[9] * nz;
+			t[2] = m[2] * nx + m[6] * ny + m[10] * nz;
+			ShapeBuilder.putAttribute(vertexData, offset + normalAttribute.offset, normalAttribute, t, 0);
+
+			ShapeBuilder.putAttribute(vertexData, offset + textureCoordinateAttribute.offset,
+					textureCoordinateAttribute, shape.textureCoordinates, v * 2);
+
+			offset += FORMAT.stride;
+		}
+
+		final short[] indices = shape.indices;
+		final int indicesPerPrimitive = shape.indicesPerPrimitive;
+
+		for (int i = 0; i < indicesPerTile; i += indicesPerPrimitive)
+		{
+			// The world space normal against the direction from the primitive's first vertex to the eye. A flat
+			// primitive's vertices share their normal and its plane, so any vertex will do.
+			if (shape.facingOnly)
+			{
+				final int n = indices[i] * 3;
+				final float x = positions[n];
+				final float y = positions[n + 1];
+				final float z = positions[n + 2];
+				final float toEyeX = eyeX - (m[0] * x + m[4] * y + m[8] * z + m[12]);
+				final float toEyeY = eyeY - (m[1] * x + m[5] * y + m[9] * z + m[13]);
+				final float toEyeZ = eyeZ - (m[2] * x + m[6] * y + m[10] * z + m[14]);
+
+				if ((m[0] * normals[n] + m[4] * normals[n + 1] + m[8] * normals[n + 2]) * toEyeX
+						+ (m[1] * normals[n] + m[5] * normals[n + 1] + m[9] * normals[n + 2]) * toEyeY
+						+ (m[2] * normals[n] + m[6] * normals[n + 1] + m[10] * normals[n + 2]) * toEyeZ <= 0)
+				{
+					continue;
+				}
+			}
+
+			for (int k = 0; k < indicesPerPrimitive; k++)
+			{
+				indexData.put(indexCount++, (short) (baseVertex + indices[i + k]));
+			}
+		}
+	}
+
+	/**
+	 * Draw every static tile in one call. The vertices are already in world space, so the modelview matrix is just the
+	 * view matrix. A point mesh needs a program that sets the point size.
+	 *
+	 * @param state The GL state cache.
+	 * @param program The current shader program.
+	 * @param viewMatrix The view matrix.
+	 * @param projectionMatrix The projection matrix.
+	 * @param lightPosInEyeSpace The light position in eye space.
+	 */
+	public void draw(final GLStateCache state, final ShaderProgram program, final float[] viewMatrix,
+			final float[] projectionMatrix, final float[] lightPosInEyeSpace)
+	{
+		if (indexCount == 0)
+		{
+			return;
+		}
+
+		FORMAT.bind(state, program, bufferHandle);
+
+		state.uniformMatrix4fv(program.mvMatrixUniform, viewMatrix, 0);
+		MatrixMath.multiplyProjectiveAffine(mvpMatrix, projectionMatrix, viewMatrix);
+		state.uniformMatrix4fv(program.mvpMatrixUniform, mvpMatrix, 0);
+		state.uniform3f(program.lightPosUniform, lightPosInEyeSpace[0], lightPosInEyeSpace[1], lightPosInEyeSpace[2]);
+
+		state.bindElementArrayBuffer(indexBufferHandle);
+		GLES20.glDrawElements(shape.primitive, indexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+	}
+
+	/** @return Number of tiles in the merged buffers. */
+	public int getTileCount()
+	{
+		return tileCount;
+	}
+
+	/** @return Number of triangles or points a draw submits. */
+	public int getPrimitiveCount()
+	{
+		return indexCount / shape.indicesPerPrimitive;
+	}
+}
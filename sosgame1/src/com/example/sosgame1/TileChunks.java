@@ -0,0 +1,279 @@
+package com.example.sosgame1;
+
+/**
+ * Draws the static tiles of a board of any size. Each of the TileStore's chunks gets its own TileBatch and a bounding
+ * box that holds its tiles in every rest pose. A frame only updates and draws the chunks whose box is in the frustum,
+ * and a tile that changes only invalidates its own chunk, so the cost of a frame follows the number of tiles on screen
+ * rather than the size of the board. Chunks are compared by version, so the store drawn may be a different copy
+ * every frame.
+ * <p>
+ * Each chunk is drawn at the level of detail that suits the size its nearest tile has on screen: full cubes up
+ * close, flat faces further out and point sprites once a tile is only a few pixels across. A chunk moves to a finer
+ * level only once its tiles are clearly bigger than the threshold and to a coarser one once they are clearly
+ * smaller, so a chunk sitting at a threshold does not flicker, or rebuild its batch, every frame.
+ */
+public class TileChunks
+{
+	/** Half the diagonal of a tile, which bounds it however it is rotated. */
+	private static final float TILE_RADIUS = 1.3f;
+
+	/** Edge of a tile's letter face. */
+	private static final float TILE_SIZE = 1.8f;
+
+	/** LOD_MIN_PIXELS[level] is the smallest on-screen tile size, in pixels, drawn at that level. */
+	private static final float[] LOD_MIN_PIXELS = {24, 6, 0};
+
+	/** How far past a threshold a tile has to get before its chunk switches level. */
+	private static final float LOD_HYSTERESIS = 1.25f;
+
+	/** The tile meshes of each level of detail. */
+	private final ShapeBuilder.IndexedShape[] lods;
+
+	private final TileBatch[] batches;
+
+	/** The chunk version each batch was last built from. */
+	private final int[] versions;
+
+	/** minX, minY, minZ, maxX, maxY, maxZ of each chunk in world space. */
+	private final float[] bounds;
+
+	/** Current level of detail of each chunk. */
+	private final int[] levels;
+
+	/** On-screen size of the nearest tile of each visible chunk, from the last draw. */
+	private final float[] tilePixels;
+
+	/** Camera the chunks are culled and sized for. */
+	private final Frustum frustum = new Frustum();
+	private final float[] viewMatrix = new float[16];
+	private final float[] inverseView = new float[16];
+	private float pixelsPerUnit = 1;
+
+	/** Statistics of the last draw. */
+	private int visibleChunks = 0;
+	private int visibleTiles = 0;
+	private int triangles = 0;
+	private int points = 0;
+
+	/**
+	 * Build the chunks.
+	 *
+	 * @param lods The tile meshes from ShapeBuilder.generateTileLods().
+	 * @param store All tiles, with their rest positions set.
+	 * @param minZ Lowest world z of a tile centre at rest.
+	 * @param maxZ Highest world z of a tile centre at rest.
+	 */
+	public TileChunks(final ShapeBuilder.IndexedShape[] lods, final TileStore store, final float minZ,
+			final float maxZ)
+	{
+		final int chunkCount = store.getChunkCount();
+
+		this.lods = lods;
+		batches = new TileBatch[chunkCount];
+		versions = new int[chunkCount];
+		bounds = new float[chunkCount * 6];
+		levels = new int[chunkCount];
+		tilePixels = new float[chunkCount];
+
+		for (int chunk = 0; chunk < chunkCount; chunk++)
+		{
+			final int[] tiles = store.getChunkTiles(chunk);
+			final int b = chunk * 6;
+
+			bounds[b] = bounds[b + 1] = Float.MAX_VALUE;
+			bounds[b + 3] = bounds[b + 4] = -Float.MAX_VALUE;
+			bounds[b + 2] = minZ - TILE_RADIUS;
+			bounds[b + 5] = maxZ + TILE_RADIUS;
+
+			for (int i = 0; i < tiles.length; i++)
+			{
+				final int tile = tiles[i];
+
+				bounds[b] = Math.min(bounds[b], store.getX(tile) - TILE_RADIUS);
+				bounds[b + 1] = Math.min(bounds[b + 1], store.getY(tile) - TILE_RADIUS);
+				bounds[b + 3] = Math.max(bounds[b + 3], store.getX(tile) + TILE_RADIUS);
+				bounds[b + 4] = Math.max(bounds[b + 4], store.getY(tile) + TILE_RADIUS);
+			}
+
+			batches[chunk] = new TileBatch(lods[ShapeBuilder.LOD_CUBE]);
+		}
+	}
+
+	/** Forget the GPU buffers. Must be called from onSurfaceCreated(). */
+	public void onSurfaceCreated()
+	{
+		for (int chunk = 0; chunk < batches.length; chunk++)
+		{
+			batches[chunk].onSurfaceCreated();
+		}
+	}
+
+	/**
+	 * Must be called whenever the camera or the viewport changes. Chunks drawn with letter faces only are rebuilt
+	 * when the camera moves, since which face of a tile is in view depends on where it is seen from.
+	 *
+	 * @param viewMatrix The affine view matrix.
+	 * @param projectionMatrix A perspective projection matrix.
+	 * @param viewportHeight Viewport height in pixels.
+	 */
+	public void setCamera(final float[] viewMatrix, final float[] projectionMatrix, final int viewportHeight)
+	{
+		frustum.set(viewMatrix, projectionMatrix);
+		System.arraycopy(viewMatrix, 0, this.viewMatrix, 0, 16);
+
+		// A unit at eye distance 1 spans projectionMatrix[5] half viewport heights.
+		pixelsPerUnit = projectionMatrix[5] * viewportHeight / 2;
+
+		// The eye is the origin of eye space, so its world position is the inverse view's translation.
+		MatrixMath.invertAffine(inverseView, viewMatrix);
+		for (int chunk = 0; chunk < batches.length; chunk++)
+		{
+			batches[chunk].setEye(inverseView[12], inverseView[13], inverseView[14]);
+		}
+	}
+
+	/**
+	 * Draw the static tiles of every chunk in the frustum, one call per chunk. Chunks out of view are not rebuilt
+	 * until they come into view. Triangle chunks are drawn first, then point sprite chunks with the point program,
+	 * after which the triangle program is current again.
+	 *
+	 * @param state The GL state cache.
+	 * @param store All tiles, in the same layout as the store the chunks were built from.
+	 * @param program The current shader program, for triangle meshes.
+	 * @param pointProgram The shader program for point sprites.
+	 * @param projectionMatrix The projection matrix.
+	 * @param lightPosInEyeSpace The light position in eye space.
+	 */
+	public void draw(final GLStateCache state, final TileStore store, final ShaderProgram program,
+			final ShaderProgram pointProgram, final float[] projectionMatrix, final float[] lightPosInEyeSpace)
+	{
+		visibleChunks = 0;
+		visibleTiles = 0;
+		triangles = 0;
+		points = 0;
+		boolean anyPoints = false;
+
+		for (int chunk = 0; chunk < batches.length; chunk++)
+		{
+			if (!frustum.intersectsBox(bounds, chunk * 6))
+			{
+				tilePixels[chunk] = -1;
+				continue;
+			}
+
+			final float pixels = getTilePixels(chunk);
+			levels[chunk] = selectLevel(levels[chunk], pixels);
+			tilePixels[chunk] = pixels;
+			visibleChunks++;
+
+			final TileBatch batch = batches[chunk];
+			if (versions[chunk] != store.getChunkVersion(chunk))
+			{
+				versions[chunk] = store.getChunkVersion(chunk);
+				batch.invalidate();
+			}
+			batch.setShape(lods[levels[chunk]]);
+			batch.update(state, store, store.getChunkTiles(chunk));
+			visibleTiles += batch.getTileCount();
+
+			if (levels[chunk] == ShapeBuilder.LOD_POINT)
+			{
+				points += batch.getPrimitiveCount();
+				anyPoints = true;
+				continue;
+			}
+
+			batch.draw(state, program, viewMatrix, projectionMatrix, lightPosInEyeSpace);
+			triangles += batch.getPrimitiveCount();
+		}
+
+		if (!anyPoints)
+		{
+			return;
+		}
+
+		state.useProgram(pointProgram);
+		state.uniform1i(pointProgram.textureUniform, 0);
+
+		for (int chunk = 0; chunk < batches.length; chunk++)
+		{
+			if (tilePixels[chunk] >= 0 && levels[chunk] == ShapeBuilder.LOD_POINT)
+			{
+				state.uniform1f(pointProgram.pointSizeUniform, tilePixels[chunk]);
+				batches[chunk].draw(state, pointProgram, viewMatrix, projectionMatrix, lightPosInEyeSpace);
+			}
+		}
+
+		state.useProgram(program);
+	}
+
+	/**
+	 * @return The size in pixels of a tile at the nearest point of a chunk's box, or MAX_VALUE if the box reaches
+	 *         the camera.
+	 */
+	private float getTilePixels(final int chunk)
+	{
+		final float[] v = viewMatrix;
+		final int b = chunk * 6;
+
+		// The corner with the highest eye space z, which is the nearest, the camera looking down -z.
+		final float x = v[2] >= 0 ? bounds[b + 3] : bounds[b];
+		final float y = v[6] >= 0 ? bounds[b + 4] : bounds[b + 1];
+		final float z = v[10] >= 0 ? bounds[b + 5] : bounds[b + 2];
+		final float distance = -(v[2] * x + v[6] * y + v[10] * z + v[14]);
+
+		return distance > 0 ? TILE_SIZE * pixelsPerUnit / distance : Float.MAX_VALUE;
+	}
+
+	/**
+	 * @param current The chunk's level so far.
+	 * @param pixels The on-screen size of its tiles.
+	 * @return The level to draw it at.
+	 */
+	static int selectLevel(final int current, final float pixels)
+	{
+		int level = current;
+
+		while (level > 0 && pixels >= LOD_MIN_PIXELS[level - 1] * LOD_HYSTERESIS)
+		{
+			level--;
+		}
+
+		while (level < ShapeBuilder.LOD_COUNT - 1 && pixels < LOD_MIN_PIXELS[level] / LOD_HYSTERESIS)
+		{
+			level++;
+		}
+
+		return level;
+	}
+
+	/** @return Number of chunks. */
+	public int getChunkCount()
+	{
+		return batches.length;
+	}
+
+	/** @return Chunks drawn by the last draw. */
+	public int getVisibleChunks()
+	{
+		return visibleChunks;
+	}
+
+	/** @return Tiles drawn by the last draw. */
+	public int getVisibleTiles()
+	{
+		return visibleTiles;
+	}
+
+	/** @return Triangles submitted by the last draw. */
+	public int getTriangleCount()
+	{
+		return triangles;
+	}
+
+	/** @return Points submitted by the last draw. */
+	public int getPointCount()
+	{
+		return points;
+	}
+}
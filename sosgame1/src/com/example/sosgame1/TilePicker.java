@@ -0,0 +1,154 @@
+package com.example.sosgame1;
+
+/**
+ * Maps touch coordinates straight to a tile index. The inverse view-projection matrix is cached whenever the camera
+ * changes, so a pick is two matrix-vector products, a ray/plane intersection with the board and a division into grid
+ * cells: constant time for any board size, and allocation-free.
+ * <p>
+ * Tiles are indexed row by row, i.e. index = row * columns + column, with column 0 on the left and row 0 at the
+ * bottom. This matches the cell numbering of SosBoard.
+ */
+public class TilePicker
+{
+	/** Returned by pick() when the touch misses the board. */
+	public static final int NONE = -1;
+
+	/** Everything pick() needs from the camera. Replaced as a whole so the touch thread never sees a torn update. */
+	private static class Camera
+	{
+		final float[] inverseViewProjection = new float[16];
+		final int width;
+		final int height;
+
+		Camera(final int width, final int height)
+		{
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	private final int columns;
+	private final int rows;
+	private final float cellSize;
+
+	/** World position of the bottom left corner of the board. */
+	private final float left;
+	private final float bottom;
+
+	/** World z of the board plane. */
+	private final float planeZ;
+
+	/** Written on the GL thread, read on the UI thread. */
+	private volatile Camera camera;
+
+	/**
+	 * @param columns Number of tile columns.
+	 * @param rows Number of tile rows.
+	 * @param cellSize Distance between tile centres. Each tile owns a square of this size around its centre.
+	 * @param firstCellX World x of the centre of tile 0.
+	 * @param firstCellY World y of the centre of tile 0.
+	 * @param planeZ World z of the board plane.
+	 */
+	public TilePicker(final int columns, final int rows, final float cellSize, final float firstCellX,
+			final float firstCellY, final float planeZ)
+	{
+		this.columns = columns;
+		this.rows = rows;
+		this.cellSize = cellSize;
+		this.left = firstCellX - cellSize / 2;
+		this.bottom = firstCellY - cellSize / 2;
+		this.planeZ = planeZ;
+	}
+
+	/**
+	 * Cache the inverse of projection * view. Must be called whenever the view, the projection or the viewport
+	 * changes. Allocates, but only on camera changes.
+	 *
+	 * @param viewMatrix The view matrix.
+	 * @param projectionMatrix The projection matrix.
+	 * @param width Viewport width.
+	 * @param height Viewport height.
+	 */
+	public void setCamera(final float[] viewMatrix, final float[] projectionMatrix, final int width, final int height)
+	{
+		final Camera next = new Camera(width, height);
+		MatrixMath.multiplyProjectiveAffine(next.inverseViewProjection, projectionMatrix, viewMatrix);
+
+		if (width <= 0 || height <= 0 || !MatrixMath.invert(next.inverseViewProjection, next.inverseViewProjection))
+		{
+			camera = null;
+			return;
+		}
+
+		camera = next;
+	}
+
+	/**
+	 * Find the tile under a touch.
+	 *
+	 * @param touchX Touch x in view pixels.
+	 * @param touchY Touch y in view pixels, measured from the top as MotionEvent reports it.
+	 * @return The tile index, or NONE if the touch misses the board or the camera is not set up yet.
+	 */
+	public int pick(final float touchX, final float touchY)
+	{
+		final Camera c = camera;
+
+		if (c == null)
+		{
+			return NONE;
+		}
+
+		// Normalized device coordinates. GL's y axis points up, touch y points down.
+		final float x = 2.0f * touchX / c.width - 1.0f;
+		final float y = 1.0f - 2.0f * touchY / c.height;
+		final float[] m = c.inverseViewProjection;
+
+		// Unproject the points on the near (z = -1) and far (z = 1) planes.
+		final float nearW = m[3] * x + m[7] * y - m[11] + m[15];
+		final float nearX = (m[0] * x + m[4] * y - m[8] + m[12]) / nearW;
+		final float nearY = (m[1] * x + m[5] * y - m[9] + m[13]) / nearW;
+		final float nearZ = (m[2] * x + m[6] * y - m[10] + m[14]) / nearW;
+		final float farW = m[3] * x + m[7] * y + m[11] + m[15];
+		final float farX = (m[0] * x + m[4] * y + m[8] + m[12]) / farW;
+		final float farY = (m[1] * x + m[5] * y + m[9] + m[13]) / farW;
+		final float farZ = (m[2] * x + m[6] * y + m[10] + m[14]) / farW;
+
+		if (farZ == nearZ)
+		{
+			// The ray runs parallel to the board.
+			return NONE;
+		}
+
+		// Intersect the ray with the board plane.
+		final float t = (planeZ - nearZ) / (farZ - nearZ);
+		final float hitX = nearX + t * (farX - nearX);
+		final float hitY = nearY + t * (farY - nearY);
+
+		final int column = toCell(hitX - left, columns);
+		final int row = toCell(hitY - bottom, rows);
+
+		if (column == NONE || row == NONE)
+		{
+			return NONE;
+		}
+
+		return row * columns + column;
+	}
+
+	/**
+	 * @param distance Distance from the board edge along one axis.
+	 * @param count Number of cells along that axis.
+	 * @return The cell index, or NONE if outside the board. A point on the far edge belongs to the last cell, and a
+	 * point on a border between cells to the upper one.
+	 */
+	private int toCell(final float distance, final int count)
+	{
+		if (distance < 0 || distance > count * cellSize)
+		{
+			return NONE;
+		}
+
+		return Math.min((int) (distance / cellSize), count - 1);
+	}
+}
@@ -0,0 +1,297 @@
+package com.example.sosgame1;
+
+/**
+ * The state of every tile on the board, kept in parallel primitive arrays indexed by cell rather than in one object
+ * per tile, so that walking all tiles reads a few contiguous arrays instead of chasing a pointer per tile. Tiles are
+ * animated through TileAnimator, which writes the same arrays.
+ * <p>
+ * A tile's model matrix is not stored: it is rebuilt from the fields when needed, which costs less than keeping
+ * 64 bytes per tile up to date. Changes are tracked per chunk of CHUNK_SIZE by CHUNK_SIZE tiles instead: a change to
+ * a tile that is not animating gives its chunk a new version, which tells TileChunks to rebuild the chunk's batch and
+ * copyFrom() to copy the chunk. Animating tiles are drawn one by one, so they change without new versions.
+ */
+public class TileStore
+{
+	/** Flag: the tile is being animated and drawn on its own instead of in its chunk's batch. */
+	public static final int ANIMATING = 1;
+
+	/** Chunk edge in tiles. 256 tiles fit a TileBatch with room to spare. */
+	public static final int CHUNK_SIZE = 16;
+
+	/** Number of tiles. */
+	public final int count;
+
+	/** Transform of each tile: centre, lift towards the camera and rotations in degrees. */
+	private final float[] x;
+	private final float[] y;
+	private final float[] z;
+	private final float[] yRotation;
+	private final float[] zRotation;
+
+	/** Letter each tile shows, SosBoard.EMPTY, S or O. */
+	private final byte[] letters;
+
+	/** Flags of each tile. */
+	private final byte[] flags;
+
+	/** The tiles with the ANIMATING flag, in the order they started. */
+	private final int[] animatingTiles;
+	private int animatingCount = 0;
+
+	/** The tiles of each chunk, and the chunk of each tile. */
+	private final int[][] chunkTiles;
+	private final int[] chunks;
+
+	/** Version of each chunk, which changes whenever the chunk does. */
+	private final int[] chunkVersions;
+
+	/** The latest version handed out. */
+	private int version = 0;
+
+	/**
+	 * @param columns Number of columns. Tiles are numbered row by row.
+	 * @param rows Number of rows.
+	 */
+	public TileStore(final int columns, final int rows)
+	{
+		count = columns * rows;
+		x = new float[count];
+		y = new float[count];
+		z = new float[count];
+		yRotation = new float[count];
+		zRotation = new float[count];
+		letters = new byte[count];
+		flags = new byte[count];
+		animatingTiles = new int[count];
+
+		final int chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final int chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		chunkTiles = new int[chunkColumns * chunkRows][];
+		chunks = new int[count];
+		chunkVersions = new int[chunkTiles.length];
+
+		for (int chunk = 0; chunk < chunkTiles.length; chunk++)
+		{
+			final int firstColumn = chunk % chunkColumns * CHUNK_SIZE;
+			final int firstRow = chunk / chunkColumns * CHUNK_SIZE;
+			final int width = Math.min(CHUNK_SIZE, columns - firstColumn);
+			final int height = Math.min(CHUNK_SIZE, rows - firstRow);
+			final int[] tiles = new int[width * height];
+
+			for (int i = 0; i < tiles.length; i++)
+			{
+				tiles[i] = (firstRow + i / width) * columns + firstColumn + i % width;
+				chunks[tiles[i]] = chunk;
+			}
+
+			chunkTiles[chunk] = tiles;
+		}
+	}
+
+	/** @return Number of chunks. */
+	public int getChunkCount()
+	{
+		return chunkTiles.length;
+	}
+
+	/** @return The tiles of a chunk. Do not modify. */
+	public int[] getChunkTiles(final int chunk)
+	{
+		return chunkTiles[chunk];
+	}
+
+	/** @return The version of a chunk. Equal versions mean equal static tiles, also across stores. */
+	public int getChunkVersion(final int chunk)
+	{
+		return chunkVersions[chunk];
+	}
+
+	public float getX(final int tile)
+	{
+		return x[tile];
+	}
+
+	public float getY(final int tile)
+	{
+		return y[tile];
+	}
+
+	public float getZ(final int tile)
+	{
+		return z[tile];
+	}
+
+	public float getYRotation(final int tile)
+	{
+		return yRotation[tile];
+	}
+
+	public float getZRotation(final int tile)
+	{
+		return zRotation[tile];
+	}
+
+	public int getLetter(final int tile)
+	{
+		return letters[tile];
+	}
+
+	public boolean isAnimating(final int tile)
+	{
+		return (flags[tile] & ANIMATING) != 0;
+	}
+
+	public void setX(final int tile, final float value)
+	{
+		x[tile] = value;
+		transformChanged(tile);
+	}
+
+	public void setY(final int tile, final float value)
+	{
+		y[tile] = value;
+		transformChanged(tile);
+	}
+
+	public void setZ(final int tile, final float value)
+	{
+		z[tile] = value;
+		transformChanged(tile);
+	}
+
+	public void setYRotation(final int tile, final float angle)
+	{
+		yRotation[tile] = angle;
+		transformChanged(tile);
+	}
+
+	public void setZRotation(final int tile, final float angle)
+	{
+		zRotation[tile] = angle;
+		transformChanged(tile);
+	}
+
+	public void setLetter(final int tile, final int letter)
+	{
+		letters[tile] = (byte) letter;
+		chunkChanged(tile);
+	}
+
+	/** Give the tile's chunk a new version if the tile is drawn as part of it. */
+	private void transformChanged(final int tile)
+	{
+		if ((flags[tile] & ANIMATING) == 0)
+		{
+			chunkChanged(tile);
+		}
+	}
+
+	private void chunkChanged(final int tile)
+	{
+		chunkVersions[chunks[tile]] = ++version;
+	}
+
+	/** Move a tile between its chunk's batch and the list of animating tiles. */
+	public void setAnimating(final int tile, final boolean animating)
+	{
+		if (isAnimating(tile) == animating)
+		{
+			return;
+		}
+
+		if (animating)
+		{
+			flags[tile] |= ANIMATING;
+			animatingTiles[animatingCount++] = tile;
+		}
+		else
+		{
+			flags[tile] &= ~ANIMATING;
+
+			for (int i = 0; i < animatingCount; i++)
+			{
+				if (animatingTiles[i] == tile)
+				{
+					System.arraycopy(animatingTiles, i + 1, animatingTiles, i, --animatingCount - i);
+					break;
+				}
+			}
+		}
+
+		chunkChanged(tile);
+	}
+
+	/** @return Number of tiles being animated. */
+	public int getAnimatingCount()
+	{
+		return animatingCount;
+	}
+
+	/** @return The i-th tile being animated. */
+	public int getAnimatingTile(final int i)
+	{
+		return animatingTiles[i];
+	}
+
+	/**
+	 * Build a tile's model matrix.
+	 *
+	 * @param tile The tile.
+	 * @param m Receives the matrix.
+	 */
+	public void getModelMatrix(final int tile, final float[] m)
+	{
+		MatrixMath.setIdentity(m);
+		MatrixMath.translate(m, x[tile], y[tile], -5.0f + z[tile]);
+		MatrixMath.rotateY(m, yRotation[tile]);
+		MatrixMath.rotateZ(m, zRotation[tile]);
+		MatrixMath.scale(m, 0.9f, 0.9f, 0.25f);
+	}
+
+	/**
+	 * Make this store equal to another of the same size. Only the chunks whose version differs are copied, along
+	 * with the animating tiles, so bringing a copy up to date costs little more than the changes since it was last
+	 * brought up to date.
+	 *
+	 * @param source The store to copy.
+	 */
+	public void copyFrom(final TileStore source)
+	{
+		for (int chunk = 0; chunk < chunkTiles.length; chunk++)
+		{
+			if (chunkVersions[chunk] == source.chunkVersions[chunk])
+			{
+				continue;
+			}
+
+			final int[] tiles = chunkTiles[chunk];
+			for (int i = 0; i < tiles.length; i++)
+			{
+				copyTile(source, tiles[i]);
+				flags[tiles[i]] = source.flags[tiles[i]];
+				letters[tiles[i]] = source.letters[tiles[i]];
+			}
+
+			chunkVersions[chunk] = source.chunkVersions[chunk];
+		}
+
+		animatingCount = source.animatingCount;
+		System.arraycopy(source.animatingTiles, 0, animatingTiles, 0, animatingCount);
+
+		for (int i = 0; i < animatingCount; i++)
+		{
+			copyTile(source, animatingTiles[i]);
+		}
+
+		version = source.version;
+	}
+
+	private void copyTile(final TileStore source, final int tile)
+	{
+		x[tile] = source.x[tile];
+		y[tile] = source.y[tile];
+		z[tile] = source.z[tile];
+		yRotation[tile] = source.yRotation[tile];
+		zRotation[tile] = source.zRotation[tile];
+	}
+}
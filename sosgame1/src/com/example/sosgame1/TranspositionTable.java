@@ -0,0 +1,167 @@
+package com.example.sosgame1;
+
+/**
+ * A fixed-size hash table of search results keyed by Zobrist hash, stored in two primitive arrays so that probing
+ * and storing never allocate. Each slot packs value, depth, bound type, search generation and best move into one
+ * long:
+ * <pre>
+ * bits 0-31   value
+ * bits 32-39  depth
+ * bits 40-41  bound type
+ * bits 42-48  generation
+ * bit  49     occupied
+ * bits 50-63  best move + 1, or 0 for none
+ * </pre>
+ * Replacement is depth-preferred: a slot is only overwritten by a search at least as deep, unless it is left over
+ * from an earlier search. Not thread safe.
+ */
+public class TranspositionTable
+{
+	/** Bound types. */
+	public static final int EXACT = 0;
+	/** The value is a lower bound: the search failed high. */
+	public static final int LOWER = 1;
+	/** The value is an upper bound: the search failed low. */
+	public static final int UPPER = 2;
+
+	/** Largest move that can be stored. Bigger moves are stored as none. */
+	public static final int MAX_MOVE = (1 << 14) - 2;
+
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int GENERATION_SHIFT = 42;
+	private static final long OCCUPIED = 1L << 49;
+	private static final int MOVE_SHIFT = 50;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+
+	private int generation = 0;
+
+	private long probes = 0;
+	private long hits = 0;
+
+	/**
+	 * @param log2Size Base 2 logarithm of the number of slots. Each slot takes 16 bytes.
+	 */
+	public TranspositionTable(final int log2Size)
+	{
+		keys = new long[1 << log2Size];
+		entries = new long[1 << log2Size];
+		mask = (1 << log2Size) - 1;
+	}
+
+	/** Empty the table and the statistics. */
+	public void clear()
+	{
+		for (int i = 0; i < entries.length; i++)
+		{
+			keys[i] = 0;
+			entries[i] = 0;
+		}
+
+		generation = 0;
+		resetStatistics();
+	}
+
+	/** Mark the start of a new search. Entries from earlier searches stay usable but can be replaced freely. */
+	public void newSearch()
+	{
+		generation = (generation + 1) & 0x7F;
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @return The entry for getValue() and friends, or 0 if the position is not in the table.
+	 */
+	public long probe(final long key)
+	{
+		probes++;
+		final int slot = (int) key & mask;
+		final long entry = entries[slot];
+
+		if (entry != 0 && keys[slot] == key)
+		{
+			hits++;
+			return entry;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Store a search result, unless the slot holds a deeper result from the current search.
+	 *
+	 * @param key Zobrist hash of the position.
+	 * @param value The search value.
+	 * @param depth Remaining depth the value was searched to. Depths over 255 are stored as 255.
+	 * @param bound EXACT, LOWER or UPPER.
+	 * @param move The best move found, or -1 for none.
+	 */
+	public void store(final long key, final int value, final int depth, final int bound, final int move)
+	{
+		final int slot = (int) key & mask;
+		final long old = entries[slot];
+		final int clampedDepth = Math.min(depth, 0xFF);
+
+		if (old != 0 && keys[slot] != key && getGeneration(old) == generation && getDepth(old) > clampedDepth)
+		{
+			return;
+		}
+
+		keys[slot] = key;
+		entries[slot] = (value & 0xFFFFFFFFL) | (long) clampedDepth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) generation << GENERATION_SHIFT | OCCUPIED
+				| (long) (move >= 0 && move <= MAX_MOVE ? move + 1 : 0) << MOVE_SHIFT;
+	}
+
+	public static int getValue(final long entry)
+	{
+		return (int) entry;
+	}
+
+	public static int getDepth(final long entry)
+	{
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int getBound(final long entry)
+	{
+		return (int) (entry >>> BOUND_SHIFT) & 3;
+	}
+
+	/** @return The stored best move, or -1 for none. */
+	public static int getMove(final long entry)
+	{
+		return (int) (entry >>> MOVE_SHIFT) - 1;
+	}
+
+	private static int getGeneration(final long entry)
+	{
+		return (int) (entry >>> GENERATION_SHIFT) & 0x7F;
+	}
+
+	public void resetStatistics()
+	{
+		probes = 0;
+		hits = 0;
+	}
+
+	/** @return Fraction of probes since the last reset that found their position, 0 to 1. */
+	public float getHitRate()
+	{
+		return probes == 0 ? 0 : (float) hits / probes;
+	}
+
+	public long getProbes()
+	{
+		return probes;
+	}
+
+	public long getHits()
+	{
+		return hits;
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.sosgame1;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import android.opengl.GLES20;
+
+/**
+ * An indexed mesh stored in static OpenGL buffer objects: interleaved vertices plus GL_UNSIGNED_SHORT triangle
+ * indices. The data is uploaded to the GPU once and then bound by handle when drawing, so no vertex data crosses the
+ * bus per frame.
+ */
+public class VertexBuffer
+{
+	/** How many bytes per short. */
+	private static final int BYTES_PER_SHORT = 2;
+
+	/** Client side copies of the data. Kept so the buffers can be uploaded again after the EGL context is lost. */
+	private final ByteBuffer data;
+	private final ShortBuffer indices;
+
+	/** Layout of the vertices in data. */
+	private final VertexFormat format;
+
+	/** OpenGL handles to the buffer objects, or 0 if not uploaded yet. */
+	private int bufferHandle = 0;
+	private int indexBufferHandle = 0;
+
+	/**
+	 * @param shape The deduplicated shape, e.g. from ShapeBuilder.generateIndexedData().
+	 * @param format Layout to pack the vertices in.
+	 */
+	public VertexBuffer(final ShapeBuilder.IndexedShape shape, final VertexFormat format)
+	{
+		this.format = format;
+
+		data = ShapeBuilder.generateInterleavedData(format, shape.positions, shape.colors, shape.normals,
+				shape.textureCoordinates);
+
+		indices = ByteBuffer.allocateDirect(shape.indices.length * BYTES_PER_SHORT)
+		.order(ByteOrder.nativeOrder()).asShortBuffer();
+		indices.put(shape.indices).position(0);
+	}
+
+	/**
+	 * Upload the data into new GL_STATIC_DRAW buffer objects. Must be called on the GL thread from onSurfaceCreated(),
+	 * since any handles from a previous context are no longer valid at that point.
+	 */
+	public void upload()
+	{
+		final int[] handles = new int[2];
+		GLES20.glGenBuffers(2, handles, 0);
+
+		if (handles[0] == 0 || handles[1] == 0)
+		{
+			throw new RuntimeException("Error creating vertex buffer.");
+		}
+
+		data.position(0);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, handles[0]);
+		GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, data.capacity(), data, GLES20.GL_STATIC_DRAW);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+		indices.position(0);
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, handles[1]);
+		GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.capacity() * BYTES_PER_SHORT, indices,
+				GLES20.GL_STATIC_DRAW);
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+		bufferHandle = handles[0];
+		indexBufferHandle = handles[1];
+	}
+
+	/**
+	 * Point the attributes of a program at this buffer and enable them.
+	 *
+	 * @param state The GL state cache.
+	 * @param program The current shader program.
+	 */
+	public void bind(final GLStateCache state, final ShaderProgram program)
+	{
+		format.bind(state, program, bufferHandle);
+	}
+
+	/**
+	 * Draw the mesh as indexed triangles. bind() must have been called first.
+	 *
+	 * @param state The GL state cache.
+	 */
+	public void draw(final GLStateCache state)
+	{
+		state.bindElementArrayBuffer(indexBufferHandle);
+		GLES20.glDrawElements(GLES20.GL_TRIANGLES, indices.capacity(), GLES20.GL_UNSIGNED_SHORT, 0);
+	}
+
+	/** @return Number of unique vertices held in this buffer. */
+	public int getVertexCount()
+	{
+		return data.capacity() / format.stride;
+	}
+
+	/** @return Number of indices, i.e. three per triangle. */
+	public int getIndexCount()
+	{
+		return indices.capacity();
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.sosgame1;
+
+import android.opengl.GLES20;
+
+/**
+ * Describes an interleaved vertex layout: which attributes a vertex holds, how each one is stored, and where it sits
+ * within the vertex. Used by ShapeBuilder to pack vertices and by the draw code to set up attribute pointers.
+ */
+public class VertexFormat
+{
+	/** Attribute semantics. These map onto the attributes our shaders declare. */
+	public static final int POSITION = 0;
+	public static final int COLOR = 1;
+	public static final int NORMAL = 2;
+	public static final int TEXTURE_COORDINATE = 3;
+
+	/**
+	 * The packed layout used for all our meshes, 24 bytes per vertex instead of 48 for separate float streams:
+	 * <pre>
+	 * 0  X, Y, Z       3 floats
+	 * 12 NX, NY, NZ    3 normalized bytes, 1 byte padding
+	 * 16 R, G, B, A    4 normalized unsigned bytes
+	 * 20 S, T          2 normalized unsigned shorts
+	 * </pre>
+	 * Normals must have a length of at most 1, and texture coordinates must lie in [0, 1].
+	 */
+	public static final VertexFormat PACKED = new VertexFormat(24, new Attribute[] {
+			new Attribute(POSITION, 3, GLES20.GL_FLOAT, false, 0),
+			new Attribute(NORMAL, 3, GLES20.GL_BYTE, true, 12),
+			new Attribute(COLOR, 4, GLES20.GL_UNSIGNED_BYTE, true, 16),
+			new Attribute(TEXTURE_COORDINATE, 2, GLES20.GL_UNSIGNED_SHORT, true, 20)
+	});
+
+	/** One attribute within a vertex. */
+	public static class Attribute
+	{
+		public final int semantic;
+		/** Number of components, e.g. 3 for a position. */
+		public final int size;
+		/** GL component type, e.g. GL_FLOAT. */
+		public final int type;
+		/** Whether integer components are mapped onto [0, 1] or [-1, 1]. */
+		public final boolean normalized;
+		/** Byte offset within the vertex. */
+		public final int offset;
+
+		public Attribute(final int semantic, final int size, final int type, final boolean normalized,
+				final int offset)
+		{
+			this.semantic = semantic;
+			this.size = size;
+			this.type = type;
+			this.normalized = normalized;
+			this.offset = offset;
+		}
+	}
+
+	/** Bytes per vertex. */
+	public final int stride;
+
+	/** Attributes, ordered by offset. */
+	public final Attribute[] attributes;
+
+	public VertexFormat(final int stride, final Attribute[] attributes)
+	{
+		this.stride = stride;
+		this.attributes = attributes;
+	}
+
+	/** @return The attribute with the given semantic, or null if this format has none. */
+	public Attribute find(final int semantic)
+	{
+		for (int i = 0; i < attributes.length; i++)
+		{
+			if (attributes[i].semantic == semantic)
+			{
+				return attributes[i];
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Point the attributes of a program at an interleaved buffer in this format and enable them. Attributes the
+	 * program does not use are skipped.
+	 *
+	 * @param state The GL state cache.
+	 * @param program The current shader program.
+	 * @param bufferHandle The buffer object holding the vertices.
+	 */
+	public void bind(final GLStateCache state, final ShaderProgram program, final int bufferHandle)
+	{
+		for (int i = 0; i < attributes.length; i++)
+		{
+			final Attribute attribute = attributes[i];
+			final int location = getLocation(program, attribute.semantic);
+
+			if (location == ShaderProgram.NOT_FOUND)
+			{
+				continue;
+			}
+
+			state.vertexAttribPointer(location, bufferHandle, attribute.size, attribute.type, attribute.normalized,
+					stride, attribute.offset);
+			state.enableVertexAttribArray(location);
+		}
+	}
+
+	private static int getLocation(final ShaderProgram program, final int semantic)
+	{
+		switch (semantic)
+		{
+		case POSITION:
+			return program.positionAttribute;
+		case COLOR:
+			return program.colorAttribute;
+		case NORMAL:
+			return program.normalAttribute;
+		case TEXTURE_COORDINATE:
+			return program.textureCoordinateAttribute;
+		default:
+			return ShaderProgram.NOT_FOUND;
+		}
+	}
+}